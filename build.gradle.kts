@@ -31,6 +31,12 @@ val accessWiden by sourceSets.creating {
 val shadow by sourceSets.creating {
     configurations.named(this.implementationConfigurationName) { extendsFrom(commonDeps) }
 }
+val jmh by sourceSets.creating {
+    configurations.named(this.implementationConfigurationName) { extendsFrom(commonDeps) }
+}
+val cli by sourceSets.creating {
+    configurations.named(this.implementationConfigurationName) { extendsFrom(commonDeps) }
+}
 
 configurations {
     api { extendsFrom(commonDeps) }
@@ -75,8 +81,28 @@ dependencies {
     "shadowCompileOnly"(libs.shadowPlugin)
     implementation(shadow.output)
 
+    // Benchmarks, not shipped
+    "jmhImplementation"(sourceSets.main.get().output)
+    "jmhImplementation"(jarMerge.output)
+    "jmhImplementation"(libs.mergeTool) {
+        exclude("org.ow2.asm")
+    }
+    "jmhImplementation"(libs.jmh.core)
+    "jmhAnnotationProcessor"(libs.jmh.generator)
+
+    // Standalone cache warmer, not shipped
+    "cliImplementation"(sourceSets.main.get().output)
+    "cliImplementation"(jarMerge.output)
+    "cliImplementation"(jarDecompile.output)
+    "cliImplementation"(libs.gson)
+    "cliRuntimeOnly"(libs.slf4j.simple)
+
     testImplementation(platform(libs.junit.bom))
     testImplementation(libs.junit.api)
+    // Compare the native jar merger against mergetool
+    testImplementation(libs.mergeTool) {
+        exclude("org.ow2.asm")
+    }
     testRuntimeOnly(libs.junit.launcher)
     testRuntimeOnly(libs.junit.engine)
 }
@@ -116,6 +142,28 @@ tasks {
         from(shadow.output)
     }
 
+    test {
+        // Real jars to compare the native jar merger against mergetool with, see ParallelJarMergerTest
+        systemProperties(providers.systemPropertiesPrefixedBy("vanillagradle.test.").get())
+    }
+
+    register("jmh", JavaExec::class) {
+        group = "benchmark"
+        description = "Run JMH benchmarks. Pass JMH arguments with -PjmhArgs, and benchmark inputs as -Dvanillagradle.benchmark.* system properties"
+        classpath = jmh.runtimeClasspath
+        mainClass.set("org.openjdk.jmh.Main")
+        args(providers.gradleProperty("jmhArgs").map { it.split(" ") }.getOrElse(listOf()))
+        systemProperties(providers.systemPropertiesPrefixedBy("vanillagradle.benchmark.").get())
+    }
+
+    register("warmCache", JavaExec::class) {
+        group = "vanillagradle"
+        description = "Prepare Minecraft artifacts in a VanillaGradle cache without a consuming build. Pass arguments with -PwarmCacheArgs, or --help to list them"
+        classpath = cli.runtimeClasspath
+        mainClass.set("org.spongepowered.gradle.vanilla.standalone.CacheWarmer")
+        args(providers.gradleProperty("warmCacheArgs").map { it.split(" ") }.getOrElse(listOf("--help")))
+    }
+
     publishPlugins {
         onlyIf { net.kyori.indra.util.Versioning.isRelease(project) }
     }
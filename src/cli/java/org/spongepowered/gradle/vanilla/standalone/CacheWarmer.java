@@ -0,0 +1,431 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.standalone;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.bundler.BundledLibraryPublisher;
+import org.spongepowered.gradle.vanilla.internal.cache.ArtifactCache;
+import org.spongepowered.gradle.vanilla.internal.cache.CacheAccess;
+import org.spongepowered.gradle.vanilla.internal.cache.ClassLocationIndex;
+import org.spongepowered.gradle.vanilla.internal.cache.SeedCaches;
+import org.spongepowered.gradle.vanilla.internal.model.AssetIndex;
+import org.spongepowered.gradle.vanilla.internal.model.AssetIndexReference;
+import org.spongepowered.gradle.vanilla.internal.model.GroupArtifactVersion;
+import org.spongepowered.gradle.vanilla.internal.model.VersionManifestRepository;
+import org.spongepowered.gradle.vanilla.internal.repository.ResolvableTool;
+import org.spongepowered.gradle.vanilla.internal.repository.ToolClassLoaderPool;
+import org.spongepowered.gradle.vanilla.internal.repository.modifier.AssociatedResolutionFlags;
+import org.spongepowered.gradle.vanilla.internal.transformer.JarCompression;
+import org.spongepowered.gradle.vanilla.internal.util.GsonUtils;
+import org.spongepowered.gradle.vanilla.internal.util.ResolutionWatchdog;
+import org.spongepowered.gradle.vanilla.internal.util.StagingArea;
+import org.spongepowered.gradle.vanilla.repository.MinecraftPlatform;
+import org.spongepowered.gradle.vanilla.repository.MinecraftResolver;
+import org.spongepowered.gradle.vanilla.repository.MinecraftResolverImpl;
+import org.spongepowered.gradle.vanilla.resolver.Downloader;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+import org.spongepowered.gradle.vanilla.resolver.ResolutionResult;
+import org.spongepowered.gradle.vanilla.resolver.jdk.JdkHttpClientDownloader;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares Minecraft artifacts in a VanillaGradle cache without starting
+ * Gradle.
+ *
+ * <p>Every requested version and platform is resolved in parallel by the
+ * same resolver the Gradle plugin uses, so builds sharing the cache find
+ * their artifacts already prepared. This is meant for baking caches into CI
+ * images, and for preparing shared or seed caches.</p>
+ *
+ * <p>Tools that Gradle would resolve, such as mergetool and the decompiler,
+ * are fetched from the same repositories into the cache's tools directory.
+ * Joined jars record the merger that produced them, so builds only reuse
+ * them when configured for the same merger.</p>
+ */
+@NullMarked
+public final class CacheWarmer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmer.class);
+    private static final String JAR_MERGER = "org.spongepowered.gradle.vanilla.internal.worker.JarMerger";
+    private static final String USAGE = """
+        Usage: CacheWarmer [options] <version>...
+
+        Options:
+          --cache <dir>           the cache root, as set by org.spongepowered.gradle.vanilla.sharedCacheRoot
+                                  (default: $GRADLE_USER_HOME/caches/VanillaGradle)
+          --platform <platform>   client, server or joined, may be repeated (default: joined)
+          --assets                also download asset indexes and objects
+          --assets-dir <dir>      the directory to download assets to (default: the assets directory of the cache)
+          --bundled-libraries     publish libraries bundled in server jars, as with org.spongepowered.gradle.vanilla.bundledLibraries
+          --native-merge          merge joined jars with the experimental native merger, as with org.spongepowered.gradle.vanilla.nativeJarMerge
+          --sources               also decompile each platform, as the decompile task does
+          --offline               only use what is already in the cache
+          --refresh               ignore what is already in the cache
+          --help                  show this message
+        """;
+
+    private CacheWarmer() {
+    }
+
+    public static void main(final String[] args) {
+        final Options options;
+        try {
+            options = Options.parse(args);
+        } catch (final IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(CacheWarmer.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options == null) {
+            System.out.print(CacheWarmer.USAGE);
+            return;
+        }
+
+        boolean success;
+        try {
+            success = CacheWarmer.warm(options);
+        } catch (final Exception ex) {
+            CacheWarmer.LOGGER.error("Failed to warm the cache", ex);
+            success = false;
+        }
+        System.exit(success ? 0 : 1);
+    }
+
+    /**
+     * Prepare every requested artifact.
+     *
+     * @param options the parsed options
+     * @return whether every artifact was prepared
+     * @throws Exception if the cache could not be opened
+     */
+    static boolean warm(final Options options) throws Exception {
+        final Path sharedCache = options.cacheRoot().resolve("v" + MinecraftResolver.STORAGE_VERSION);
+        final Path assets = options.assetsDir() != null ? options.assetsDir() : sharedCache.resolve(Constants.Directories.ASSETS);
+        final Downloader.ResolveMode mode;
+        if (options.offline()) {
+            mode = Downloader.ResolveMode.LOCAL_ONLY;
+        } else if (options.refresh()) {
+            mode = Downloader.ResolveMode.REMOTE_ONLY;
+        } else {
+            mode = Downloader.ResolveMode.LOCAL_THEN_REMOTE;
+        }
+
+        // The same executor split as the Gradle plugin: virtual threads for I/O, one thread per processor for everything else
+        final ExecutorService ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("VanillaGradle I/O ", 0).factory());
+        final ExecutorService cpuExecutor = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        try (final Downloader downloader = new JdkHttpClientDownloader(ioExecutor, sharedCache, mode, SeedCaches.NONE);
+             final StagingArea staging = StagingArea.open(sharedCache);
+             final ToolClassLoaderPool toolLoaders = new ToolClassLoaderPool(CacheWarmer.class.getClassLoader())) {
+            final MavenArtifacts tools = new MavenArtifacts(downloader.withBaseDir(sharedCache.resolve(Constants.Directories.TOOLS)));
+            // Both mergers need mergetool, the native merger for the annotations it injects
+            final Path mergeTool = tools.fetch(GroupArtifactVersion.parse(Constants.WorkerDependencies.MERGE_TOOL), List.of(Constants.Repositories.MINECRAFT_FORGE))
+                .join();
+            final URL[] mergeClassPath = {CacheWarmer.codeSource(CacheWarmer.JAR_MERGER), mergeTool.toUri().toURL()};
+            final MinecraftResolverImpl resolver = new MinecraftResolverImpl(
+                VersionManifestRepository.fromDownloader(downloader.withBaseDir(sharedCache.resolve(Constants.Directories.MANIFESTS))),
+                downloader.withBaseDir(sharedCache.resolve(Constants.Directories.JARS)),
+                sharedCache.resolve(Constants.Directories.JARS), // no modifiers are applied, so nothing needs project-local storage
+                ioExecutor,
+                cpuExecutor,
+                tool -> {
+                    if (tool != ResolvableTool.JAR_MERGE) {
+                        throw new IllegalArgumentException("The " + tool.id() + " tool is not available outside of Gradle");
+                    }
+                    return mergeClassPath;
+                },
+                toolLoaders,
+                staging,
+                staging,
+                JarCompression.STORED,
+                sharedCache.resolve(Constants.Directories.MERGED_CLASSES),
+                new ClassLocationIndex(sharedCache.resolve(Constants.Directories.CLASS_INDEX)),
+                options.nativeJarMerge(),
+                options.bundledLibraries() ? new BundledLibraryPublisher(sharedCache.resolve(Constants.Directories.LIBRARIES)) : null,
+                ArtifactCache.NONE,
+                SeedCaches.NONE,
+                ResolutionWatchdog.disabled(),
+                options.refresh()
+            );
+
+            final @Nullable SourcesDecompiler decompiler = options.sources() ? new SourcesDecompiler(tools, toolLoaders) : null;
+            final Queue<String> failures = new ConcurrentLinkedQueue<>();
+            final List<CompletableFuture<?>> work = new ArrayList<>();
+            for (final String version : options.versions()) {
+                for (final MinecraftPlatform platform : options.platforms()) {
+                    work.add(resolver.provide(platform, version).handle((result, err) -> {
+                        if (err != null) {
+                            CacheWarmer.LOGGER.error("Failed to prepare {} {}", platform.artifactId(), version, err);
+                            failures.add(platform.artifactId() + ' ' + version);
+                        } else if (!result.isPresent()) {
+                            CacheWarmer.LOGGER.error("No {} artifact exists for version {}", platform.artifactId(), version);
+                            failures.add(platform.artifactId() + ' ' + version);
+                        } else {
+                            CacheWarmer.LOGGER.info("Prepared {} {} at {}", platform.artifactId(), version, result.get().jar());
+                        }
+                        return null;
+                    }));
+                    if (decompiler != null) {
+                        work.add(resolver.produceAssociatedArtifact(
+                            platform,
+                            version,
+                            Set.of(),
+                            "sources",
+                            EnumSet.of(AssociatedResolutionFlags.MODIFIES_ORIGINAL),
+                            decompiler::decompile
+                        ).handle((result, err) -> {
+                            if (err != null) {
+                                CacheWarmer.LOGGER.error("Failed to decompile {} {}", platform.artifactId(), version, err);
+                                failures.add(platform.artifactId() + ' ' + version + " sources");
+                            } else {
+                                CacheWarmer.LOGGER.info("Prepared {} {} sources at {}", platform.artifactId(), version, result.get());
+                            }
+                            return null;
+                        }));
+                    }
+                }
+                if (options.assets()) {
+                    work.add(CacheWarmer.downloadAssets(resolver.versions(), downloader.withBaseDir(assets), version, assets.startsWith(sharedCache))
+                        .handle((count, err) -> {
+                            if (err != null) {
+                                CacheWarmer.LOGGER.error("Failed to download assets for {}", version, err);
+                                failures.add("assets " + version);
+                            } else {
+                                CacheWarmer.LOGGER.info("Prepared {} assets for {} in {}", count, version, assets);
+                            }
+                            return null;
+                        }));
+                }
+            }
+
+            try {
+                resolver.processSyncTasksUntilComplete(CompletableFuture.allOf(work.toArray(new CompletableFuture<?>[0])));
+            } finally {
+                if (decompiler != null) {
+                    decompiler.close();
+                }
+            }
+            if (!failures.isEmpty()) {
+                CacheWarmer.LOGGER.error("Failed to prepare: {}", String.join(", ", failures));
+            }
+            return failures.isEmpty();
+        } finally {
+            cpuExecutor.shutdown();
+            ioExecutor.shutdown();
+            cpuExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            ioExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Find the class path entry that a class is loaded from, without loading
+     * the class.
+     *
+     * <p>Worker classes are loaded again alongside their tools, and may not
+     * be loadable without them.</p>
+     *
+     * @param className the binary name of the class
+     * @return the location of the class path entry
+     * @throws MalformedURLException if the location is not a valid URL
+     */
+    static URL codeSource(final String className) throws MalformedURLException {
+        final String resource = className.replace('.', '/') + ".class";
+        final @Nullable URL url = CacheWarmer.class.getClassLoader().getResource(resource);
+        if (url == null) {
+            throw new IllegalStateException("Could not find " + className + " on the class path");
+        }
+        final String location = url.toExternalForm();
+        if (location.startsWith("jar:")) {
+            return URI.create(location.substring("jar:".length(), location.indexOf("!/"))).toURL();
+        }
+        return URI.create(location.substring(0, location.length() - resource.length())).toURL();
+    }
+
+    /**
+     * Download the asset index of a version, and every object it refers to.
+     *
+     * @return a future providing the number of objects in the index
+     */
+    private static CompletableFuture<Integer> downloadAssets(
+        final VersionManifestRepository versions,
+        final Downloader downloader,
+        final String version,
+        final boolean trackAccess
+    ) {
+        return versions.fullVersion(version).thenCompose(descriptor -> {
+            if (!descriptor.isPresent()) {
+                throw new CompletionException(new IllegalArgumentException("Unknown version " + version));
+            }
+            final AssetIndexReference ref = descriptor.get().assetIndex();
+            final String indexPath = "indexes/" + ref.id() + ".json";
+            return downloader.readStringAndValidate(ref.url(), indexPath, HashAlgorithm.SHA1, ref.sha1()).thenCompose(contents -> {
+                if (!contents.isPresent()) {
+                    throw new CompletionException(new IllegalStateException("Asset index " + ref.id() + " could not be found"));
+                }
+                if (trackAccess) {
+                    CacheAccess.touchFile(downloader.baseDir().resolve(indexPath));
+                }
+                final AssetIndex index = GsonUtils.GSON.fromJson(contents.get(), AssetIndex.class);
+                final Downloader objects = downloader.withBaseDir(downloader.baseDir().resolve("objects"));
+                final List<CompletableFuture<ResolutionResult<Path>>> downloads = new ArrayList<>();
+                for (final Map.Entry<String, AssetIndex.Asset> asset : index.objects().entrySet()) {
+                    final String fileName = asset.getValue().fileName();
+                    downloads.add(objects.downloadAndValidate(
+                        URI.create(Constants.MINECRAFT_RESOURCES_BASE + fileName),
+                        fileName,
+                        HashAlgorithm.SHA1,
+                        asset.getValue().hash()
+                    ));
+                }
+                return CompletableFuture.allOf(downloads.toArray(new CompletableFuture<?>[0])).thenApply($ -> downloads.size());
+            });
+        });
+    }
+
+    /**
+     * Parsed command line options.
+     *
+     * @param cacheRoot the cache root, without its storage version
+     * @param platforms the platforms to prepare
+     * @param versions the versions to prepare
+     * @param assets whether to download assets
+     * @param assetsDir the directory to download assets to, if not the cache
+     * @param bundledLibraries whether to publish bundled libraries
+     * @param nativeJarMerge whether to merge with the native merger
+     * @param sources whether to decompile
+     * @param offline whether to only use the cache
+     * @param refresh whether to ignore the cache
+     */
+    record Options(
+        Path cacheRoot,
+        Set<MinecraftPlatform> platforms,
+        Set<String> versions,
+        boolean assets,
+        @Nullable Path assetsDir,
+        boolean bundledLibraries,
+        boolean nativeJarMerge,
+        boolean sources,
+        boolean offline,
+        boolean refresh
+    ) {
+
+        /**
+         * Parse options from command line arguments.
+         *
+         * @param args the arguments
+         * @return the options, or {@code null} if help was requested
+         * @throws IllegalArgumentException if the arguments are invalid
+         */
+        static @Nullable Options parse(final String[] args) {
+            Path cacheRoot = Options.defaultCacheRoot();
+            final Set<MinecraftPlatform> platforms = new LinkedHashSet<>();
+            final Set<String> versions = new LinkedHashSet<>();
+            boolean assets = false;
+            @Nullable Path assetsDir = null;
+            boolean bundledLibraries = false;
+            boolean nativeJarMerge = false;
+            boolean sources = false;
+            boolean offline = false;
+            boolean refresh = false;
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--help", "-h" -> {
+                        return null;
+                    }
+                    case "--cache" -> cacheRoot = Path.of(Options.value(args, ++i));
+                    case "--platform" -> {
+                        final String id = Options.value(args, i + 1);
+                        platforms.add(MinecraftPlatform.byId(id).orElseThrow(() -> new IllegalArgumentException("Unknown platform " + id)));
+                        i++;
+                    }
+                    case "--assets" -> assets = true;
+                    case "--assets-dir" -> {
+                        assets = true;
+                        assetsDir = Path.of(Options.value(args, ++i));
+                    }
+                    case "--bundled-libraries" -> bundledLibraries = true;
+                    case "--native-merge" -> nativeJarMerge = true;
+                    case "--sources" -> sources = true;
+                    case "--offline" -> offline = true;
+                    case "--refresh" -> refresh = true;
+                    default -> {
+                        if (args[i].startsWith("-")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i]);
+                        }
+                        versions.add(args[i]);
+                    }
+                }
+            }
+
+            if (versions.isEmpty()) {
+                throw new IllegalArgumentException("No versions were given");
+            }
+            if (offline && refresh) {
+                throw new IllegalArgumentException("--offline and --refresh cannot be used together");
+            }
+            if (platforms.isEmpty()) {
+                platforms.add(MinecraftPlatform.JOINED);
+            }
+            return new Options(cacheRoot, platforms, versions, assets, assetsDir, bundledLibraries, nativeJarMerge, sources, offline, refresh);
+        }
+
+        private static String value(final String[] args, final int index) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+            }
+            return args[index];
+        }
+
+        private static Path defaultCacheRoot() {
+            final @Nullable String gradleUserHome = System.getenv("GRADLE_USER_HOME");
+            final Path home = gradleUserHome != null ? Path.of(gradleUserHome) : Path.of(System.getProperty("user.home"), ".gradle");
+            return home.resolve(Constants.Directories.CACHES).resolve(Constants.NAME);
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.standalone;
+
+import org.jspecify.annotations.NullMarked;
+import org.spongepowered.gradle.vanilla.internal.bundler.BundledLibraryPublisher;
+import org.spongepowered.gradle.vanilla.internal.cache.CacheAccess;
+import org.spongepowered.gradle.vanilla.internal.model.GroupArtifactVersion;
+import org.spongepowered.gradle.vanilla.resolver.Downloader;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+import org.spongepowered.gradle.vanilla.resolver.ResolutionResult;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Fetches artifacts from maven repositories, for the tools and libraries
+ * that Gradle would otherwise resolve.
+ *
+ * <p>Artifacts are validated against the SHA-1 checksum published next to
+ * them in the repository, and kept in maven layout beneath the downloader's
+ * base directory.</p>
+ */
+@NullMarked
+final class MavenArtifacts {
+
+    private final Downloader downloader;
+
+    MavenArtifacts(final Downloader downloader) {
+        this.downloader = downloader;
+    }
+
+    /**
+     * Fetch an artifact from the first repository that has it.
+     *
+     * @param artifact the artifact to fetch
+     * @param repositories base URLs of the repositories to try, in order
+     * @return a future providing the local artifact
+     */
+    CompletableFuture<Path> fetch(final GroupArtifactVersion artifact, final List<String> repositories) {
+        final String path = BundledLibraryPublisher.mavenPath(artifact);
+        CompletableFuture<ResolutionResult<Path>> result = CompletableFuture.completedFuture(ResolutionResult.notFound());
+        for (final String repository : repositories) {
+            result = result.thenCompose(previous -> previous.isPresent() ? CompletableFuture.completedFuture(previous) : this.fetchFrom(repository, path));
+        }
+        return result.thenApply(fetched -> {
+            if (!fetched.isPresent()) {
+                throw new CompletionException(new IOException("Could not find " + artifact + " in any of " + repositories));
+            }
+            CacheAccess.touchDirectory(fetched.get().getParent());
+            return fetched.get();
+        });
+    }
+
+    private CompletableFuture<ResolutionResult<Path>> fetchFrom(final String repository, final String path) {
+        return this.downloader.readString(URI.create(repository + path + ".sha1"), path + ".sha1").thenCompose(checksum -> {
+            if (!checksum.isPresent()) {
+                return CompletableFuture.completedFuture(ResolutionResult.notFound());
+            }
+            // some repositories follow the checksum with the file name
+            final String sha1 = checksum.get().trim().split("\\s+", 2)[0];
+            return this.downloader.downloadAndValidate(URI.create(repository + path), path, HashAlgorithm.SHA1, sha1);
+        });
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.standalone;
+
+import org.jspecify.annotations.NullMarked;
+import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.model.GroupArtifactVersion;
+import org.spongepowered.gradle.vanilla.internal.repository.ToolClassLoaderPool;
+import org.spongepowered.gradle.vanilla.internal.repository.modifier.AssociatedResolutionFlags;
+import org.spongepowered.gradle.vanilla.repository.MinecraftResolver;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decompiles Minecraft environments the same way the {@code decompile} task
+ * does, without a Gradle worker.
+ *
+ * <p>The decompiler and the environment's libraries are fetched from the
+ * same repositories Gradle would resolve them from, so the sources produced
+ * match what a build would produce.</p>
+ */
+@NullMarked
+final class SourcesDecompiler implements AutoCloseable {
+
+    private static final String WORKER = "org.spongepowered.gradle.vanilla.internal.worker.JarDecompileWorker";
+    private static final List<String> LIBRARY_REPOSITORIES = List.of(Constants.Repositories.MINECRAFT, Constants.Repositories.MAVEN_CENTRAL);
+
+    private final MavenArtifacts artifacts;
+    private final CompletableFuture<URLClassLoader> loader;
+    // Each decompile already uses every processor and a good deal of memory, so only one runs at a time
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("VanillaGradle Decompiler").factory());
+
+    SourcesDecompiler(final MavenArtifacts artifacts, final ToolClassLoaderPool loaders) {
+        this.artifacts = artifacts;
+        this.loader = artifacts.fetch(GroupArtifactVersion.parse(Constants.WorkerDependencies.VINE_FLOWER), List.of(Constants.Repositories.MAVEN_CENTRAL))
+            .thenApply(vineFlower -> {
+                try {
+                    return loaders.get(new URL[] {CacheWarmer.codeSource(SourcesDecompiler.WORKER), vineFlower.toUri().toURL()});
+                } catch (final MalformedURLException ex) {
+                    throw new CompletionException(ex);
+                }
+            });
+    }
+
+    /**
+     * Decompile an environment, writing a line-mapped copy of its jar
+     * alongside the sources.
+     *
+     * <p>This matches the signature of the action passed to
+     * {@link MinecraftResolver#produceAssociatedArtifact}.</p>
+     *
+     * @param env the environment to decompile
+     * @param output the sources jar to write
+     * @return a future completing once decompiled
+     */
+    CompletableFuture<?> decompile(final MinecraftResolver.MinecraftEnvironment env, final Path output) {
+        final List<CompletableFuture<Path>> libraries = new ArrayList<>();
+        for (final GroupArtifactVersion library : env.dependencies()) {
+            libraries.add(this.artifacts.fetch(library, SourcesDecompiler.LIBRARY_REPOSITORIES));
+        }
+
+        return CompletableFuture.allOf(libraries.toArray(new CompletableFuture<?>[0]))
+            .thenCombine(this.loader, ($, loader) -> loader)
+            .thenAcceptAsync(loader -> {
+                final List<File> classpath = new ArrayList<>(libraries.size());
+                for (final CompletableFuture<Path> library : libraries) {
+                    classpath.add(library.join().toFile());
+                }
+                try {
+                    final Method decompile = Class.forName(SourcesDecompiler.WORKER, true, loader)
+                        .getMethod("decompile", File.class, File.class, File.class, Iterable.class, Map.class);
+                    decompile.invoke(null, env.jar().toFile(), output.toFile(), AssociatedResolutionFlags.modifiedOriginal(output).toFile(), classpath, Map.of());
+                } catch (final InvocationTargetException ex) {
+                    throw new CompletionException(ex.getCause());
+                } catch (final ReflectiveOperationException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, this.executor);
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+
+}
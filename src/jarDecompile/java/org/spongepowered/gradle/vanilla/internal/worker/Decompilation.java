@@ -34,7 +34,6 @@
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -46,12 +45,6 @@ public static VanillaGradleBytecodeProvider bytecodeFromJar() {
         return new VanillaGradleBytecodeProvider() {
             private final ConcurrentMap<String, FileSystem> files = new ConcurrentHashMap<>();
 
-            @Override
-            public void setBytecode(final String external, final String internal, final byte[] bytes) throws IOException {
-                final Path result = this.zipFile(external).getPath(internal);
-                Files.write(result, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-            }
-
             @Override
             public void close() throws IOException {
                 IOException error = null;
@@ -106,8 +99,6 @@ private FileSystem zipFile(final String external) throws IOException {
     @SuppressWarnings("deprecation")
     public interface VanillaGradleBytecodeProvider extends org.jetbrains.java.decompiler.main.extern.IBytecodeProvider, AutoCloseable {
 
-        void setBytecode(final String external, final String internal, final byte[] bytes) throws IOException;
-
         @Override
         void close() throws IOException;
     }
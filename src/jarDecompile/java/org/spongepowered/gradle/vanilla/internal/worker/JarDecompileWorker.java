@@ -32,11 +32,14 @@
 import org.jetbrains.java.decompiler.main.Fernflower;
 import org.jetbrains.java.decompiler.main.extern.IFernflowerPreferences;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -71,25 +74,59 @@ public static abstract class Parameters implements WorkParameters {
         public abstract ConfigurableFileCollection getDecompileClasspath();
         public abstract RegularFileProperty getInputJar();
         public abstract RegularFileProperty getOutputJar();
+        public abstract RegularFileProperty getLineMappedJar(); // optional, a copy of the input with line numbers matching the output
         public abstract MapProperty<String, String> getExtraArgs();
     }
 
     @Override
     public void execute() {
         final Parameters params = this.getParameters();
+        try {
+            JarDecompileWorker.decompile(
+                params.getInputJar().get().getAsFile(),
+                params.getOutputJar().get().getAsFile(),
+                params.getLineMappedJar().isPresent() ? params.getLineMappedJar().get().getAsFile() : null,
+                params.getDecompileClasspath(),
+                params.getExtraArgs().get()
+            );
+        } catch (final IOException ex) {
+            // Fail the work action, so a partial or missing output is never used
+            throw new UncheckedIOException("Failed to decompile " + params.getInputJar().get().getAsFile(), ex);
+        }
+    }
 
-        final Map<String, Object> ffArgs = new HashMap<>(params.getExtraArgs().get());
+    /**
+     * Decompile a jar.
+     *
+     * <p>This does not need a Gradle worker, so can also be called
+     * directly.</p>
+     *
+     * @param input the jar to decompile
+     * @param output the sources jar to write
+     * @param lineMapped where to write a copy of the input with line numbers matching the sources, if anywhere
+     * @param classpath the libraries the input depends on
+     * @param extraArgs extra arguments to pass to fernflower, overriding VanillaGradle's defaults
+     * @throws IOException if the jars could not be read or written
+     */
+    public static void decompile(
+        final File input,
+        final File output,
+        final @Nullable File lineMapped,
+        final Iterable<File> classpath,
+        final Map<String, String> extraArgs
+    ) throws IOException {
+        final Map<String, Object> ffArgs = new HashMap<>(extraArgs);
         for (final Map.Entry<String, Object> defaultArg : JarDecompileWorker.OPTIONS.entrySet()) {
             ffArgs.putIfAbsent(defaultArg.getKey(), defaultArg.getValue()); // don't override user-specified options
         }
 
         // Decompile
-        final File input = params.getInputJar().get().getAsFile();
         try (final Decompilation.VanillaGradleBytecodeProvider bytecode = Decompilation.bytecodeFromJar()) {
+            final LineMappingResultSaver saver = new LineMappingResultSaver(output);
             @SuppressWarnings("deprecation")
             final Fernflower decompiler = new Fernflower(
                 bytecode,
-                new LineMappingResultSaver(input.getAbsolutePath(), params.getOutputJar().get().getAsFile(), bytecode),
+                saver,
                 ffArgs,
                 new SLF4JFernFlowerLogger(JarDecompileWorker.LOGGER)
             );
@@ -97,20 +134,28 @@ public void execute() {
             // add classes
             decompiler.addSource(input);
 
-            for (final File library : params.getDecompileClasspath()) {
+            for (final File library : classpath) {
                 decompiler.addLibrary(library);
             }
 
             // perform the decompile
             try {
                 decompiler.decompileContext();
-                JarDecompileWorker.LOGGER.warn("Successfully decompiled to {}", params.getOutputJar().get().getAsFile());
+                JarDecompileWorker.LOGGER.warn("Successfully decompiled to {}", output);
             } finally {
                 decompiler.clearContext();
                 System.gc();
             }
-        } catch (final IOException ex) {
-            JarDecompileWorker.LOGGER.error("Failed to decompile {}:", params.getInputJar().get().getAsFile(), ex);
+
+            if (lineMapped != null) {
+                try {
+                    saver.writeLineMapped(input, lineMapped);
+                } catch (final IOException ex) {
+                    // Without a complete line-mapped jar, the original is kept as-is
+                    Files.deleteIfExists(lineMapped.toPath());
+                    throw ex;
+                }
+            }
         }
     }
 }
@@ -32,21 +32,33 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
+/**
+ * Saves decompiled sources, and remembers the line mapping of each class so
+ * a copy of the input with line numbers matching the sources can be
+ * written afterwards.
+ */
 @NullMarked
 public class LineMappingResultSaver extends SingleFileSaver {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LineMappingResultSaver.class);
 
-    private final String source;
-    final Decompilation.VanillaGradleBytecodeProvider bytecodeProvider;
+    private final ConcurrentMap<String, int[]> mappings = new ConcurrentHashMap<>();
 
-    public LineMappingResultSaver(final String source, final File target, final Decompilation.VanillaGradleBytecodeProvider bytecodeProvider) {
+    public LineMappingResultSaver(final File target) {
         super(target);
-        this.source = source;
-        this.bytecodeProvider = bytecodeProvider;
     }
 
     @Override
@@ -55,19 +67,64 @@ public void saveClassEntry(
     ) {
         super.saveClassEntry(path, archiveName, qualifiedName, entryName, content, mapping);
         if (mapping != null) {
-            // Get the input archive name
-            try {
-                final String inputName = qualifiedName + ".class";
-                final byte[] clazz = this.bytecodeProvider.getBytecode(this.source, inputName);
-                final ClassReader reader = new ClassReader(clazz);
-                final ClassWriter output = new ClassWriter(reader, 0);
-                reader.accept(new LineMappingVisitor(output, mapping), 0);
-                // Find the entry, then modify it? if possible?
-                this.bytecodeProvider.setBytecode(this.source, inputName, output.toByteArray());
-            } catch (final IOException ex) {
-                LineMappingResultSaver.LOGGER.warn("Line mapping failed on {} in {}", entryName, archiveName, ex);
+            this.mappings.put(qualifiedName + ".class", mapping.clone());
+        }
+    }
+
+    /**
+     * Write a copy of the input jar, with line numbers remapped to match the
+     * saved sources.
+     *
+     * <p>The input is only read, so it remains usable by anything else
+     * reading it in the meantime.</p>
+     *
+     * @param input the jar that was decompiled
+     * @param output the jar to write
+     * @throws IOException if either jar could not be read or written
+     */
+    public void writeLineMapped(final File input, final File output) throws IOException {
+        try (final ZipFile in = new ZipFile(input);
+             final ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(output.toPath())))) {
+            final Enumeration<? extends ZipEntry> entries = in.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final byte[] contents;
+                try (final InputStream is = in.getInputStream(entry)) {
+                    contents = this.remap(entry.getName(), is.readAllBytes());
+                }
+
+                final ZipEntry copy = new ZipEntry(entry.getName());
+                copy.setTime(entry.getTime());
+                if (entry.getMethod() == ZipEntry.STORED) {
+                    // Stored entries must declare their size and checksum up front
+                    final CRC32 crc = new CRC32();
+                    crc.update(contents);
+                    copy.setMethod(ZipEntry.STORED);
+                    copy.setSize(contents.length);
+                    copy.setCompressedSize(contents.length);
+                    copy.setCrc(crc.getValue());
+                }
+                out.putNextEntry(copy);
+                out.write(contents);
+                out.closeEntry();
             }
         }
     }
 
+    private byte[] remap(final String entryName, final byte[] contents) {
+        final int @Nullable[] mapping = this.mappings.get(entryName);
+        if (mapping == null) {
+            return contents;
+        }
+        try {
+            final ClassReader reader = new ClassReader(contents);
+            final ClassWriter output = new ClassWriter(reader, 0);
+            reader.accept(new LineMappingVisitor(output, mapping), 0);
+            return output.toByteArray();
+        } catch (final RuntimeException ex) {
+            LineMappingResultSaver.LOGGER.warn("Line mapping failed on {}", entryName, ex);
+            return contents;
+        }
+    }
+
 }
@@ -0,0 +1,411 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.worker;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InnerClassNode;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Combine a client and server jar together, merging classes in parallel.
+ *
+ * <p>This follows the same conventions as mergetool's {@code Merger} with
+ * {@code AnnotationVersion.API}: members and classes present on only one side
+ * are marked with {@code @OnlyIn}, interfaces implemented on only one side
+ * are listed in an {@code @OnlyIns} annotation on the class, and the
+ * annotation classes themselves are added to the output.</p>
+ *
+ * <p>This cannot use any VanillaGradle API.</p>
+ */
+@NullMarked
+public final class ParallelJarMerger {
+
+    private static final String CLASS_SUFFIX = ".class";
+    private static final long ZIPTIME = 628041600000L; // 1990-01-01, as used by mergetool
+
+    private static final String DIST = "net/minecraftforge/api/distmarker/Dist";
+    private static final String ONLY_IN = "net/minecraftforge/api/distmarker/OnlyIn";
+    private static final String ONLY_INS = "net/minecraftforge/api/distmarker/OnlyIns";
+    private static final String CLIENT = "CLIENT";
+    private static final String SERVER = "DEDICATED_SERVER";
+
+    private ParallelJarMerger() {
+    }
+
+    /**
+     * Merge two jars, on a pool with one thread per available processor.
+     *
+     * @param clientJar the client jar
+     * @param serverJar the server jar
+     * @param outputJar the jar to write merged output to
+     */
+    public static void execute(final Path clientJar, final Path serverJar, final Path outputJar) {
+        final ExecutorService pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            ParallelJarMerger.execute(clientJar, serverJar, outputJar, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Merge two jars, merging classes on the provided executor.
+     *
+     * @param clientJar the client jar
+     * @param serverJar the server jar
+     * @param outputJar the jar to write merged output to
+     * @param executor the executor to merge classes on
+     */
+    public static void execute(final Path clientJar, final Path serverJar, final Path outputJar, final Executor executor) {
+        try {
+            ParallelJarMerger.merge(clientJar, serverJar, outputJar, executor);
+        } catch (final IOException ex) {
+            throw new RuntimeException("Failed to merge jars", ex);
+        }
+    }
+
+    private static void merge(final Path clientJar, final Path serverJar, final Path outputJar, final Executor executor) throws IOException {
+        try (final ZipFile client = new ZipFile(clientJar.toFile());
+             final ZipFile server = new ZipFile(serverJar.toFile());
+             final ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(outputJar)))) {
+            // Index both jars by class name. mergetool writes classes in the iteration order of a Hashtable,
+            // so one is used here too to produce entries in the same order.
+            final Map<String, ZipEntry> clientClasses = new Hashtable<>();
+            final Map<String, ZipEntry> serverClasses = new Hashtable<>();
+            final Map<String, ZipFile> resources = new LinkedHashMap<>();
+            ParallelJarMerger.index(client, clientClasses, resources);
+            ParallelJarMerger.index(server, serverClasses, resources);
+
+            // Client classes first, then whatever is only on the server
+            final List<String> entryNames = new ArrayList<>(clientClasses.size() + serverClasses.size());
+            final List<CompletableFuture<byte[]>> merged = new ArrayList<>(clientClasses.size() + serverClasses.size());
+            for (final Map.Entry<String, ZipEntry> entry : clientClasses.entrySet()) {
+                final ZipEntry clientEntry = entry.getValue();
+                final @Nullable ZipEntry serverEntry = serverClasses.remove(entry.getKey());
+                entryNames.add(clientEntry.getName());
+                merged.add(CompletableFuture.supplyAsync(() -> {
+                    if (serverEntry == null) {
+                        return ParallelJarMerger.sidedClass(ParallelJarMerger.read(client, clientEntry), true);
+                    } else {
+                        return ParallelJarMerger.mergeClass(ParallelJarMerger.read(client, clientEntry), ParallelJarMerger.read(server, serverEntry));
+                    }
+                }, executor));
+            }
+            for (final ZipEntry serverEntry : serverClasses.values()) {
+                entryNames.add(serverEntry.getName());
+                merged.add(CompletableFuture.supplyAsync(() -> ParallelJarMerger.sidedClass(ParallelJarMerger.read(server, serverEntry), false), executor));
+            }
+
+            // Resources are streamed straight through, the client's copy wins
+            for (final Map.Entry<String, ZipFile> resource : resources.entrySet()) {
+                out.putNextEntry(ParallelJarMerger.newEntry(resource.getKey()));
+                try (final InputStream is = resource.getValue().getInputStream(resource.getValue().getEntry(resource.getKey()))) {
+                    is.transferTo(out);
+                }
+                out.closeEntry();
+            }
+
+            // Then classes, in order, as each finishes merging
+            final Set<String> written = new HashSet<>();
+            for (int i = 0; i < merged.size(); i++) {
+                final byte[] contents;
+                try {
+                    contents = merged.get(i).join();
+                } catch (final CompletionException ex) {
+                    if (ex.getCause() instanceof UncheckedIOException io) {
+                        throw io.getCause();
+                    }
+                    throw ex;
+                }
+                out.putNextEntry(ParallelJarMerger.newEntry(entryNames.get(i)));
+                out.write(contents);
+                out.closeEntry();
+                written.add(entryNames.get(i));
+            }
+
+            for (final String annotation : List.of(ParallelJarMerger.DIST, ParallelJarMerger.ONLY_IN, ParallelJarMerger.ONLY_INS)) {
+                final String name = annotation + ParallelJarMerger.CLASS_SUFFIX;
+                if (written.contains(name)) {
+                    continue;
+                }
+                try (final @Nullable InputStream is = ParallelJarMerger.class.getClassLoader().getResourceAsStream(name)) {
+                    if (is == null) {
+                        throw new IOException("Could not find annotation class " + name + " to inject, is mergetool available?");
+                    }
+                    out.putNextEntry(ParallelJarMerger.newEntry(name));
+                    is.transferTo(out);
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    private static void index(final ZipFile jar, final Map<String, ZipEntry> classes, final Map<String, ZipFile> resources) {
+        final Enumeration<? extends ZipEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final ZipEntry entry = entries.nextElement();
+            final String name = entry.getName();
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (name.endsWith(ParallelJarMerger.CLASS_SUFFIX) && !name.startsWith(".")) {
+                classes.put(name.replace(ParallelJarMerger.CLASS_SUFFIX, ""), entry);
+            } else if (!ParallelJarMerger.isSignature(name)) {
+                resources.putIfAbsent(name, jar);
+            }
+        }
+    }
+
+    private static boolean isSignature(final String name) {
+        if (!name.startsWith("META-INF/") || name.indexOf('/', "META-INF/".length()) != -1) {
+            return false;
+        }
+        final String upper = name.toUpperCase(Locale.ROOT);
+        return upper.endsWith(".SF") || upper.endsWith(".RSA") || upper.endsWith(".DSA") || upper.endsWith(".EC");
+    }
+
+    private static byte[] read(final ZipFile jar, final ZipEntry entry) {
+        try (final InputStream is = jar.getInputStream(entry)) {
+            return is.readAllBytes();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static ZipEntry newEntry(final String name) {
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setTime(ParallelJarMerger.ZIPTIME);
+        return entry;
+    }
+
+    // Class processing //
+
+    private static ClassNode readNode(final byte[] data) {
+        final ClassNode node = new ClassNode(Opcodes.ASM9);
+        new ClassReader(data).accept(node, 0);
+        return node;
+    }
+
+    private static byte[] writeNode(final ClassNode node) {
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        node.accept(writer);
+        return writer.toByteArray();
+    }
+
+    static byte[] sidedClass(final byte[] data, final boolean client) {
+        final ClassNode node = ParallelJarMerger.readNode(data);
+        node.visibleAnnotations = ParallelJarMerger.withSide(node.visibleAnnotations, client);
+        return ParallelJarMerger.writeNode(node);
+    }
+
+    static byte[] mergeClass(final byte[] clientData, final byte[] serverData) {
+        final ClassNode client = ParallelJarMerger.readNode(clientData);
+        final ClassNode server = ParallelJarMerger.readNode(serverData);
+
+        client.fields = ParallelJarMerger.mergeMembers(
+            client.fields,
+            server.fields,
+            (a, b) -> a.name.equals(b.name) && a.desc.equals(b.desc),
+            (field, isClient) -> field.visibleAnnotations = ParallelJarMerger.withSide(field.visibleAnnotations, isClient)
+        );
+        client.methods = ParallelJarMerger.mergeMembers(
+            client.methods,
+            server.methods,
+            (a, b) -> a.name.equals(b.name) && a.desc.equals(b.desc),
+            (method, isClient) -> method.visibleAnnotations = ParallelJarMerger.withSide(method.visibleAnnotations, isClient)
+        );
+        ParallelJarMerger.mergeInnerClasses(client, server);
+        ParallelJarMerger.mergeInterfaces(client, server);
+
+        return ParallelJarMerger.writeNode(client);
+    }
+
+    /**
+     * Merge two ordered lists of members, marking members that only exist on
+     * one side.
+     *
+     * <p>This walks both lists in step the same way mergetool does, inserting
+     * members missing from one side at the position they appear in the other,
+     * so that merged classes keep mergetool's member order.</p>
+     */
+    private static <T> List<T> mergeMembers(
+        final List<T> clientMembers,
+        final List<T> serverMembers,
+        final BiPredicate<T, T> equal,
+        final SideMarker<T> marker
+    ) {
+        // A trailing null on both sides means running off the end of either list needs no special handling
+        final List<@Nullable T> client = new ArrayList<>(clientMembers);
+        final List<@Nullable T> server = new ArrayList<>(serverMembers);
+        client.add(null);
+        server.add(null);
+        final BiPredicate<@Nullable T, @Nullable T> same = (a, b) -> a == b || a != null && b != null && equal.test(a, b);
+
+        // Members on both sides, in client order
+        final List<@Nullable T> common = new ArrayList<>();
+        for (final @Nullable T clientMember : client) {
+            for (final @Nullable T serverMember : server) {
+                if (same.test(clientMember, serverMember)) {
+                    common.add(clientMember);
+                    break;
+                }
+            }
+        }
+
+        int commonIdx = 0;
+        for (int i = 0; i < client.size(); i++) {
+            final @Nullable T clientMember = client.get(i);
+            final @Nullable T serverMember = server.get(i);
+            final @Nullable T commonMember = common.get(commonIdx);
+
+            if (same.test(clientMember, serverMember)) {
+                if (!same.test(clientMember, commonMember)) {
+                    throw new IllegalStateException("Members present on both sides are in a different order");
+                }
+                commonIdx++;
+            } else if (clientMember != null && !same.test(clientMember, commonMember)) {
+                marker.mark(clientMember, true);
+                server.add(i, clientMember);
+            } else if (serverMember != null && !same.test(serverMember, commonMember)) {
+                marker.mark(serverMember, false);
+                client.add(i, serverMember);
+            } else {
+                throw new IllegalStateException("Members present on both sides are in a different order");
+            }
+        }
+
+        final List<T> result = new ArrayList<>(client.size() - 1);
+        for (int i = 0; i < client.size() - 1; i++) {
+            result.add(Objects.requireNonNull(client.get(i)));
+        }
+        return result;
+    }
+
+    private static void mergeInnerClasses(final ClassNode client, final ClassNode server) {
+        final Set<String> known = new HashSet<>();
+        for (final InnerClassNode inner : client.innerClasses) {
+            known.add(inner.name);
+        }
+        for (final InnerClassNode inner : server.innerClasses) {
+            if (known.add(inner.name)) {
+                client.innerClasses.add(inner);
+            }
+        }
+    }
+
+    private static void mergeInterfaces(final ClassNode client, final ClassNode server) {
+        final List<String> clientOnly = new ArrayList<>();
+        final List<String> serverOnly = new ArrayList<>();
+        for (final String itf : client.interfaces) {
+            if (!server.interfaces.contains(itf)) {
+                clientOnly.add(itf);
+            }
+        }
+        for (final String itf : server.interfaces) {
+            if (!client.interfaces.contains(itf)) {
+                serverOnly.add(itf);
+            }
+        }
+        if (clientOnly.isEmpty() && serverOnly.isEmpty()) {
+            return;
+        }
+
+        client.interfaces.addAll(serverOnly);
+        final List<AnnotationNode> values = new ArrayList<>();
+        for (final String itf : clientOnly) {
+            values.add(ParallelJarMerger.interfaceAnnotation(itf, true));
+        }
+        for (final String itf : serverOnly) {
+            values.add(ParallelJarMerger.interfaceAnnotation(itf, false));
+        }
+
+        final AnnotationNode onlyIns = new AnnotationNode(Type.getObjectType(ParallelJarMerger.ONLY_INS).getDescriptor());
+        onlyIns.values = new ArrayList<>(List.of("value", values));
+        if (client.visibleAnnotations == null) {
+            client.visibleAnnotations = new ArrayList<>();
+        }
+        client.visibleAnnotations.add(onlyIns);
+    }
+
+    private static AnnotationNode interfaceAnnotation(final String itf, final boolean client) {
+        final AnnotationNode node = ParallelJarMerger.sideAnnotation(client);
+        node.values.add("_interface");
+        node.values.add(Type.getObjectType(itf));
+        return node;
+    }
+
+    private static List<AnnotationNode> withSide(final @Nullable List<AnnotationNode> existing, final boolean client) {
+        final List<AnnotationNode> annotations = existing == null ? new ArrayList<>() : existing;
+        annotations.add(ParallelJarMerger.sideAnnotation(client));
+        return annotations;
+    }
+
+    private static AnnotationNode sideAnnotation(final boolean client) {
+        final AnnotationNode node = new AnnotationNode(Type.getObjectType(ParallelJarMerger.ONLY_IN).getDescriptor());
+        node.values = new ArrayList<>(List.of(
+            "value",
+            new String[] {Type.getObjectType(ParallelJarMerger.DIST).getDescriptor(), client ? ParallelJarMerger.CLIENT : ParallelJarMerger.SERVER}
+        ));
+        return node;
+    }
+
+    @FunctionalInterface
+    interface SideMarker<T> {
+        void mark(final T member, final boolean client);
+    }
+
+}
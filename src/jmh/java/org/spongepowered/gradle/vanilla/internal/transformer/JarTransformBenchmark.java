@@ -0,0 +1,132 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.transformer;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Compare the per-class cost of {@link JarTransformer} with the way classes
+ * were transformed before entry buffers were reused.
+ *
+ * <p>Each operation transforms one class from a real jar, passed as the
+ * {@code vanillagradle.benchmark.jar} system property, cycling through
+ * every class in the jar. Run with {@code -PjmhArgs="-prof gc"} and compare
+ * {@code gc.alloc.rate.norm} to see the bytes allocated per class.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JarTransformBenchmark {
+
+    // Stands in for a transformer that, like the access widener, wraps every visitor
+    private static final UnaryOperator<ClassVisitor> PASS_THROUGH = visitor -> new ClassVisitor(Opcodes.ASM9, visitor) {};
+
+    private final List<byte[]> classes = new ArrayList<>();
+    private JarTransformer transformer;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        final String value = System.getProperty("vanillagradle.benchmark.jar");
+        if (value == null) {
+            throw new IllegalStateException("The system property 'vanillagradle.benchmark.jar' must point to a jar to transform");
+        }
+        final Path jar = Paths.get(value);
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("The jar '" + jar + "' does not exist");
+        }
+
+        try (final ZipFile zip = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.getName().endsWith(".class")) {
+                    try (final InputStream is = zip.getInputStream(entry)) {
+                        this.classes.add(is.readAllBytes());
+                    }
+                }
+            }
+        }
+        this.transformer = JarTransformer.builder().add(JarTransformBenchmark.PASS_THROUGH).build();
+    }
+
+    private byte[] nextClass() {
+        final byte[] contents = this.classes.get(this.next);
+        this.next = (this.next + 1) % this.classes.size();
+        return contents;
+    }
+
+    @Benchmark
+    public byte[] unpooled() throws IOException {
+        final byte[] contents = this.nextClass();
+        final byte[] classBytes;
+        try (final InputStream in = new ByteArrayInputStream(contents)) {
+            classBytes = in.readAllBytes();
+        }
+        final ClassReader reader = new ClassReader(classBytes);
+        final ClassWriter writer = new ClassWriter(reader, 0);
+        reader.accept(JarTransformBenchmark.PASS_THROUGH.apply(writer), 0);
+        return writer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] pooled() throws IOException {
+        final byte[] contents = this.nextClass();
+        try (final InputStream in = new ByteArrayInputStream(contents)) {
+            return this.transformer.transformClass(EntryBuffer.local().read(in, -1));
+        }
+    }
+
+}
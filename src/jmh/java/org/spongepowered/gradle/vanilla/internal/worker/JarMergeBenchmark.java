@@ -0,0 +1,109 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.worker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare mergetool's {@link JarMerger} with the {@link ParallelJarMerger}.
+ *
+ * <p>Both mergers run on real jars, passed as the
+ * {@code vanillagradle.benchmark.client} and
+ * {@code vanillagradle.benchmark.server} system properties. That both
+ * mergers produce the same output is checked by {@code ParallelJarMergerTest}
+ * instead.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JarMergeBenchmark {
+
+    private Path client;
+    private Path server;
+    private Path workDir;
+
+    @Setup
+    public void setup() throws IOException {
+        this.client = JarMergeBenchmark.jar("vanillagradle.benchmark.client");
+        this.server = JarMergeBenchmark.jar("vanillagradle.benchmark.server");
+        this.workDir = Files.createTempDirectory("vanillagradle-merge-benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (final var files = Files.list(this.workDir)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(this.workDir);
+    }
+
+    @Benchmark
+    public Path mergetool() {
+        final Path output = this.workDir.resolve("mergetool.jar");
+        JarMerger.execute(this.client, this.server, output);
+        return output;
+    }
+
+    @Benchmark
+    public Path parallel() {
+        final Path output = this.workDir.resolve("native.jar");
+        ParallelJarMerger.execute(this.client, this.server, output);
+        return output;
+    }
+
+    private static Path jar(final String property) {
+        final String value = System.getProperty(property);
+        if (value == null) {
+            throw new IllegalStateException("The system property '" + property + "' must point to a jar to merge");
+        }
+        final Path path = Paths.get(value);
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalStateException("The jar '" + path + "' given by '" + property + "' does not exist");
+        }
+        return path;
+    }
+
+}
@@ -27,6 +27,7 @@
 import groovy.lang.Closure;
 import groovy.lang.DelegatesTo;
 import org.gradle.api.Action;
+import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Project;
 import org.gradle.api.provider.Property;
 import org.spongepowered.gradle.vanilla.repository.MinecraftPlatform;
@@ -87,6 +88,35 @@ public interface MinecraftExtension extends MinecraftRepositoryExtension {
      */
     void latestSnapshot();
 
+    /**
+     * Get whether Minecraft should be prepared in the background as soon as
+     * this project has been evaluated.
+     *
+     * <p>Preparation then overlaps with configuring the rest of the build,
+     * rather than starting when the {@code minecraft} configuration is first
+     * resolved. This resolves the tools used for preparation at the end of
+     * project evaluation.</p>
+     *
+     * <p>Preparation starts for every build, including ones that never
+     * resolve the {@code minecraft} configuration, such as {@code help} or
+     * {@code clean}, so this is best enabled only where most builds compile
+     * against Minecraft.</p>
+     *
+     * <p><b>Default:</b> {@code false}</p>
+     *
+     * @return the prepare eagerly property
+     */
+    Property<Boolean> prepareEagerly();
+
+    /**
+     * Set whether Minecraft should be prepared in the background as soon as
+     * this project has been evaluated.
+     *
+     * @param prepareEagerly whether to prepare eagerly
+     * @see #prepareEagerly()
+     */
+    void prepareEagerly(boolean prepareEagerly);
+
     /**
      * Get a property pointing to the Minecraft platform being prepared.
      *
@@ -137,4 +167,21 @@ public interface MinecraftExtension extends MinecraftRepositoryExtension {
      */
     void runs(Action<RunConfigurationContainer> run);
 
+    /**
+     * Get additional Minecraft versions this project targets.
+     *
+     * <p>Each target is provided through its own configuration, and all
+     * targets are prepared concurrently, sharing downloads and tools.</p>
+     *
+     * @return the targets container
+     */
+    NamedDomainObjectContainer<MinecraftTarget> getTargets();
+
+    /**
+     * Operate on the additional Minecraft versions this project targets.
+     *
+     * @param targets an action operating on the targets container
+     */
+    void targets(Action<NamedDomainObjectContainer<MinecraftTarget>> targets);
+
 }
@@ -0,0 +1,111 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla;
+
+import org.gradle.api.Named;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.jspecify.annotations.NonNull;
+import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.util.StringUtils;
+import org.spongepowered.gradle.vanilla.repository.MinecraftPlatform;
+
+import javax.inject.Inject;
+
+/**
+ * An additional Minecraft version a project is built or tested against.
+ *
+ * <p>Each target is provided through its own configuration, named after the
+ * target, alongside the project's main {@code minecraft} configuration. All
+ * targets of a project are prepared concurrently, the first time any of them
+ * is resolved.</p>
+ */
+public class MinecraftTarget implements Named {
+
+    private final String name;
+    private final Property<String> version;
+    private final Property<MinecraftPlatform> platform;
+
+    @Inject
+    public MinecraftTarget(final String name, final ObjectFactory objects) {
+        this.name = name;
+        this.version = objects.property(String.class);
+        this.platform = objects.property(MinecraftPlatform.class);
+    }
+
+    @Override
+    public @NonNull String getName() {
+        return this.name;
+    }
+
+    /**
+     * Get the version of Minecraft targeted.
+     *
+     * @return the version property
+     */
+    public Property<String> version() {
+        return this.version;
+    }
+
+    /**
+     * Set the version of Minecraft targeted.
+     *
+     * @param version the version
+     */
+    public void version(final String version) {
+        this.version.set(version);
+    }
+
+    /**
+     * Get the platform targeted.
+     *
+     * <p>This defaults to the platform of the {@code minecraft} extension.</p>
+     *
+     * @return the platform property
+     */
+    public Property<MinecraftPlatform> platform() {
+        return this.platform;
+    }
+
+    /**
+     * Set the platform targeted.
+     *
+     * @param platform the platform
+     */
+    public void platform(final MinecraftPlatform platform) {
+        this.platform.set(platform);
+    }
+
+    /**
+     * Get the name of the configuration providing this target.
+     *
+     * @return the configuration name, for example {@code minecraftLegacy}
+     *     for a target named {@code legacy}
+     */
+    public String getConfigurationName() {
+        return Constants.Configurations.MINECRAFT + StringUtils.capitalize(this.name);
+    }
+
+}
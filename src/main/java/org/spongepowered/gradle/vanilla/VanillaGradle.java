@@ -101,8 +101,9 @@ private void applyToProject(final Project project) {
             VanillaGradle.applyShadowConfiguration(project.getTasks(), provider, plugin);
         });
 
-        this.createDumpClass(project, minecraftConfig);
-        this.createDisplayMinecraftVersions(project.getPlugins().getPlugin(MinecraftRepositoryPlugin.class).service(), project.getTasks());
+        final Provider<MinecraftProviderService> providerService = project.getPlugins().getPlugin(MinecraftRepositoryPlugin.class).service();
+        this.createDumpClass(project, minecraftConfig, providerService);
+        this.createDisplayMinecraftVersions(providerService, project.getTasks());
         project.afterEvaluate(p -> {
             if (minecraft.targetVersion().isPresent()) {
                 if (minecraft.targetVersion().get().releaseTime().toInstant().isBefore(Constants.MIN_MC_VERSION_TIMESTAMP)) {
@@ -124,7 +125,7 @@ private void applyToProject(final Project project) {
     }
 
     private void createDumpClass(
-        final Project project, final NamedDomainObjectProvider<Configuration> minecraftConfig
+        final Project project, final NamedDomainObjectProvider<Configuration> minecraftConfig, final Provider<MinecraftProviderService> providerService
     ) {
         final NamedDomainObjectProvider<Configuration> asmUtilConfiguration = project.getConfigurations().register(Constants.Configurations.CLASS_DUMP, config -> {
             config.setCanBeConsumed(false);
@@ -138,6 +139,7 @@ private void createDumpClass(
             task.setGroup(Constants.TASK_GROUP);
             task.getMinecraftClasspath().from(minecraftConfig.get());
             task.getAsmUtilClasspath().from(asmUtilConfiguration);
+            task.getMinecraftProvider().set(providerService);
         });
     }
 
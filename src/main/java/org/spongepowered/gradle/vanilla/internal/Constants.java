@@ -27,6 +27,7 @@
 import org.gradle.api.artifacts.dsl.RepositoryHandler;
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
 import org.gradle.api.artifacts.repositories.MavenRepositoryContentDescriptor;
+import org.gradle.api.attributes.Attribute;
 import org.gradle.util.GradleVersion;
 import org.objectweb.asm.Opcodes;
 import org.spongepowered.gradle.vanilla.internal.model.GroupArtifactVersion;
@@ -46,7 +47,7 @@ public final class Constants {
 
     public static final String NAME = "VanillaGradle";
     public static final String VERSION = Constants.version();
-    public static final String USER_AGENT = String.format("%s/%s Gradle/%s", Constants.NAME, Constants.VERSION, GradleVersion.current().getVersion());
+    public static final String USER_AGENT = Constants.userAgent();
     public static final String MINECRAFT_RESOURCES_BASE = "https://resources.download.minecraft.net/";
     public static final String TASK_GROUP = "vanilla gradle";
     public static final int ASM_VERSION = Opcodes.ASM9;
@@ -56,9 +57,13 @@ public final class Constants {
 
     public static final class Directories {
         public static final String CACHES = "caches";
+        public static final String CLASS_INDEX = "class-index";
         public static final String ASSETS = "assets";
         public static final String JARS = "jars";
+        public static final String LIBRARIES = "libraries";
         public static final String MANIFESTS = "manifests";
+        public static final String MERGED_CLASSES = "merged-classes";
+        public static final String TOOLS = "tools"; // artifacts fetched by the standalone cache warmer, in maven layout
         public static final List<Path> SHARED_ASSET_LOCATIONS = Collections.unmodifiableList(Stream.of(
             ".local/share/PrismLauncher/assets/", // linux, PrismLauncher
             ".local/share/multimc/assets/", // linux, MultiMC
@@ -118,6 +123,7 @@ private WorkerDependencies() {
     public static final class Repositories {
         public static final String MINECRAFT = "https://libraries.minecraft.net/";
         public static final String MINECRAFT_FORGE = "https://maven.minecraftforge.net/";
+        public static final String MAVEN_CENTRAL = "https://repo.maven.apache.org/maven2/";
 
         private Repositories() {
         }
@@ -143,6 +149,14 @@ public static void applyTo(final RepositoryHandler repositories) {
         }
     }
 
+    public static final class Attributes {
+        // Marks configurations resolving only Minecraft, which may take its libraries from those extracted from server bundles
+        public static final Attribute<Boolean> MINECRAFT_LIBRARIES = Attribute.of("org.spongepowered.gradle.vanilla.minecraft-libraries", Boolean.class);
+
+        private Attributes() {
+        }
+    }
+
     public static final class Configurations {
         public static final String MINECRAFT = "minecraft";
         public static final String MINECRAFT_NATIVES = "minecraftNatives";
@@ -179,6 +193,15 @@ private Configurations() {
     private Constants() {
     }
 
+    private static String userAgent() {
+        try {
+            return String.format("%s/%s Gradle/%s", Constants.NAME, Constants.VERSION, GradleVersion.current().getVersion());
+        } catch (final LinkageError | RuntimeException ex) {
+            // running outside of Gradle, such as from the standalone cache warmer
+            return String.format("%s/%s", Constants.NAME, Constants.VERSION);
+        }
+    }
+
     private static String version() {
         final String rawVersion = Constants.class.getPackage().getImplementationVersion();
         return Objects.requireNonNullElse(rawVersion, "dev");
@@ -28,6 +28,7 @@
 import groovy.lang.DelegatesTo;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.Project;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
@@ -38,6 +39,7 @@
 import org.gradle.api.provider.ProviderFactory;
 import org.jspecify.annotations.Nullable;
 import org.spongepowered.gradle.vanilla.MinecraftExtension;
+import org.spongepowered.gradle.vanilla.MinecraftTarget;
 import org.spongepowered.gradle.vanilla.internal.model.VersionClassifier;
 import org.spongepowered.gradle.vanilla.internal.model.VersionDescriptor;
 import org.spongepowered.gradle.vanilla.internal.repository.MinecraftProviderService;
@@ -53,6 +55,7 @@
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
@@ -68,6 +71,9 @@ public class MinecraftExtensionImpl implements MinecraftExtension {
     private final Property<String> version;
     private final Property<MinecraftPlatform> platform;
     private final Property<Boolean> injectRepositories;
+    private final Property<Boolean> prepareEagerly;
+    private final Property<Long> cacheSizeQuota;
+    private final Property<Duration> cacheMaxAge;
     private final DirectoryProperty sharedCache;
     private final DirectoryProperty projectCache;
     private final ConfigurableFileCollection accessWideners;
@@ -79,6 +85,7 @@ public class MinecraftExtensionImpl implements MinecraftExtension {
     // Internals
     private final Project project;
     private final RunConfigurationContainer runConfigurations;
+    private final NamedDomainObjectContainer<MinecraftTarget> targets;
     private volatile @Nullable Set<ArtifactModifier> lazyModifiers;
 
     private final Provider<Boolean> needsPrepareWorkspace;
@@ -90,7 +97,10 @@ public MinecraftExtensionImpl(final Gradle gradle, final ObjectFactory factory,
         this.version = factory.property(String.class);
         this.platform = factory.property(MinecraftPlatform.class).convention(MinecraftPlatform.JOINED);
         this.injectRepositories = factory.property(Boolean.class).convention(project.provider(() -> !gradle.getPlugins().hasPlugin(MinecraftRepositoryPlugin.class))); // only inject if we aren't already in Settings
+        this.prepareEagerly = factory.property(Boolean.class).convention(false);
         this.accessWideners = factory.fileCollection();
+        this.cacheSizeQuota = factory.property(Long.class);
+        this.cacheMaxAge = factory.property(Duration.class);
 
         this.assetsDirectory = factory.directoryProperty();
         this.sharedCache = factory.directoryProperty().convention(providerService.flatMap(it -> it.getParameters().getSharedCache()));
@@ -133,6 +143,8 @@ public MinecraftExtensionImpl(final Gradle gradle, final ObjectFactory factory,
         this.targetVersion.finalizeValueOnRead();
 
         this.runConfigurations = factory.newInstance(RunConfigurationContainer.class, factory.domainObjectContainer(RunConfiguration.class), this);
+        this.targets = factory.domainObjectContainer(MinecraftTarget.class);
+        this.targets.configureEach(target -> target.platform().convention(this.platform));
         this.needsPrepareWorkspace = providers.provider(() -> !this.runConfigurations.isEmpty() && this.platform.get().includes(MinecraftSide.CLIENT));
     }
 
@@ -146,6 +158,26 @@ public void injectRepositories(final boolean injectRepositories) {
         this.injectRepositories.set(injectRepositories);
     }
 
+    @Override
+    public Property<Boolean> prepareEagerly() {
+        return this.prepareEagerly;
+    }
+
+    @Override
+    public void prepareEagerly(final boolean prepareEagerly) {
+        this.prepareEagerly.set(prepareEagerly);
+    }
+
+    @Override
+    public Property<Long> cacheSizeQuota() {
+        return this.cacheSizeQuota;
+    }
+
+    @Override
+    public Property<Duration> cacheMaxAge() {
+        return this.cacheMaxAge;
+    }
+
     @Override
     public String injectVersion(final String file) {
         Objects.requireNonNull(file, "file");
@@ -272,6 +304,16 @@ public void runs(final Action<RunConfigurationContainer> run) {
         Objects.requireNonNull(run, "run").execute(this.runConfigurations);
     }
 
+    @Override
+    public NamedDomainObjectContainer<MinecraftTarget> getTargets() {
+        return this.targets;
+    }
+
+    @Override
+    public void targets(final Action<NamedDomainObjectContainer<MinecraftTarget>> targets) {
+        Objects.requireNonNull(targets, "targets").execute(this.targets);
+    }
+
     public Provider<VersionDescriptor.Full> targetVersion() {
         return this.targetVersion;
     }
@@ -59,6 +59,7 @@
 import org.jetbrains.gradle.ext.RunConfigurationContainer;
 import org.jspecify.annotations.Nullable;
 import org.spongepowered.gradle.vanilla.MinecraftExtension;
+import org.spongepowered.gradle.vanilla.MinecraftTarget;
 import org.spongepowered.gradle.vanilla.internal.ide.EclipseIntegration;
 import org.spongepowered.gradle.vanilla.internal.ide.IdeaIntegration;
 import org.spongepowered.gradle.vanilla.internal.model.Library;
@@ -66,18 +67,27 @@
 import org.spongepowered.gradle.vanilla.internal.model.rule.RuleContext;
 import org.spongepowered.gradle.vanilla.internal.repository.MinecraftProviderService;
 import org.spongepowered.gradle.vanilla.internal.repository.MinecraftRepositoryPlugin;
+import org.spongepowered.gradle.vanilla.internal.repository.modifier.ArtifactModifier;
 import org.spongepowered.gradle.vanilla.internal.util.StringUtils;
 import org.spongepowered.gradle.vanilla.repository.MinecraftPlatform;
+import org.spongepowered.gradle.vanilla.repository.MinecraftResolver;
 import org.spongepowered.gradle.vanilla.repository.MinecraftRepositoryExtension;
 import org.spongepowered.gradle.vanilla.runs.ClientRunParameterTokens;
 import org.spongepowered.gradle.vanilla.task.DecompileJarTask;
 import org.spongepowered.gradle.vanilla.task.DownloadAssetsTask;
 import org.spongepowered.gradle.vanilla.task.GenEclipseRuns;
+import org.spongepowered.gradle.vanilla.task.PruneMinecraftCacheTask;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A plugin that creates the necessary tasks and configurations to provide the
@@ -87,6 +97,7 @@
 public class ProvideMinecraftPlugin implements Plugin<Project> {
 
     private static final Logger LOGGER = Logging.getLogger(ProvideMinecraftPlugin.class);
+    private static final String LATEST_PREFIX = "latest.";
 
     private Project project;
 
@@ -98,10 +109,17 @@ public void apply(final Project target) {
 
         final MinecraftExtensionImpl minecraft = (MinecraftExtensionImpl) target.getExtensions()
             .create(MinecraftExtension.class, "minecraft", MinecraftExtensionImpl.class, target, minecraftProvider);
+        if (!target.getGradle().getPlugins().hasPlugin(MinecraftRepositoryPlugin.class) && target == target.getRootProject()) {
+            // Otherwise, the cache is configured in settings or the root project
+            MinecraftRepositoryPlugin.applyCachePolicy(target.getGradle(), minecraft);
+        } else {
+            target.afterEvaluate(p -> MinecraftRepositoryPlugin.checkCachePolicy(p, minecraft));
+        }
 
         final NamedDomainObjectProvider<Configuration> minecraftConfig = target.getConfigurations().register(Constants.Configurations.MINECRAFT, config -> {
             config.setCanBeConsumed(false);
             config.setCanBeResolved(true);
+            config.getAttributes().attribute(Constants.Attributes.MINECRAFT_LIBRARIES, true);
 
             config.defaultDependencies(set -> {
                 minecraft.platform().disallowChanges();
@@ -111,6 +129,7 @@ public void apply(final Project target) {
 
             // TODO: Set appropriate attributes here
         });
+        this.createTargetConfigurations(minecraft, minecraftProvider);
 
         final TaskProvider<DownloadAssetsTask> assets = this.createAssetsDownload(minecraft, minecraftProvider, target.getTasks());
 
@@ -125,7 +144,7 @@ public void apply(final Project target) {
             task.setGroup(Constants.TASK_GROUP);
         });
 
-        this.createCleanTasks(target.getTasks(), minecraft);
+        this.createCleanTasks(target.getTasks(), minecraft, minecraftProvider);
 
         target.getPlugins().withType(JavaPlugin.class, $ -> {
             this.createRunTasks(minecraft, target.getTasks(), target.getExtensions().getByType(JavaToolchainService.class));
@@ -152,9 +171,100 @@ public void apply(final Project target) {
             });
 
             this.configureIDEIntegrations(p, minecraft);
+
+            if (p.getState().getFailure() == null && minecraft.prepareEagerly().get()) {
+                this.prepareEagerly(minecraft, minecraftProvider.get());
+            }
+        });
+    }
+
+    private void createTargetConfigurations(final MinecraftExtensionImpl minecraft, final Provider<MinecraftProviderService> minecraftProvider) {
+        // Every target is prepared up-front the first time any one of them is resolved, so versions are prepared side by side
+        final AtomicBoolean prepared = new AtomicBoolean();
+        minecraft.getTargets().all(mcTarget -> this.project.getConfigurations().register(mcTarget.getConfigurationName(), config -> {
+            config.setCanBeConsumed(false);
+            config.setCanBeResolved(true);
+            config.getAttributes().attribute(Constants.Attributes.MINECRAFT_LIBRARIES, true);
+
+            config.defaultDependencies(set -> {
+                mcTarget.platform().disallowChanges();
+                mcTarget.version().disallowChanges();
+                set.add(this.project.getDependencies().create(mcTarget.platform().get().moduleName() + ':' + mcTarget.version().get()));
+            });
+            config.getIncoming().beforeResolve($ -> {
+                if (prepared.compareAndSet(false, true)) {
+                    this.prepareTargets(minecraft, minecraftProvider.get());
+                }
+            });
+        }));
+    }
+
+    private void prepareTargets(final MinecraftExtensionImpl minecraft, final MinecraftProviderService minecraftProvider) {
+        final MinecraftResolver resolver = minecraftProvider.resolver(minecraftProvider.context(this.project, minecraft.modifiers()));
+        final List<CompletableFuture<?>> pending = this.provideAll(minecraft, resolver, false);
+        ProvideMinecraftPlugin.LOGGER.info("Preparing {} Minecraft targets for {}", pending.size(), this.project.getPath());
+        try {
+            resolver.processSyncTasksUntilComplete(CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])));
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException ex) {
+            // Resolving the failed target's configuration will report the failure in full
+            ProvideMinecraftPlugin.LOGGER.error("Failed to prepare Minecraft targets for {}:", this.project.getPath(), ex.getCause());
+        }
+    }
+
+    private void prepareEagerly(final MinecraftExtensionImpl minecraft, final MinecraftProviderService minecraftProvider) {
+        // Started now, the resolution callbacks will find these already complete, or at least well underway
+        final String path = this.project.getPath();
+        final List<CompletableFuture<?>> pending;
+        try {
+            pending = this.provideAll(minecraft, minecraftProvider.resolver(minecraftProvider.context(this.project, minecraft.modifiers())), true);
+        } catch (final RuntimeException ex) {
+            // Resolving the configuration will report the failure in full, and at the usual point in the build
+            ProvideMinecraftPlugin.LOGGER.info("Failed to start preparing Minecraft in the background for {}", path, ex);
+            return;
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).whenComplete(($, err) -> {
+            if (err != null) {
+                // Resolving the configuration will report the failure in full
+                ProvideMinecraftPlugin.LOGGER.info("Failed to prepare Minecraft in the background for {}", path, err);
+            }
         });
     }
 
+    /**
+     * Start preparing every statically known version of Minecraft declared in
+     * the extension.
+     *
+     * <p>This must be called on a thread that can resolve configurations of
+     * the project, since the tools used by the resolver are resolved
+     * immediately.</p>
+     *
+     * @param minecraft the extension
+     * @param resolver a resolver for this project
+     * @param includeMain whether to include the main version, as well as targets
+     * @return futures for each version being prepared
+     */
+    private List<CompletableFuture<?>> provideAll(
+        final MinecraftExtensionImpl minecraft,
+        final MinecraftResolver resolver,
+        final boolean includeMain
+    ) {
+        final Set<ArtifactModifier> modifiers = minecraft.modifiers();
+        final List<CompletableFuture<?>> pending = new ArrayList<>();
+        if (includeMain && minecraft.version().isPresent() && !minecraft.version().get().startsWith(ProvideMinecraftPlugin.LATEST_PREFIX)) {
+            pending.add(resolver.provide(minecraft.platform().get(), minecraft.version().get(), modifiers));
+        }
+        for (final MinecraftTarget mcTarget : minecraft.getTargets()) {
+            final String version = mcTarget.version().get();
+            if (version.startsWith(ProvideMinecraftPlugin.LATEST_PREFIX)) {
+                continue; // dynamic versions are only known once Gradle has resolved them
+            }
+            pending.add(resolver.provide(mcTarget.platform().get(), version, modifiers));
+        }
+        return pending;
+    }
+
     private void configureRepositories(final MinecraftRepositoryExtension extension, final RepositoryHandler handler) {
         if (extension.injectRepositories().get()) {
             Constants.Repositories.applyTo(handler);
@@ -303,7 +413,7 @@ private TaskProvider<DownloadAssetsTask> createAssetsDownload(final MinecraftExt
         return downloadAssets;
     }
 
-    private void createCleanTasks(final TaskContainer tasks, final MinecraftExtensionImpl minecraft) {
+    private void createCleanTasks(final TaskContainer tasks, final MinecraftExtensionImpl minecraft, final Provider<MinecraftProviderService> minecraftProvider) {
         // TODO: Update for new ivy repository style
         /*tasks.register("cleanMinecraft", Delete.class, task -> {
             task.setGroup(Constants.TASK_GROUP);
@@ -322,6 +432,13 @@ private void createCleanTasks(final TaskContainer tasks, final MinecraftExtensio
                 minecraft.projectCache()
             );
         });
+
+        tasks.register("pruneMinecraftCache", PruneMinecraftCacheTask.class, task -> {
+            task.getMinecraftProvider().set(minecraftProvider);
+            // Read from the service, which may have been configured in settings rather than this project
+            task.getSizeQuota().set(minecraftProvider.flatMap(service -> service.getParameters().getCacheSizeQuota()));
+            task.getMaxAge().set(minecraftProvider.flatMap(service -> service.getParameters().getCacheMaxAge()));
+        });
     }
 
     private void configureIDEIntegrations(
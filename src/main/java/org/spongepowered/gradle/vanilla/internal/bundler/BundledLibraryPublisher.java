@@ -0,0 +1,249 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.bundler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.cache.CacheAccess;
+import org.spongepowered.gradle.vanilla.internal.cache.DaemonCache;
+import org.spongepowered.gradle.vanilla.internal.cache.SeedCaches;
+import org.spongepowered.gradle.vanilla.internal.model.GroupArtifactVersion;
+import org.spongepowered.gradle.vanilla.internal.util.FileUtils;
+import org.spongepowered.gradle.vanilla.internal.util.IndexedZip;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Publishes the libraries embedded in a bundler jar into a local maven
+ * repository layout.
+ *
+ * <p>Every library is verified against the hash declared in the bundle
+ * before it is made visible in the repository. Published libraries are then
+ * listed in an index at the root of the repository, so the repository can be
+ * registered without walking its contents.</p>
+ */
+public final class BundledLibraryPublisher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BundledLibraryPublisher.class);
+    private static final String INDEX = "published-libraries.txt";
+    private static final String INDEX_CACHE_KIND = "bundled-library-index";
+
+    private final Path repository;
+    private final SeedCaches seeds;
+
+    /**
+     * Create a new publisher.
+     *
+     * @param repository the root of the maven repository to publish to
+     */
+    public BundledLibraryPublisher(final Path repository) {
+        this(repository, SeedCaches.NONE);
+    }
+
+    /**
+     * Create a new publisher that skips libraries already present in a seed
+     * cache.
+     *
+     * @param repository the root of the maven repository to publish to
+     * @param seeds the seed caches holding repositories of the same layout
+     */
+    public BundledLibraryPublisher(final Path repository, final SeedCaches seeds) {
+        this.repository = repository;
+        this.seeds = seeds;
+    }
+
+    /**
+     * Publish every library in a bundle that is not yet in the repository.
+     *
+     * <p>Libraries are extracted concurrently, and verified as they are
+     * written. The bundle must remain open until the returned future
+     * completes.</p>
+     *
+     * @param bundle the opened bundler jar
+     * @param metadata metadata read from the bundler jar
+     * @param executor the executor to extract libraries on
+     * @return a future providing the number of libraries that were newly
+     *     published, completing exceptionally if a library could not be
+     *     extracted, or did not match its expected hash
+     */
+    public CompletableFuture<Integer> publish(final IndexedZip bundle, final BundlerMetadata metadata, final Executor executor) {
+        final List<CompletableFuture<Boolean>> libraries = new ArrayList<>(metadata.libraries().size());
+        for (final BundleElement library : metadata.libraries()) {
+            libraries.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return this.publish(bundle, library);
+                } catch (final IOException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor));
+        }
+
+        return CompletableFuture.allOf(libraries.toArray(new CompletableFuture<?>[0])).thenApply($ -> {
+            try {
+                this.index(metadata.libraries());
+            } catch (final IOException ex) {
+                throw new CompletionException(ex);
+            }
+            int published = 0;
+            for (final CompletableFuture<Boolean> library : libraries) {
+                if (library.join()) {
+                    published++;
+                }
+            }
+            if (published > 0) {
+                BundledLibraryPublisher.LOGGER.info("Published {} bundled libraries from {} to {}", published, bundle.path(), this.repository);
+            }
+            return published;
+        });
+    }
+
+    private boolean publish(final IndexedZip bundle, final BundleElement library) throws IOException {
+        final Path target = this.repository.resolve(BundledLibraryPublisher.mavenPath(GroupArtifactVersion.parse(library.id())));
+        if (Files.isRegularFile(target)) {
+            CacheAccess.touchDirectory(target.getParent());
+            return false;
+        } else if (this.seeds.find(target) != null) {
+            return false;
+        }
+
+        final IndexedZip.Entry entry = bundle.entry(library.path());
+        if (entry == null) {
+            throw new IOException("Could not locate bundled library " + library.id() + " in " + bundle.path() + " at " + library.path());
+        }
+
+        FileUtils.createDirectoriesSymlinkSafe(target.getParent());
+        final Path tmp = FileUtils.temporaryPath(target.getParent(), "library");
+        try {
+            final MessageDigest digest = HashAlgorithm.SHA256.digest();
+            bundle.extract(entry, tmp, digest);
+            final String actualHash = HashAlgorithm.toHexString(digest.digest());
+            if (!actualHash.equalsIgnoreCase(library.sha256())) {
+                throw new IOException("Bundled library " + library.id() + " had hash " + actualHash + ", but " + library.sha256() + " was expected");
+            }
+            FileUtils.atomicMove(tmp, target);
+            return true;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Add the libraries of a bundle that are held in this repository to its
+     * index.
+     *
+     * <p>Every library of the bundle is listed, not only newly published
+     * ones, so an index that lost an entry to a concurrent update from
+     * another process is repaired the next time the bundle is published.</p>
+     */
+    private void index(final List<BundleElement> libraries) throws IOException {
+        final List<String> held = new ArrayList<>();
+        for (final BundleElement library : libraries) {
+            final GroupArtifactVersion id = GroupArtifactVersion.parse(library.id());
+            if (Files.isRegularFile(this.repository.resolve(BundledLibraryPublisher.mavenPath(id)))) {
+                held.add(new GroupArtifactVersion(id.group(), id.artifact(), id.version()).toString());
+            }
+        }
+        if (held.isEmpty()) {
+            return;
+        }
+
+        final Path index = this.repository.resolve(BundledLibraryPublisher.INDEX);
+        synchronized (BundledLibraryPublisher.class) {
+            final Set<String> lines = new TreeSet<>();
+            if (Files.isRegularFile(index)) {
+                lines.addAll(Files.readAllLines(index, StandardCharsets.UTF_8));
+            }
+            if (!lines.addAll(held)) {
+                return;
+            }
+            final Path tmp = FileUtils.temporaryPath(this.repository, "index");
+            try {
+                Files.write(tmp, lines, StandardCharsets.UTF_8);
+                FileUtils.atomicMove(tmp, index);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    /**
+     * List the libraries that have been published to a repository.
+     *
+     * <p>Libraries are read from the repository's index, which is only
+     * updated once every library of a bundle has been published. Classifiers
+     * are not distinguished, so each library is listed once per version.</p>
+     *
+     * @param repository the root of the maven repository
+     * @return the published libraries, without classifiers
+     * @throws IOException if the index could not be read
+     */
+    public static Set<GroupArtifactVersion> published(final Path repository) throws IOException {
+        final Path index = repository.resolve(BundledLibraryPublisher.INDEX);
+        if (!Files.isRegularFile(index)) {
+            return Set.of();
+        }
+        // Read once per daemon for every project registering the repository, until the index changes
+        return DaemonCache.file(BundledLibraryPublisher.INDEX_CACHE_KIND, index, file -> {
+            final Set<GroupArtifactVersion> published = new LinkedHashSet<>();
+            for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    published.add(GroupArtifactVersion.parse(line.trim()));
+                }
+            }
+            return Collections.unmodifiableSet(published);
+        });
+    }
+
+    /**
+     * Get the path of an artifact within a maven repository.
+     *
+     * @param library the library to locate
+     * @return a relative path
+     */
+    public static String mavenPath(final GroupArtifactVersion library) {
+        final String version = library.version();
+        if (version == null) {
+            throw new IllegalArgumentException("Library " + library + " has no version");
+        }
+        final String classifier = library.classifier();
+        final String fileName = library.artifact() + '-' + version + (classifier == null ? "" : '-' + classifier) + ".jar";
+        return library.group().replace('.', '/') + '/' + library.artifact() + '/' + version + '/' + fileName;
+    }
+
+}
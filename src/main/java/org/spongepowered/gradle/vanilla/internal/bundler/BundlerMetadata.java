@@ -25,15 +25,16 @@
 package org.spongepowered.gradle.vanilla.internal.bundler;
 
 import org.jspecify.annotations.Nullable;
+import org.spongepowered.gradle.vanilla.internal.util.IndexedZip;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.stream.Stream;
@@ -61,13 +62,13 @@ public record BundlerMetadata(FormatVersion version, List<BundleElement> librari
      * @throws IOException if an error occurs while trying to read from the jar
      */
     public static Optional<BundlerMetadata> read(final Path jar) throws IOException {
-        try (final JarFile file = new JarFile(jar.toFile())) {
+        try (final IndexedZip file = IndexedZip.open(jar)) {
             return BundlerMetadata.read(file);
         }
     }
 
     /**
-     * Attempt to read bundler metadata from a jar.
+     * Attempt to read bundler metadata from an already-opened jar.
      *
      * <p>If the jar is not a Minecraft bundler jar, an empty {@link Optional} will
      * be returned.</p>
@@ -76,8 +77,15 @@ public static Optional<BundlerMetadata> read(final Path jar) throws IOException
      * @return parsed metadata
      * @throws IOException if an error occurs while trying to read from the jar
      */
-    public static Optional<BundlerMetadata> read(final JarFile file) throws IOException {
-        final Manifest manifest = file.getManifest();
+    public static Optional<BundlerMetadata> read(final IndexedZip file) throws IOException {
+        final IndexedZip.Entry manifestEntry = file.entry(JarFile.MANIFEST_NAME);
+        if (manifestEntry == null) {
+            return Optional.empty();
+        }
+        final Manifest manifest;
+        try (final InputStream is = file.open(manifestEntry)) {
+            manifest = new Manifest(is);
+        }
         final String formatVersion = manifest.getMainAttributes().getValue(FormatVersion.MANIFEST_ATTRIBUTE);
         if (formatVersion == null) {
             return Optional.empty();
@@ -104,26 +112,26 @@ public static Optional<BundlerMetadata> read(final JarFile file) throws IOExcept
         }
 
         // main class
-        final JarEntry mainClassEntry = file.getJarEntry(BundlerMetadata.MAIN_CLASS);
+        final IndexedZip.Entry mainClassEntry = file.entry(BundlerMetadata.MAIN_CLASS);
         if (mainClassEntry == null) {
             throw new IllegalArgumentException("Missing main class entry in bundle");
         }
 
         final String mainClass;
-        try (final BufferedReader read = new BufferedReader(new InputStreamReader(file.getInputStream(mainClassEntry), StandardCharsets.UTF_8))) {
+        try (final BufferedReader read = new BufferedReader(new InputStreamReader(file.open(mainClassEntry), StandardCharsets.UTF_8))) {
             mainClass = read.readLine();
         }
 
         return Optional.of(new BundlerMetadata(parsed, libraries, serverJar, mainClass));
     }
 
-    private static Stream<BundleElement> readIndex(final JarFile jar, final String index) throws IOException {
-        final JarEntry entry = jar.getJarEntry("META-INF/" + index + ".list");
+    private static Stream<BundleElement> readIndex(final IndexedZip jar, final String index) throws IOException {
+        final IndexedZip.Entry entry = jar.entry("META-INF/" + index + ".list");
         if (entry == null) {
             return Stream.empty();
         }
 
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(jar.getInputStream(entry), StandardCharsets.UTF_8));
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(jar.open(entry), StandardCharsets.UTF_8));
         return reader.lines()
             .map(x -> x.split("\t"))
             .map(line -> new BundleElement(line[0], line[1], "META-INF/" + index + "/" + line[2]))
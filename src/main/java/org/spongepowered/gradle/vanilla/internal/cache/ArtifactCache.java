@@ -0,0 +1,177 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.Executor;
+
+/**
+ * A cache of prepared artifacts, shared between machines.
+ *
+ * <p>Artifacts are addressed by a key derived from every input that
+ * contributes to their contents, so an artifact stored under a key can be
+ * used in place of producing it locally.</p>
+ *
+ * <p>A cache is an optimisation only. Implementations should report
+ * failures to reach the backing store as misses, rather than failing the
+ * build.</p>
+ *
+ * <p>Each artifact is stored along with its SHA-256 checksum, and only
+ * fetched if it still matches it.</p>
+ */
+public interface ArtifactCache {
+
+    /**
+     * A cache that never holds anything.
+     */
+    ArtifactCache NONE = new ArtifactCache() {
+        @Override
+        public boolean fetch(final String key, final Path destination) {
+            return false;
+        }
+
+        @Override
+        public void store(final String key, final Path source) {
+        }
+    };
+
+    /**
+     * Create a cache for a location.
+     *
+     * @param location either an {@code http} or {@code https} URL, or an
+     *     absolute path to a directory
+     * @param push whether produced artifacts should be stored in the cache
+     * @param executor an executor for any asynchronous work
+     * @return a new cache
+     */
+    static ArtifactCache create(final String location, final boolean push, final Executor executor) {
+        if (location.startsWith("http://") || location.startsWith("https://")) {
+            try {
+                return new HttpArtifactCache(new URI(location), push, executor);
+            } catch (final URISyntaxException ex) {
+                throw new IllegalArgumentException("Invalid artifact cache URL " + location, ex);
+            }
+        } else {
+            return new DirectoryArtifactCache(Paths.get(location), push);
+        }
+    }
+
+    /**
+     * Compute a key for a set of inputs.
+     *
+     * @param inputs the inputs, in a stable order
+     * @return a key
+     */
+    static String key(final String... inputs) {
+        final MessageDigest digest = HashAlgorithm.SHA256.digest();
+        for (final String input : inputs) {
+            digest.update(input.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return HashAlgorithm.toHexString(digest.digest());
+    }
+
+    /**
+     * Compute a key identifying a tool by its class path.
+     *
+     * <p>Unlike local class path keys, this only considers the names and
+     * sizes of class path entries, so the same tool produces the same key on
+     * every machine.</p>
+     *
+     * @param classPath the tool's class path
+     * @return a key
+     */
+    static String toolKey(final URL[] classPath) {
+        final String[] entries = new String[classPath.length];
+        for (int i = 0; i < classPath.length; i++) {
+            String entry = classPath[i].toString();
+            if ("file".equals(classPath[i].getProtocol())) {
+                try {
+                    final File file = new File(classPath[i].toURI());
+                    entry = file.getName() + ':' + (file.isFile() ? file.length() : -1);
+                } catch (final URISyntaxException ex) {
+                    // use the full URL
+                }
+            }
+            entries[i] = entry;
+        }
+        return ArtifactCache.key(entries);
+    }
+
+    /**
+     * Compute the checksum an artifact is stored with.
+     *
+     * @param file the artifact
+     * @return the hex-encoded SHA-256 hash of the artifact
+     * @throws IOException if the artifact could not be read
+     */
+    static String checksum(final Path file) throws IOException {
+        final MessageDigest digest = HashAlgorithm.SHA256.digest();
+        try (final InputStream is = new DigestInputStream(Files.newInputStream(file), digest)) {
+            is.transferTo(OutputStream.nullOutputStream());
+        }
+        return HashAlgorithm.toHexString(digest.digest());
+    }
+
+    /**
+     * Attempt to fetch an artifact from the cache.
+     *
+     * <p>This may block on I/O, so should not be called from a thread
+     * intended for computation.</p>
+     *
+     * @param key the artifact key
+     * @param destination the file to write the artifact to
+     * @return whether the artifact was present, matched its checksum, and
+     *     was written to {@code destination}
+     */
+    boolean fetch(String key, Path destination);
+
+    /**
+     * Store an artifact in the cache, if this cache accepts new artifacts.
+     *
+     * <p>This may block on I/O, so should not be called from a thread
+     * intended for computation. The artifact must not change until this
+     * returns.</p>
+     *
+     * @param key the artifact key
+     * @param source the artifact to store
+     */
+    void store(String key, Path source);
+
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Records when entries in the VanillaGradle caches were last used.
+ *
+ * <p>Reading a file does not reliably update any timestamp on it, so
+ * directories are marked by a sidecar file whose modification time is the
+ * time of last access. Individual files are marked by their own
+ * modification time, which is only safe for files whose timestamp is not
+ * otherwise significant.</p>
+ *
+ * <p>Marks are only refreshed once they are older than the
+ * {@link #REFRESH_INTERVAL refresh interval}, to keep the cost of repeated
+ * access low.</p>
+ */
+public final class CacheAccess {
+
+    /**
+     * The name of the marker file within an accessed directory.
+     */
+    public static final String MARKER = ".vg-last-access";
+
+    /**
+     * The age a mark must reach before it is refreshed.
+     *
+     * <p>An entry still in use may appear to have been last used up to this
+     * long ago.</p>
+     */
+    public static final Duration REFRESH_INTERVAL = Duration.ofHours(1);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheAccess.class);
+
+    private CacheAccess() {
+    }
+
+    /**
+     * Mark a cache directory as accessed now.
+     *
+     * @param directory the directory
+     */
+    public static void touchDirectory(final Path directory) {
+        CacheAccess.touch(directory.resolve(CacheAccess.MARKER), true);
+    }
+
+    /**
+     * Mark a cached file as accessed now, by updating its modification time.
+     *
+     * @param file the file
+     */
+    public static void touchFile(final Path file) {
+        CacheAccess.touch(file, false);
+    }
+
+    private static void touch(final Path file, final boolean create) {
+        final Instant now = Instant.now();
+        try {
+            final FileTime modified = Files.getLastModifiedTime(file);
+            if (modified.toInstant().plus(CacheAccess.REFRESH_INTERVAL).isAfter(now)) {
+                return;
+            }
+            Files.setLastModifiedTime(file, FileTime.from(now));
+        } catch (final NoSuchFileException ex) {
+            if (create) {
+                try {
+                    Files.createFile(file);
+                } catch (final IOException ex2) {
+                    CacheAccess.LOGGER.debug("Failed to mark {} as accessed", file, ex2);
+                }
+            }
+        } catch (final IOException ex) {
+            // Access tracking is best-effort, the worst case is an early eviction
+            CacheAccess.LOGGER.debug("Failed to mark {} as accessed", file, ex);
+        }
+    }
+
+    /**
+     * Get when a cache directory was last accessed.
+     *
+     * <p>This is the latest of the directory's access marker and the
+     * modification time of any file directly within it.</p>
+     *
+     * @param directory the directory
+     * @return the time of last access
+     * @throws IOException if the directory could not be read
+     */
+    public static Instant lastAccess(final Path directory) throws IOException {
+        Instant latest = Files.getLastModifiedTime(directory).toInstant();
+        try (final DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (final Path child : children) {
+                final Instant modified = Files.getLastModifiedTime(child).toInstant();
+                if (modified.isAfter(latest)) {
+                    latest = modified;
+                }
+            }
+        }
+        return latest;
+    }
+
+}
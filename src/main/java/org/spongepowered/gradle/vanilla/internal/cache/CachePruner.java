@@ -0,0 +1,439 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.model.AssetIndex;
+import org.spongepowered.gradle.vanilla.internal.util.FileUtils;
+import org.spongepowered.gradle.vanilla.internal.util.GsonUtils;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Evicts least-recently-used entries from the VanillaGradle caches.
+ *
+ * <p>The units of eviction are:</p>
+ * <ul>
+ *     <li>a single version of a Minecraft artifact, with every variant and
+ *     associated artifact produced for it, in both the shared and project
+ *     caches</li>
+ *     <li>a version descriptor in the manifest cache, which is considered
+ *     used whenever any artifact for its version is</li>
+ *     <li>a single version of a library extracted from a server bundle</li>
+ *     <li>a single merged class</li>
+ *     <li>a single jar's class index, or the recorded hash of a jar</li>
+ *     <li>an asset index, along with every asset object that only it
+ *     refers to</li>
+ * </ul>
+ *
+ * <p>Entries are first evicted if they have not been used within the
+ * maximum age, then in least-recently-used order until the caches fit within
+ * the size quota. Nothing used since a given instant (usually the start of
+ * the current build) is ever evicted, nor is anything used within the
+ * {@link CacheAccess#REFRESH_INTERVAL access refresh interval}, as another
+ * build may still be using it without having refreshed its mark. Only the
+ * {@code assets} directory inside the shared cache is managed, so launcher
+ * asset directories are never touched.</p>
+ */
+public final class CachePruner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachePruner.class);
+    private static final String LOCK_FILE = ".prune.lock";
+    private static final String DELETING_SUFFIX = ".vg-deleting";
+
+    private final Path sharedCache;
+    private final Path projectCache;
+    private final long sizeQuota;
+    private final @Nullable Duration maxAge;
+    private final Instant protectedSince;
+
+    /**
+     * Create a new pruner.
+     *
+     * @param sharedCache the root of the shared cache
+     * @param projectCache the root of the project cache
+     * @param sizeQuota the maximum total size of cache entries in bytes, or
+     *     zero or less for no limit
+     * @param maxAge the maximum time since an entry was last used, or
+     *     {@code null} for no limit
+     * @param protectedSince entries used at or after this instant are never
+     *     evicted
+     */
+    public CachePruner(final Path sharedCache, final Path projectCache, final long sizeQuota, final @Nullable Duration maxAge, final Instant protectedSince) {
+        this.sharedCache = sharedCache;
+        this.projectCache = projectCache;
+        this.sizeQuota = sizeQuota;
+        this.maxAge = maxAge;
+        this.protectedSince = protectedSince;
+    }
+
+    /**
+     * Get whether a shared cache has not been pruned within an interval.
+     *
+     * @param sharedCache the root of the shared cache
+     * @param interval the minimum time between prunes
+     * @return whether pruning is due
+     */
+    public static boolean isDue(final Path sharedCache, final Duration interval) {
+        try {
+            return Files.getLastModifiedTime(sharedCache.resolve(CachePruner.LOCK_FILE)).toInstant().plus(interval).isBefore(Instant.now());
+        } catch (final IOException ex) {
+            return true; // never pruned
+        }
+    }
+
+    /**
+     * Evict entries from the caches.
+     *
+     * <p>If another process is already pruning the same shared cache, this
+     * returns an empty report without doing anything.</p>
+     *
+     * @param dryRun whether to only report on the entries that would be
+     *     evicted, without deleting anything
+     * @return a report of evicted entries
+     * @throws IOException if the caches could not be read
+     */
+    public Report prune(final boolean dryRun) throws IOException {
+        FileUtils.createDirectoriesSymlinkSafe(this.sharedCache);
+        final Path lockFile = this.sharedCache.resolve(CachePruner.LOCK_FILE);
+        try (final FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             final FileLock lock = lockChannel.tryLock()) {
+            if (lock == null) {
+                CachePruner.LOGGER.info("Another process is already pruning {}, skipping", this.sharedCache);
+                return new Report(List.of(), 0, 0);
+            }
+            final Report report = this.prune0(dryRun);
+            if (!dryRun && !Thread.currentThread().isInterrupted()) {
+                // The lock file doubles as a record of the last prune
+                Files.setLastModifiedTime(lockFile, FileTime.from(Instant.now()));
+            }
+            return report;
+        }
+    }
+
+    private Report prune0(final boolean dryRun) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        final Map<String, Instant> versionAccess = new HashMap<>();
+        for (final Path root : List.of(this.sharedCache, this.projectCache)) {
+            this.collectMinecraftVersions(root.resolve(Constants.Directories.JARS).resolve("net/minecraft"), entries, versionAccess);
+        }
+        this.collectVersionDescriptors(this.sharedCache.resolve(Constants.Directories.MANIFESTS).resolve("versions"), entries, versionAccess);
+        this.collectLibraries(this.sharedCache.resolve(Constants.Directories.LIBRARIES), entries);
+        this.collectLibraries(this.sharedCache.resolve(Constants.Directories.TOOLS), entries);
+        this.collectFiles(this.sharedCache.resolve(Constants.Directories.MERGED_CLASSES), "merged class", entries);
+        this.collectFiles(this.sharedCache.resolve(Constants.Directories.CLASS_INDEX), "class index", entries);
+        final Path assets = this.sharedCache.resolve(Constants.Directories.ASSETS);
+        final Map<Path, Set<Path>> indexObjects = this.collectAssetIndexes(assets, entries);
+
+        // Oldest first
+        entries.sort(Comparator.comparing(Entry::lastAccess));
+        final Instant now = Instant.now();
+        // An entry in use by another build may not have had its mark refreshed for up to an interval
+        final Instant recentlyUsed = now.minus(CacheAccess.REFRESH_INTERVAL);
+        final Instant protectedSince = recentlyUsed.isBefore(this.protectedSince) ? recentlyUsed : this.protectedSince;
+        final Instant expiry = this.maxAge == null ? Instant.MIN : now.minus(this.maxAge);
+        long total = 0;
+        for (final Entry entry : entries) {
+            total += entry.size();
+        }
+
+        final List<Entry> evicted = new ArrayList<>();
+        long evictedSize = 0;
+        for (final Entry entry : entries) {
+            if (!entry.lastAccess().isBefore(protectedSince)) {
+                break; // everything after this is newer still
+            }
+            if (entry.lastAccess().isBefore(expiry) || (this.sizeQuota > 0 && total - evictedSize > this.sizeQuota)) {
+                evicted.add(entry);
+                evictedSize += entry.size();
+            }
+        }
+
+        // Asset objects no longer referenced by any retained index
+        final Set<Path> retainedObjects = new HashSet<>();
+        final Set<Path> evictedPaths = new HashSet<>();
+        for (final Entry entry : evicted) {
+            evictedPaths.add(entry.path());
+        }
+        for (final Map.Entry<Path, Set<Path>> index : indexObjects.entrySet()) {
+            if (!evictedPaths.contains(index.getKey())) {
+                retainedObjects.addAll(index.getValue());
+            }
+        }
+        final Path objects = assets.resolve("objects");
+        if (Files.isDirectory(objects)) {
+            final List<Entry> orphans = new ArrayList<>();
+            Files.walkFileTree(objects, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    final Instant modified = attrs.lastModifiedTime().toInstant();
+                    if (!retainedObjects.contains(file) && modified.isBefore(protectedSince)) {
+                        orphans.add(new Entry("asset object", file, attrs.size(), modified));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            evicted.addAll(orphans);
+        }
+
+        long freed = 0;
+        for (final Entry entry : evicted) {
+            freed += entry.size();
+        }
+        if (!dryRun) {
+            for (final Entry entry : evicted) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Each entry is deleted on its own, so stopping between them leaves the caches consistent
+                    CachePruner.LOGGER.info("Pruning of {} was interrupted, the remaining entries will be evicted next time", this.sharedCache);
+                    break;
+                }
+                this.delete(entry, protectedSince);
+            }
+            this.removeInterruptedDeletions(this.sharedCache);
+            this.removeInterruptedDeletions(this.projectCache);
+            if (!evicted.isEmpty()) {
+                CachePruner.LOGGER.info("Evicted {} entries ({} bytes) from the VanillaGradle caches", evicted.size(), freed);
+            }
+        }
+        return new Report(List.copyOf(evicted), freed, total - evictedSize);
+    }
+
+    private void collectMinecraftVersions(final Path modules, final List<Entry> entries, final Map<String, Instant> versionAccess) throws IOException {
+        for (final Path module : CachePruner.children(modules)) {
+            for (final Path version : CachePruner.children(module)) {
+                if (version.getFileName().toString().endsWith(CachePruner.DELETING_SUFFIX)) {
+                    continue;
+                }
+                final Instant lastAccess = CacheAccess.lastAccess(version);
+                versionAccess.merge(version.getFileName().toString(), lastAccess, (a, b) -> a.isAfter(b) ? a : b);
+                entries.add(new Entry("minecraft", version, CachePruner.size(version), lastAccess));
+            }
+        }
+    }
+
+    private void collectVersionDescriptors(final Path versions, final List<Entry> entries, final Map<String, Instant> versionAccess) throws IOException {
+        for (final Path descriptor : CachePruner.children(versions)) {
+            final String fileName = descriptor.getFileName().toString();
+            if (!fileName.endsWith(".json")) {
+                continue;
+            }
+            Instant lastAccess = Files.getLastModifiedTime(descriptor).toInstant();
+            final Instant artifactAccess = versionAccess.get(fileName.substring(0, fileName.length() - ".json".length()));
+            if (artifactAccess != null && artifactAccess.isAfter(lastAccess)) {
+                lastAccess = artifactAccess;
+            }
+            entries.add(new Entry("version descriptor", descriptor, Files.size(descriptor), lastAccess));
+        }
+    }
+
+    private void collectLibraries(final Path repository, final List<Entry> entries) throws IOException {
+        if (!Files.isDirectory(repository)) {
+            return;
+        }
+        // A version directory is any directory that directly contains a jar
+        final Set<Path> versions = new HashSet<>();
+        try (final Stream<Path> files = Files.walk(repository)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                .forEach(file -> versions.add(file.getParent()));
+        }
+        for (final Path version : versions) {
+            entries.add(new Entry("library", version, CachePruner.size(version), CacheAccess.lastAccess(version)));
+        }
+    }
+
+    private void collectFiles(final Path root, final String kind, final List<Entry> entries) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                entries.add(new Entry(kind, file, attrs.size(), attrs.lastModifiedTime().toInstant()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private Map<Path, Set<Path>> collectAssetIndexes(final Path assets, final List<Entry> entries) throws IOException {
+        final Path objects = assets.resolve("objects");
+        final Map<Path, Set<Path>> indexObjects = new HashMap<>();
+        for (final Path index : CachePruner.children(assets.resolve("indexes"))) {
+            if (!index.getFileName().toString().endsWith(".json")) {
+                continue;
+            }
+            final AssetIndex parsed;
+            try (final Reader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+                parsed = GsonUtils.GSON.fromJson(reader, AssetIndex.class);
+            } catch (final RuntimeException ex) {
+                CachePruner.LOGGER.debug("Failed to read asset index {}, treating it as empty", index, ex);
+                indexObjects.put(index, Set.of());
+                continue;
+            }
+            final Set<Path> referenced = new HashSet<>();
+            for (final AssetIndex.Asset asset : parsed.objects().values()) {
+                referenced.add(objects.resolve(asset.fileName()));
+            }
+            indexObjects.put(index, referenced);
+        }
+
+        // Attribute to each index the size of objects only it refers to
+        final Map<Path, Integer> references = new HashMap<>();
+        for (final Set<Path> referenced : indexObjects.values()) {
+            for (final Path object : referenced) {
+                references.merge(object, 1, Integer::sum);
+            }
+        }
+        for (final Map.Entry<Path, Set<Path>> index : indexObjects.entrySet()) {
+            long size = Files.size(index.getKey());
+            for (final Path object : index.getValue()) {
+                if (references.get(object) == 1 && Files.isRegularFile(object)) {
+                    size += Files.size(object);
+                }
+            }
+            entries.add(new Entry("asset index", index.getKey(), size, Files.getLastModifiedTime(index.getKey()).toInstant()));
+        }
+        return indexObjects;
+    }
+
+    private void delete(final Entry entry, final Instant protectedSince) throws IOException {
+        final Path path = entry.path();
+        if (!Files.isDirectory(path)) {
+            // Check once more, in case another build has used this file while we were scanning
+            try {
+                if (!Files.getLastModifiedTime(path).toInstant().isBefore(protectedSince)) {
+                    return;
+                }
+            } catch (final NoSuchFileException ex) {
+                return;
+            }
+            Files.deleteIfExists(path);
+            // along with any hash recorded when it was downloaded
+            for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+                Files.deleteIfExists(SeedCaches.sidecar(path, algorithm));
+            }
+            return;
+        }
+
+        // Check once more, in case another build has started using this entry while we were scanning
+        if (!CacheAccess.lastAccess(path).isBefore(protectedSince)) {
+            return;
+        }
+        // Move out of the way first, so an interrupted deletion never leaves a partial entry in place
+        final Path deleting = path.resolveSibling(path.getFileName() + CachePruner.DELETING_SUFFIX);
+        try {
+            FileUtils.atomicMove(path, deleting);
+        } catch (final IOException ex) {
+            CachePruner.LOGGER.debug("Failed to move {} aside for deletion, it may be in use", path, ex);
+            return;
+        }
+        FileUtils.deleteRecursively(deleting);
+    }
+
+    private void removeInterruptedDeletions(final Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        final List<Path> leftovers = new ArrayList<>();
+        try (final Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> file.getFileName().toString().endsWith(CachePruner.DELETING_SUFFIX))
+                .forEach(leftovers::add);
+        }
+        for (final Path leftover : leftovers) {
+            FileUtils.deleteRecursively(leftover);
+        }
+    }
+
+    private static List<Path> children(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        final List<Path> children = new ArrayList<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(children::add);
+        }
+        return children;
+    }
+
+    private static long size(final Path directory) throws IOException {
+        final long[] size = {0};
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                size[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return size[0];
+    }
+
+    /**
+     * A single evictable cache entry.
+     *
+     * @param kind a description of the kind of entry
+     * @param path the file or directory holding the entry
+     * @param size the size of the entry in bytes
+     * @param lastAccess when the entry was last used
+     */
+    public record Entry(String kind, Path path, long size, Instant lastAccess) {
+    }
+
+    /**
+     * The result of a pruning operation.
+     *
+     * @param evicted the entries that were (or would be) evicted
+     * @param evictedSize the total size of evicted entries in bytes
+     * @param retainedSize the total size of retained entries in bytes
+     */
+    public record Report(List<Entry> evicted, long evictedSize, long retainedSize) {
+    }
+
+}
@@ -0,0 +1,535 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.util.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A compact index of the classes in a jar, their supertypes, and the
+ * members they declare.
+ *
+ * <p>The index is a single buffer of fixed-size records, sorted by class
+ * name, with every name stored once in a shared string pool. Written indexes
+ * are read back as that same buffer, so opening one only costs reading the
+ * file, and queries only read the records they need, without decoding the
+ * rest of the index. Indexes are read rather than memory-mapped, so the
+ * file can be replaced or deleted while an index is open, even on
+ * Windows.</p>
+ *
+ * <p>All names are internal names, as used in class files.</p>
+ */
+public final class ClassHierarchyIndex {
+
+    /**
+     * The access flags returned for a class or member that is not in the
+     * index.
+     */
+    public static final int ABSENT = -1;
+
+    private static final String FILE_SUFFIX = ".hierarchy";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSIONED_PREFIX = "META-INF/versions/";
+    private static final int MAGIC = 0x56474849; // VGHI
+    private static final int VERSION = 1;
+    private static final int READER_FLAGS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+    // header: magic, version, jar size, jar modification time, class count, then the offsets of each table
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 4 + 4;
+    private static final int JAR_SIZE = 8;
+    private static final int JAR_MODIFIED = 16;
+    private static final int CLASS_COUNT = 24;
+    private static final int INTERFACES_OFFSET = 28;
+    private static final int MEMBERS_OFFSET = 32;
+    private static final int STRINGS_OFFSET = 36;
+    // class record: name, access, super name, first interface, interface count, first member, member count
+    private static final int CLASS_SIZE = 7 * 4;
+    // member record: name, descriptor, access
+    private static final int MEMBER_SIZE = 3 * 4;
+    private static final int NONE = -1;
+
+    private final ByteBuffer buffer;
+    private final int classCount;
+    private final int interfaces;
+    private final int members;
+
+    private ClassHierarchyIndex(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.classCount = buffer.getInt(ClassHierarchyIndex.CLASS_COUNT);
+        this.interfaces = buffer.getInt(ClassHierarchyIndex.INTERFACES_OFFSET);
+        this.members = buffer.getInt(ClassHierarchyIndex.MEMBERS_OFFSET);
+    }
+
+    /**
+     * Get the file an index of a jar is written to.
+     *
+     * @param jar the indexed jar
+     * @return the index file, alongside the jar
+     */
+    public static Path indexFile(final Path jar) {
+        return jar.resolveSibling(jar.getFileName() + ClassHierarchyIndex.FILE_SUFFIX);
+    }
+
+    /**
+     * Open the index written for a jar, if it is up to date.
+     *
+     * @param jar the indexed jar
+     * @return the index, or {@code null} if the jar has no index, or it was
+     *     written for a different version of the jar
+     * @throws IOException if the jar could not be read
+     */
+    public static @Nullable ClassHierarchyIndex open(final Path jar) throws IOException {
+        final Path file = ClassHierarchyIndex.indexFile(jar);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        final ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (contents.limit() < ClassHierarchyIndex.HEADER_SIZE) {
+            return null;
+        }
+        final BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        if (contents.getInt(0) != ClassHierarchyIndex.MAGIC
+            || contents.getInt(4) != ClassHierarchyIndex.VERSION
+            || contents.getLong(ClassHierarchyIndex.JAR_SIZE) != attributes.size()
+            || contents.getLong(ClassHierarchyIndex.JAR_MODIFIED) != attributes.lastModifiedTime().toMillis()) {
+            return null;
+        }
+        return new ClassHierarchyIndex(contents);
+    }
+
+    /**
+     * Index the classes in a jar.
+     *
+     * <p>Classes are parsed in parallel, skipping method bodies.</p>
+     *
+     * @param jar the jar to index
+     * @param executor the executor to parse classes on
+     * @return an index held in memory
+     * @throws IOException if the jar could not be read
+     */
+    public static ClassHierarchyIndex build(final Path jar, final Executor executor) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        final List<ClassEntry> classes = new ArrayList<>();
+        try (final ZipFile zip = new ZipFile(jar.toFile())) {
+            final List<CompletableFuture<ClassEntry>> parsed = new ArrayList<>();
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(ClassHierarchyIndex.CLASS_SUFFIX) || entry.getName().startsWith(ClassHierarchyIndex.VERSIONED_PREFIX)) {
+                    continue;
+                }
+                parsed.add(CompletableFuture.supplyAsync(() -> {
+                    try (final InputStream is = zip.getInputStream(entry)) {
+                        return ClassEntry.read(is.readAllBytes());
+                    } catch (final IOException ex) {
+                        throw new CompletionException(ex);
+                    }
+                }, executor));
+            }
+
+            try {
+                for (final CompletableFuture<ClassEntry> future : parsed) {
+                    classes.add(future.join());
+                }
+            } catch (final CompletionException ex) {
+                if (ex.getCause() instanceof final IOException io) {
+                    throw io;
+                }
+                throw ex;
+            }
+        }
+        return ClassHierarchyIndex.serialize(classes, attributes);
+    }
+
+    /**
+     * Write this index alongside the jar it indexes.
+     *
+     * @param jar the indexed jar
+     * @throws IOException if the index could not be written
+     */
+    public void write(final Path jar) throws IOException {
+        final Path file = ClassHierarchyIndex.indexFile(jar);
+        final Path tmp = FileUtils.temporaryPath(file.getParent(), "hierarchy");
+        try {
+            try (final FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                final ByteBuffer contents = this.buffer.duplicate().clear();
+                while (contents.hasRemaining()) {
+                    channel.write(contents);
+                }
+            }
+            FileUtils.atomicMove(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Get the number of classes in this index.
+     *
+     * @return the class count
+     */
+    public int classCount() {
+        return this.classCount;
+    }
+
+    /**
+     * Get the access flags of a class.
+     *
+     * @param name the class name
+     * @return the access flags, or {@link #ABSENT} if the class is not in
+     *     this index
+     */
+    public int classAccess(final String name) {
+        final int record = this.find(name);
+        return record == ClassHierarchyIndex.NONE ? ClassHierarchyIndex.ABSENT : this.buffer.getInt(record + 4);
+    }
+
+    /**
+     * Get the direct superclass of a class.
+     *
+     * @param name the class name
+     * @return the superclass, or {@code null} if the class is not in this
+     *     index or has no superclass
+     */
+    public @Nullable String superName(final String name) {
+        final int record = this.find(name);
+        if (record == ClassHierarchyIndex.NONE) {
+            return null;
+        }
+        final int superName = this.buffer.getInt(record + 8);
+        return superName == ClassHierarchyIndex.NONE ? null : this.string(superName);
+    }
+
+    /**
+     * Get the interfaces directly implemented by a class.
+     *
+     * @param name the class name
+     * @return the interfaces, empty if the class is not in this index
+     */
+    public List<String> interfaces(final String name) {
+        final int record = this.find(name);
+        if (record == ClassHierarchyIndex.NONE) {
+            return List.of();
+        }
+        final int first = this.buffer.getInt(record + 12);
+        final int count = this.buffer.getInt(record + 16);
+        final String[] interfaces = new String[count];
+        for (int i = 0; i < count; i++) {
+            interfaces[i] = this.string(this.buffer.getInt(this.interfaces + (first + i) * 4));
+        }
+        return List.of(interfaces);
+    }
+
+    /**
+     * Get the access flags of a field or method declared by a class.
+     *
+     * <p>Inherited members are not considered.</p>
+     *
+     * @param owner the declaring class
+     * @param name the member name
+     * @param descriptor the member descriptor
+     * @return the access flags, or {@link #ABSENT} if the class is not in
+     *     this index or does not declare the member
+     */
+    public int memberAccess(final String owner, final String name, final String descriptor) {
+        final int record = this.find(owner);
+        if (record == ClassHierarchyIndex.NONE) {
+            return ClassHierarchyIndex.ABSENT;
+        }
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final byte[] descriptorBytes = descriptor.getBytes(StandardCharsets.UTF_8);
+        final int first = this.buffer.getInt(record + 20);
+        final int count = this.buffer.getInt(record + 24);
+        for (int i = 0; i < count; i++) {
+            final int member = this.members + (first + i) * ClassHierarchyIndex.MEMBER_SIZE;
+            if (this.compare(this.buffer.getInt(member), nameBytes) == 0 && this.compare(this.buffer.getInt(member + 4), descriptorBytes) == 0) {
+                return this.buffer.getInt(member + 8);
+            }
+        }
+        return ClassHierarchyIndex.ABSENT;
+    }
+
+    /**
+     * Find the classes in this index that directly extend or implement a
+     * type.
+     *
+     * <p>The type itself does not have to be in this index.</p>
+     *
+     * @param name the supertype name
+     * @return the names of direct subtypes, in name order
+     */
+    public List<String> directSubtypes(final String name) {
+        final byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        // Every name is pooled once, so a match is known by its offset after the first comparison
+        final int indexed = this.find(name);
+        int known = indexed == ClassHierarchyIndex.NONE ? ClassHierarchyIndex.NONE : this.buffer.getInt(indexed);
+        final List<String> subtypes = new ArrayList<>();
+        for (int i = 0; i < this.classCount; i++) {
+            final int record = ClassHierarchyIndex.HEADER_SIZE + i * ClassHierarchyIndex.CLASS_SIZE;
+            boolean matches = false;
+            final int superName = this.buffer.getInt(record + 8);
+            if (superName != ClassHierarchyIndex.NONE) {
+                if (known == ClassHierarchyIndex.NONE && this.compare(superName, key) == 0) {
+                    known = superName;
+                }
+                matches = superName == known;
+            }
+            final int first = this.buffer.getInt(record + 12);
+            final int count = this.buffer.getInt(record + 16);
+            for (int j = 0; j < count && !matches; j++) {
+                final int iface = this.buffer.getInt(this.interfaces + (first + j) * 4);
+                if (known == ClassHierarchyIndex.NONE && this.compare(iface, key) == 0) {
+                    known = iface;
+                }
+                matches = iface == known;
+            }
+            if (matches) {
+                subtypes.add(this.string(this.buffer.getInt(record)));
+            }
+        }
+        return subtypes;
+    }
+
+    /**
+     * Find the record of a class by binary search.
+     */
+    private int find(final String name) {
+        final byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = this.classCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int record = ClassHierarchyIndex.HEADER_SIZE + mid * ClassHierarchyIndex.CLASS_SIZE;
+            final int comparison = this.compare(this.buffer.getInt(record), key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return record;
+            }
+        }
+        return ClassHierarchyIndex.NONE;
+    }
+
+    /**
+     * Compare a pooled string to an encoded key, in unsigned byte order.
+     */
+    private int compare(final int string, final byte[] key) {
+        final int length = Short.toUnsignedInt(this.buffer.getShort(string));
+        final int shared = Math.min(length, key.length);
+        for (int i = 0; i < shared; i++) {
+            final int comparison = Byte.compareUnsigned(this.buffer.get(string + 2 + i), key[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private String string(final int string) {
+        final byte[] bytes = new byte[Short.toUnsignedInt(this.buffer.getShort(string))];
+        this.buffer.get(string + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ClassHierarchyIndex serialize(final List<ClassEntry> classes, final BasicFileAttributes jar) {
+        // Unsigned byte order of UTF-8 is code point order, so lookups can compare encoded names directly
+        final Map<String, byte[]> encoded = new HashMap<>();
+        for (final ClassEntry entry : classes) {
+            encoded.put(entry.name(), entry.name().getBytes(StandardCharsets.UTF_8));
+        }
+        classes.sort((a, b) -> Arrays.compareUnsigned(encoded.get(a.name()), encoded.get(b.name())));
+
+        int interfaceCount = 0;
+        int memberCount = 0;
+        for (final ClassEntry entry : classes) {
+            interfaceCount += entry.interfaces().length;
+            memberCount += entry.members().size();
+        }
+        final int interfaces = ClassHierarchyIndex.HEADER_SIZE + classes.size() * ClassHierarchyIndex.CLASS_SIZE;
+        final int members = interfaces + interfaceCount * 4;
+        final int strings = members + memberCount * ClassHierarchyIndex.MEMBER_SIZE;
+
+        final StringPool pool = new StringPool(strings, encoded);
+        for (final ClassEntry entry : classes) {
+            pool.add(entry.name());
+            if (entry.superName() != null) {
+                pool.add(entry.superName());
+            }
+            for (final String iface : entry.interfaces()) {
+                pool.add(iface);
+            }
+            for (final MemberEntry member : entry.members()) {
+                pool.add(member.name());
+                pool.add(member.descriptor());
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(pool.end);
+        buffer.putInt(ClassHierarchyIndex.MAGIC)
+            .putInt(ClassHierarchyIndex.VERSION)
+            .putLong(jar.size())
+            .putLong(jar.lastModifiedTime().toMillis())
+            .putInt(classes.size())
+            .putInt(interfaces)
+            .putInt(members)
+            .putInt(strings);
+        int nextInterface = 0;
+        int nextMember = 0;
+        for (final ClassEntry entry : classes) {
+            buffer.putInt(pool.offset(entry.name()))
+                .putInt(entry.access())
+                .putInt(entry.superName() == null ? ClassHierarchyIndex.NONE : pool.offset(entry.superName()))
+                .putInt(nextInterface)
+                .putInt(entry.interfaces().length)
+                .putInt(nextMember)
+                .putInt(entry.members().size());
+            nextInterface += entry.interfaces().length;
+            nextMember += entry.members().size();
+        }
+        for (final ClassEntry entry : classes) {
+            for (final String iface : entry.interfaces()) {
+                buffer.putInt(pool.offset(iface));
+            }
+        }
+        for (final ClassEntry entry : classes) {
+            for (final MemberEntry member : entry.members()) {
+                buffer.putInt(pool.offset(member.name()))
+                    .putInt(pool.offset(member.descriptor()))
+                    .putInt(member.access());
+            }
+        }
+        for (final byte[] string : pool.contents) {
+            buffer.putShort((short) string.length).put(string);
+        }
+        return new ClassHierarchyIndex(buffer.flip());
+    }
+
+    /**
+     * The string pool of an index being written, storing each distinct
+     * name once.
+     */
+    private static final class StringPool {
+
+        final Map<String, Integer> offsets = new HashMap<>();
+        final List<byte[]> contents = new ArrayList<>();
+        final Map<String, byte[]> encoded;
+        int end;
+
+        StringPool(final int start, final Map<String, byte[]> encoded) {
+            this.end = start;
+            this.encoded = encoded;
+        }
+
+        void add(final String value) {
+            if (this.offsets.containsKey(value)) {
+                return;
+            }
+            final byte[] bytes = this.encoded.containsKey(value) ? this.encoded.get(value) : value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("A name of " + bytes.length + " bytes is too long to index");
+            }
+            this.offsets.put(value, this.end);
+            this.contents.add(bytes);
+            this.end += 2 + bytes.length;
+        }
+
+        int offset(final String value) {
+            return this.offsets.get(value);
+        }
+
+    }
+
+    private record MemberEntry(String name, String descriptor, int access) {
+    }
+
+    private record ClassEntry(String name, int access, @Nullable String superName, String[] interfaces, List<MemberEntry> members) {
+
+        static ClassEntry read(final byte[] contents) {
+            final List<MemberEntry> members = new ArrayList<>();
+            final ClassEntry[] header = new ClassEntry[1];
+            new ClassReader(contents).accept(new ClassVisitor(Constants.ASM_VERSION) {
+                @Override
+                public void visit(
+                    final int version,
+                    final int access,
+                    final String name,
+                    final @Nullable String signature,
+                    final @Nullable String superName,
+                    final String @Nullable [] interfaces
+                ) {
+                    header[0] = new ClassEntry(name, access, superName, interfaces == null ? new String[0] : interfaces, members);
+                }
+
+                @Override
+                public @Nullable FieldVisitor visitField(
+                    final int access, final String name, final String descriptor, final @Nullable String signature, final @Nullable Object value
+                ) {
+                    members.add(new MemberEntry(name, descriptor, access));
+                    return null;
+                }
+
+                @Override
+                public @Nullable MethodVisitor visitMethod(
+                    final int access, final String name, final String descriptor, final @Nullable String signature, final String @Nullable [] exceptions
+                ) {
+                    members.add(new MemberEntry(name, descriptor, access));
+                    return null;
+                }
+            }, ClassHierarchyIndex.READER_FLAGS);
+            return header[0];
+        }
+
+    }
+
+}
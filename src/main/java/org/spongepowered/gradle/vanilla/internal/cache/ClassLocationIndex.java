@@ -0,0 +1,196 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.util.FileUtils;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A persistent index of the classes contained in jars.
+ *
+ * <p>Indexes are keyed by the hash of the jar they describe, so identical
+ * jars in different locations share an index, and an index can never
+ * describe an out-of-date jar. The hash of a jar at a given path is
+ * remembered along with the jar's size and modification time, so a jar is
+ * only read in full when it is first indexed or after it has changed.</p>
+ *
+ * <p>Finding a class in a classpath then only needs a set lookup for each
+ * jar, rather than opening every jar until one contains the class.</p>
+ */
+public final class ClassLocationIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassLocationIndex.class);
+    private static final String CACHE_KIND = "class-index";
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String INDEX_SUFFIX = ".classes";
+    private static final String PATHS = "paths";
+
+    private final Path root;
+
+    /**
+     * Create a new index.
+     *
+     * @param root the directory to store indexes in
+     */
+    public ClassLocationIndex(final Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Index a jar, if it is not already indexed.
+     *
+     * @param jar the jar to index
+     * @throws IOException if the jar could not be read, or its index written
+     */
+    public void index(final Path jar) throws IOException {
+        this.classes(jar);
+    }
+
+    /**
+     * Find the first element of a classpath that contains a class.
+     *
+     * <p>Directories are checked directly, and jars through their index.
+     * Anything else on the classpath is skipped.</p>
+     *
+     * @param classpath the classpath to search, in order
+     * @param binaryName the binary name of the class
+     * @return the location of the class, or {@code null} if no element of
+     *     the classpath contains it
+     * @throws IOException if any jar could not be indexed
+     */
+    public @Nullable Location locate(final Iterable<Path> classpath, final String binaryName) throws IOException {
+        final String entry = binaryName.replace('.', '/') + ClassLocationIndex.CLASS_SUFFIX;
+        for (final Path element : classpath) {
+            if (Files.isDirectory(element)) {
+                if (Files.isRegularFile(element.resolve(entry))) {
+                    return new Location(element, entry);
+                }
+            } else if (element.getFileName().toString().endsWith(".jar") && Files.isRegularFile(element)) {
+                if (this.classes(element).contains(entry)) {
+                    return new Location(element, entry);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Set<String> classes(final Path jar) throws IOException {
+        return DaemonCache.file(ClassLocationIndex.CACHE_KIND, jar, this::load);
+    }
+
+    private Set<String> load(final Path jar) throws IOException {
+        final String hash = this.hash(jar);
+        final Path index = this.root.resolve(hash.substring(0, 2)).resolve(hash + ClassLocationIndex.INDEX_SUFFIX);
+        if (Files.isRegularFile(index)) {
+            try {
+                final Set<String> classes = Set.copyOf(Files.readAllLines(index, StandardCharsets.UTF_8));
+                CacheAccess.touchFile(index);
+                return classes;
+            } catch (final IOException ex) {
+                ClassLocationIndex.LOGGER.debug("Failed to read class index {}, rebuilding it", index, ex);
+            }
+        }
+
+        final List<String> classes = new ArrayList<>();
+        try (final ZipFile zip = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().endsWith(ClassLocationIndex.CLASS_SUFFIX)) {
+                    classes.add(entry.getName());
+                }
+            }
+        }
+        Collections.sort(classes);
+        ClassLocationIndex.write(index, String.join("\n", classes));
+        return Collections.unmodifiableSet(new HashSet<>(classes));
+    }
+
+    /**
+     * Get the hash of a jar, only reading the jar if it changed since its
+     * hash was last recorded.
+     */
+    private String hash(final Path jar) throws IOException {
+        final String pathKey = HashAlgorithm.toHexString(HashAlgorithm.SHA1.digest().digest(jar.toString().getBytes(StandardCharsets.UTF_8)));
+        final Path record = this.root.resolve(ClassLocationIndex.PATHS).resolve(pathKey);
+        final BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        final String fingerprint = attributes.size() + " " + attributes.lastModifiedTime().toMillis() + " ";
+        if (Files.isRegularFile(record)) {
+            final String recorded = Files.readString(record, StandardCharsets.UTF_8);
+            if (recorded.startsWith(fingerprint)) {
+                CacheAccess.touchFile(record);
+                return recorded.substring(fingerprint.length());
+            }
+        }
+
+        final MessageDigest digest = HashAlgorithm.SHA1.digest();
+        try (final InputStream is = Files.newInputStream(jar)) {
+            final byte[] buf = new byte[65536];
+            int read;
+            while ((read = is.read(buf)) != -1) {
+                digest.update(buf, 0, read);
+            }
+        }
+        final String hash = HashAlgorithm.toHexString(digest.digest());
+        ClassLocationIndex.write(record, fingerprint + hash);
+        return hash;
+    }
+
+    private static void write(final Path file, final String contents) throws IOException {
+        FileUtils.createDirectoriesSymlinkSafe(file.getParent());
+        final Path tmp = FileUtils.temporaryPath(file.getParent(), "class-index");
+        Files.writeString(tmp, contents, StandardCharsets.UTF_8);
+        FileUtils.atomicMove(tmp, file);
+    }
+
+    /**
+     * The location of a class.
+     *
+     * @param container the jar or directory containing the class
+     * @param entry the path of the class file within its container
+     */
+    public record Location(Path container, String entry) {
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * A cache of parsed state that outlives a single build, for as long as the
+ * Gradle daemon does.
+ *
+ * <p>Build services are discarded at the end of every build, so anything
+ * they parse would otherwise be parsed again by the next build in the same
+ * daemon. Entries here are only softly referenced, so they are released
+ * when the daemon runs short of memory.</p>
+ *
+ * <p>Entries are either derived from a file, in which case they are
+ * invalidated when the file's size or modification time changes, or when a
+ * change to the file is reported by a {@link WatchService}; or they are
+ * derived from content with a known hash, in which case they never go
+ * stale.</p>
+ */
+public final class DaemonCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonCache.class);
+
+    private static final ConcurrentMap<Key, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Object> CLEARED = new ReferenceQueue<>();
+    private static final ConcurrentMap<Path, Boolean> WATCHED_DIRECTORIES = new ConcurrentHashMap<>();
+    private static volatile @Nullable WatchService watcher;
+    private static volatile boolean watcherUnavailable;
+
+    private DaemonCache() {
+    }
+
+    /**
+     * A function deriving a value from a file.
+     *
+     * @param <T> the value type
+     */
+    @FunctionalInterface
+    public interface FileLoader<T> {
+
+        T load(final Path file) throws IOException;
+
+    }
+
+    /**
+     * Get a value derived from a file, loading it if the file has changed
+     * since it was last loaded.
+     *
+     * @param kind a name for the kind of value derived from the file
+     * @param file the file to derive the value from
+     * @param loader the function to derive the value
+     * @param <T> the value type
+     * @return the value
+     * @throws IOException if the file could not be read
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T file(final String kind, final Path file, final FileLoader<T> loader) throws IOException {
+        DaemonCache.expungeCleared();
+        final Path absolute = file.toAbsolutePath().normalize();
+        final Key key = new Key(kind, absolute);
+        final Fingerprint before = Fingerprint.of(absolute);
+        final @Nullable Entry existing = DaemonCache.ENTRIES.get(key);
+        if (existing != null && before.equals(existing.fingerprint)) {
+            final @Nullable Object value = existing.get();
+            if (value != null) {
+                return (T) value;
+            }
+        }
+
+        DaemonCache.watch(absolute.getParent());
+        final T value = loader.load(absolute);
+        // Only remember the value if the file did not change while it was being loaded
+        if (before.equals(Fingerprint.of(absolute))) {
+            DaemonCache.ENTRIES.put(key, new Entry(key, before, value));
+        }
+        return value;
+    }
+
+    /**
+     * Get a value derived from content with a known hash, loading it if it
+     * is not already cached.
+     *
+     * <p>Concurrent requests for the same content load it only once.</p>
+     *
+     * @param kind a name for the kind of value derived from the content
+     * @param hash a hash of the content
+     * @param loader the function to derive the value
+     * @param <T> the value type
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T content(final String kind, final String hash, final Supplier<T> loader) {
+        DaemonCache.expungeCleared();
+        final Key key = new Key(kind, hash);
+        // Held strongly until returned, as the entry only refers to it softly
+        final Object[] value = new Object[1];
+        DaemonCache.ENTRIES.compute(key, ($, existing) -> {
+            if (existing != null) {
+                value[0] = existing.get();
+                if (value[0] != null) {
+                    return existing;
+                }
+            }
+            value[0] = loader.get();
+            return new Entry(key, null, value[0]);
+        });
+        return (T) value[0];
+    }
+
+    /**
+     * Forget every value derived from a file.
+     *
+     * @param file the file
+     */
+    public static void invalidate(final Path file) {
+        final Path absolute = file.toAbsolutePath().normalize();
+        DaemonCache.ENTRIES.keySet().removeIf(key -> key.id.equals(absolute));
+    }
+
+    private static void expungeCleared() {
+        @Nullable Reference<?> cleared;
+        while ((cleared = DaemonCache.CLEARED.poll()) != null) {
+            final Entry entry = (Entry) cleared;
+            DaemonCache.ENTRIES.remove(entry.key, entry);
+        }
+    }
+
+    private static void watch(final @Nullable Path directory) {
+        if (directory == null || DaemonCache.watcherUnavailable || DaemonCache.WATCHED_DIRECTORIES.containsKey(directory)) {
+            return;
+        }
+        final @Nullable WatchService watcher = DaemonCache.watcher();
+        if (watcher == null) {
+            return;
+        }
+        try {
+            directory.register(
+                watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE
+            );
+            DaemonCache.WATCHED_DIRECTORIES.put(directory, Boolean.TRUE);
+        } catch (final IOException | UnsupportedOperationException ex) {
+            // fingerprints are still checked on every lookup
+            DaemonCache.LOGGER.debug("Unable to watch {} for changes", directory, ex);
+        }
+    }
+
+    private static @Nullable WatchService watcher() {
+        @Nullable WatchService watcher = DaemonCache.watcher;
+        if (watcher == null) {
+            synchronized (DaemonCache.class) {
+                watcher = DaemonCache.watcher;
+                if (watcher == null && !DaemonCache.watcherUnavailable) {
+                    try {
+                        DaemonCache.watcher = watcher = FileSystems.getDefault().newWatchService();
+                    } catch (final IOException | UnsupportedOperationException ex) {
+                        DaemonCache.LOGGER.debug("File watching is unavailable, relying on fingerprints alone", ex);
+                        DaemonCache.watcherUnavailable = true;
+                        return null;
+                    }
+                    final WatchService service = watcher;
+                    final Thread thread = new Thread(() -> DaemonCache.processEvents(service), "VanillaGradle daemon cache watcher");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        }
+        return watcher;
+    }
+
+    private static void processEvents(final WatchService watcher) {
+        while (true) {
+            final WatchKey watchKey;
+            try {
+                watchKey = watcher.take();
+            } catch (final InterruptedException | ClosedWatchServiceException ex) {
+                DaemonCache.watcherUnavailable = true;
+                return;
+            }
+            final Path directory = (Path) watchKey.watchable();
+            for (final WatchEvent<?> event : watchKey.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events were lost, so anything in the directory may have changed
+                    DaemonCache.ENTRIES.keySet().removeIf(key -> key.id instanceof Path path && directory.equals(path.getParent()));
+                } else if (event.context() instanceof Path name) {
+                    DaemonCache.invalidate(directory.resolve(name));
+                }
+            }
+            if (!watchKey.reset()) {
+                DaemonCache.WATCHED_DIRECTORIES.remove(directory);
+            }
+        }
+    }
+
+    record Key(String kind, Object id) {
+    }
+
+    record Fingerprint(long size, FileTime modified, @Nullable Object fileKey) {
+
+        static Fingerprint of(final Path file) throws IOException {
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new Fingerprint(attributes.size(), attributes.lastModifiedTime(), attributes.fileKey());
+        }
+
+    }
+
+    static final class Entry extends SoftReference<Object> {
+        final Key key;
+        final @Nullable Fingerprint fingerprint;
+
+        Entry(final Key key, final @Nullable Fingerprint fingerprint, final Object value) {
+            super(Objects.requireNonNull(value, "value"), DaemonCache.CLEARED);
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.util.FileUtils;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An artifact cache in a directory, which may be on a shared file system.
+ */
+final class DirectoryArtifactCache implements ArtifactCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryArtifactCache.class);
+
+    private final Path root;
+    private final boolean push;
+
+    DirectoryArtifactCache(final Path root, final boolean push) {
+        this.root = root;
+        this.push = push;
+    }
+
+    private Path entry(final String key) {
+        return this.root.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static Path checksumFile(final Path entry) {
+        return entry.resolveSibling(entry.getFileName() + ".sha256");
+    }
+
+    @Override
+    public boolean fetch(final String key, final Path destination) {
+        final Path entry = this.entry(key);
+        try {
+            // The checksum is written last, so an entry without one is incomplete
+            final String checksum = Files.readString(DirectoryArtifactCache.checksumFile(entry), StandardCharsets.UTF_8).trim();
+            Files.copy(entry, destination, StandardCopyOption.REPLACE_EXISTING);
+            if (!HashAlgorithm.SHA256.validate(checksum, destination)) {
+                DirectoryArtifactCache.LOGGER.warn("Ignoring {} in the artifact cache at {}, as it does not match its checksum", key, this.root);
+                Files.deleteIfExists(destination);
+                return false;
+            }
+            return true;
+        } catch (final NoSuchFileException ex) {
+            return false;
+        } catch (final IOException ex) {
+            DirectoryArtifactCache.LOGGER.warn("Failed to fetch {} from the artifact cache at {}", key, this.root, ex);
+            try {
+                Files.deleteIfExists(destination);
+            } catch (final IOException ignored) {
+                // the destination is staged, and will be cleaned up with its staging area
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void store(final String key, final Path source) {
+        if (!this.push) {
+            return;
+        }
+
+        final Path entry = this.entry(key);
+        final Path checksumFile = DirectoryArtifactCache.checksumFile(entry);
+        if (Files.exists(checksumFile)) {
+            return;
+        }
+        try {
+            FileUtils.createDirectoriesSymlinkSafe(entry.getParent());
+            // Copy in under temporary names, so other machines never see a partial artifact
+            final Path tmp = FileUtils.temporaryPath(entry.getParent(), "artifact");
+            final Path checksumTmp = FileUtils.temporaryPath(entry.getParent(), "checksum");
+            try {
+                Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.writeString(checksumTmp, ArtifactCache.checksum(tmp), StandardCharsets.UTF_8);
+                FileUtils.atomicMove(tmp, entry);
+                FileUtils.atomicMove(checksumTmp, checksumFile);
+            } finally {
+                Files.deleteIfExists(tmp);
+                Files.deleteIfExists(checksumTmp);
+            }
+        } catch (final IOException ex) {
+            DirectoryArtifactCache.LOGGER.warn("Failed to store {} in the artifact cache at {}", key, this.root, ex);
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.Executor;
+
+/**
+ * An artifact cache on an HTTP server, using {@code GET} to fetch
+ * artifacts and {@code PUT} to store them.
+ *
+ * <p>Credentials given as user info in the base URL are sent using basic
+ * authentication.</p>
+ */
+final class HttpArtifactCache implements ArtifactCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpArtifactCache.class);
+    private static final Duration TIMEOUT = Duration.ofMinutes(5);
+
+    private final URI base;
+    private final @Nullable String authorization;
+    private final boolean push;
+    private final HttpClient client;
+
+    HttpArtifactCache(final URI base, final boolean push, final Executor executor) throws URISyntaxException {
+        final String userInfo = base.getRawUserInfo();
+        this.authorization = userInfo == null ? null : "Basic " + Base64.getEncoder().encodeToString(HttpArtifactCache.credentials(userInfo).getBytes(StandardCharsets.UTF_8));
+        // Keys are resolved relative to the base, so it must be a directory
+        final String path = base.getPath() == null ? "" : base.getPath();
+        this.base = new URI(base.getScheme(), null, base.getHost(), base.getPort(), path.endsWith("/") ? path : path + '/', null, null);
+        this.push = push;
+        this.client = HttpClient.newBuilder()
+            .executor(executor)
+            .connectTimeout(Duration.ofSeconds(5))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+
+    /**
+     * Decode the user and password of raw user info separately, so an
+     * encoded {@code :} in either is kept where it belongs.
+     *
+     * @param userInfo the raw user info
+     * @return the decoded credentials, as {@code user:password}
+     */
+    private static String credentials(final String userInfo) {
+        final int split = userInfo.indexOf(':');
+        if (split == -1) {
+            return HttpArtifactCache.decode(userInfo) + ':';
+        }
+        return HttpArtifactCache.decode(userInfo.substring(0, split)) + ':' + HttpArtifactCache.decode(userInfo.substring(split + 1));
+    }
+
+    private static String decode(final String component) {
+        // URLDecoder decodes form data, where a '+' is a space, but in a URI it is literal
+        return URLDecoder.decode(component.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+
+    private HttpRequest.Builder request(final String key) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(this.base.resolve(key))
+            .timeout(HttpArtifactCache.TIMEOUT)
+            .header("User-Agent", Constants.USER_AGENT);
+        if (this.authorization != null) {
+            builder.header("Authorization", this.authorization);
+        }
+        return builder;
+    }
+
+    @Override
+    public boolean fetch(final String key, final Path destination) {
+        final Path tmp = destination.resolveSibling(destination.getFileName() + ".download");
+        try {
+            // The checksum is stored last, so an artifact without one is incomplete
+            final HttpResponse<String> checksum = this.client.send(this.request(key + ".sha256").GET().build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (!this.found(checksum, key)) {
+                return false;
+            }
+            final HttpResponse<Path> response = this.client.send(this.request(key).GET().build(), HttpResponse.BodyHandlers.ofFile(tmp));
+            if (!this.found(response, key)) {
+                return false;
+            }
+            if (!HashAlgorithm.SHA256.validate(checksum.body().trim(), tmp)) {
+                HttpArtifactCache.LOGGER.warn("Ignoring {} in the artifact cache at {}, as it does not match its checksum", key, this.base);
+                return false;
+            }
+            Files.move(tmp, destination, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (final IOException ex) {
+            HttpArtifactCache.LOGGER.warn("Failed to fetch {} from the artifact cache at {}", key, this.base, ex);
+            return false;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (final IOException ignored) {
+                // the destination is staged, and will be cleaned up with its staging area
+            }
+        }
+    }
+
+    private boolean found(final HttpResponse<?> response, final String key) {
+        if (response.statusCode() == 200) {
+            return true;
+        }
+        if (response.statusCode() != 404) {
+            HttpArtifactCache.LOGGER.warn("Artifact cache at {} responded with status {} when fetching {}", this.base, response.statusCode(), key);
+        }
+        return false;
+    }
+
+    @Override
+    public void store(final String key, final Path source) {
+        if (!this.push) {
+            return;
+        }
+
+        try {
+            final String checksum = ArtifactCache.checksum(source);
+            if (this.put(key, HttpRequest.BodyPublishers.ofFile(source))) {
+                this.put(key + ".sha256", HttpRequest.BodyPublishers.ofString(checksum, StandardCharsets.UTF_8));
+            }
+        } catch (final IOException ex) {
+            HttpArtifactCache.LOGGER.warn("Failed to store {} in the artifact cache at {}", key, this.base, ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean put(final String key, final HttpRequest.BodyPublisher body) throws IOException, InterruptedException {
+        final HttpResponse<Void> response = this.client.send(this.request(key).PUT(body).build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            HttpArtifactCache.LOGGER.warn("Artifact cache at {} responded with status {} when storing {}", this.base, response.statusCode(), key);
+            return false;
+        }
+        return true;
+    }
+
+}
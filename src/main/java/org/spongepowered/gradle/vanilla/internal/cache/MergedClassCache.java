@@ -0,0 +1,287 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.transformer.JarCompression;
+import org.spongepowered.gradle.vanilla.internal.util.FileUtils;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A persistent cache of the merged form of classes from a client and server
+ * jar.
+ *
+ * <p>Merged classes are keyed by the hashes of their client and server
+ * versions, within a directory specific to the merge tool in use. Most
+ * classes are unchanged between consecutive Minecraft versions, so only the
+ * classes that changed need to go through the merge tool.</p>
+ *
+ * <p>Merged jars list their entries in the order of the client jar, then
+ * the server jar, then any entries only added by the merge tool, rather than
+ * in the order the merge tool wrote them. Each cached class is stored along
+ * with the modification time of its merged entry. Together, these make a jar
+ * assembled partly from the cache byte-for-byte identical to one where every
+ * class went through the merge tool.</p>
+ */
+public final class MergedClassCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MergedClassCache.class);
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final String ABSENT = "-";
+    private static final String CLASS_HASHES = "merged-class-hashes";
+
+    private final Path root;
+
+    /**
+     * Create a new cache.
+     *
+     * @param cacheDir the directory containing caches for every merge tool
+     * @param toolKey a key identifying the merge tool and its version
+     */
+    public MergedClassCache(final Path cacheDir, final String toolKey) {
+        this.root = cacheDir.resolve(toolKey);
+    }
+
+    /**
+     * Merge a client and server jar, only passing classes that are not
+     * already cached to the merge tool.
+     *
+     * <p>Every resource is passed to the merge tool, so that its handling of
+     * non-class entries is preserved.</p>
+     *
+     * @param clientJar the client jar
+     * @param serverJar the server jar
+     * @param outputJar the jar to write merged output to
+     * @param workDir an empty directory to prepare partial jars in
+     * @param compression the compression to write the output with
+     * @param merge the merge tool
+     * @throws Exception if the merge tool fails, or any jar could not be read or written
+     */
+    public void merge(
+        final Path clientJar,
+        final Path serverJar,
+        final Path outputJar,
+        final Path workDir,
+        final JarCompression compression,
+        final Merge merge
+    ) throws Exception {
+        try (final ZipFile client = new ZipFile(clientJar.toFile());
+             final ZipFile server = new ZipFile(serverJar.toFile())) {
+            // Hashing every class is most of the work when little has changed, so keep the hashes for later builds
+            final Map<String, String> clientHashes = DaemonCache.file(MergedClassCache.CLASS_HASHES, clientJar, $ -> MergedClassCache.hashClasses(client));
+            final Map<String, String> serverHashes = DaemonCache.file(MergedClassCache.CLASS_HASHES, serverJar, $ -> MergedClassCache.hashClasses(server));
+
+            final Set<String> classes = new TreeSet<>(clientHashes.keySet());
+            classes.addAll(serverHashes.keySet());
+            final Map<String, Path> hits = new HashMap<>();
+            final Map<String, Path> misses = new HashMap<>();
+            for (final String name : classes) {
+                final Path cached = this.cachedClass(clientHashes.getOrDefault(name, MergedClassCache.ABSENT), serverHashes.getOrDefault(name, MergedClassCache.ABSENT));
+                if (Files.isRegularFile(cached)) {
+                    CacheAccess.touchFile(cached);
+                    hits.put(name, cached);
+                } else {
+                    misses.put(name, cached);
+                }
+            }
+            MergedClassCache.LOGGER.info("Merging {} classes, {} were already merged", misses.size(), hits.size());
+
+            final Path partialClient = workDir.resolve("client.jar");
+            final Path partialServer = workDir.resolve("server.jar");
+            final Path partialOutput = workDir.resolve("merged.jar");
+            MergedClassCache.writePartial(client, misses.keySet(), partialClient);
+            MergedClassCache.writePartial(server, misses.keySet(), partialServer);
+            merge.merge(partialClient, partialServer, partialOutput);
+
+            try (final ZipFile merged = new ZipFile(partialOutput.toFile());
+                 final ZipOutputStream out = compression.open(new BufferedOutputStream(Files.newOutputStream(outputJar)))) {
+                // Entries are written in the order of the inputs rather than of the merge tool's output, so the
+                // jar is the same however many classes were already merged
+                final Set<String> written = new HashSet<>();
+                for (final ZipFile input : List.of(client, server)) {
+                    final Enumeration<? extends ZipEntry> entries = input.entries();
+                    while (entries.hasMoreElements()) {
+                        final String name = entries.nextElement().getName();
+                        if (!written.contains(name)) {
+                            this.write(out, compression, name, merged, hits, misses, written);
+                        }
+                    }
+                }
+                // followed by anything the merge tool added, such as its annotations
+                final Enumeration<? extends ZipEntry> entries = merged.entries();
+                while (entries.hasMoreElements()) {
+                    final String name = entries.nextElement().getName();
+                    if (!written.contains(name)) {
+                        this.write(out, compression, name, merged, hits, misses, written);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write an entry from either the merge tool's output or the cache,
+     * caching it if it was merged by the tool.
+     */
+    private void write(
+        final ZipOutputStream out,
+        final JarCompression compression,
+        final String name,
+        final ZipFile merged,
+        final Map<String, Path> hits,
+        final Map<String, Path> misses,
+        final Set<String> written
+    ) throws IOException {
+        final @Nullable ZipEntry mergedEntry = merged.getEntry(name);
+        if (mergedEntry != null) {
+            final byte[] contents;
+            try (final InputStream is = merged.getInputStream(mergedEntry)) {
+                contents = is.readAllBytes();
+            }
+            compression.write(out, mergedEntry, contents);
+            written.add(name);
+
+            final @Nullable Path cacheTarget = misses.get(name);
+            if (cacheTarget != null) {
+                this.store(cacheTarget, mergedEntry.getTime(), contents);
+            }
+            return;
+        }
+
+        final @Nullable Path cached = hits.get(name);
+        if (cached != null) {
+            final ZipEntry entry = new ZipEntry(name);
+            final byte[] contents;
+            try (final DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(cached)))) {
+                final long time = is.readLong();
+                if (time != -1) {
+                    entry.setTime(time);
+                }
+                contents = is.readAllBytes();
+            }
+            compression.write(out, entry, contents);
+            written.add(name);
+        }
+        // otherwise the merge tool dropped the entry
+    }
+
+    private Path cachedClass(final String clientHash, final String serverHash) {
+        final String key = HashAlgorithm.toHexString(HashAlgorithm.SHA1.digest().digest((clientHash + ':' + serverHash).getBytes(StandardCharsets.UTF_8)));
+        return this.root.resolve(key.substring(0, 2)).resolve(key + MergedClassCache.ENTRY_SUFFIX);
+    }
+
+    private void store(final Path target, final long time, final byte[] contents) {
+        try {
+            FileUtils.createDirectoriesSymlinkSafe(target.getParent());
+            final Path tmp = FileUtils.temporaryPath(target.getParent(), "merged");
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeLong(time);
+                out.write(contents);
+            }
+            FileUtils.atomicMove(tmp, target);
+        } catch (final IOException ex) {
+            // the cache is only an optimization
+            MergedClassCache.LOGGER.debug("Failed to cache merged class at {}", target, ex);
+        }
+    }
+
+    private static Map<String, String> hashClasses(final ZipFile jar) throws IOException {
+        final Map<String, String> hashes = new HashMap<>();
+        final Enumeration<? extends ZipEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final ZipEntry entry = entries.nextElement();
+            if (entry.isDirectory() || !entry.getName().endsWith(MergedClassCache.CLASS_SUFFIX)) {
+                continue;
+            }
+            try (final InputStream is = jar.getInputStream(entry)) {
+                hashes.put(entry.getName(), HashAlgorithm.toHexString(HashAlgorithm.SHA1.digest().digest(is.readAllBytes())));
+            }
+        }
+        return Collections.unmodifiableMap(hashes);
+    }
+
+    /**
+     * Write a copy of a jar containing every resource, but only the listed
+     * classes.
+     */
+    private static void writePartial(final ZipFile jar, final Set<String> classes, final Path output) throws IOException {
+        try (final ZipOutputStream out = JarCompression.STORED.open(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            final Enumeration<? extends ZipEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (name.endsWith(MergedClassCache.CLASS_SUFFIX) && !entry.isDirectory() && !classes.contains(name)) {
+                    continue;
+                }
+                try (final InputStream is = jar.getInputStream(entry)) {
+                    JarCompression.STORED.write(out, entry, is.readAllBytes());
+                }
+            }
+        }
+    }
+
+    /**
+     * A merge tool.
+     */
+    @FunctionalInterface
+    public interface Merge {
+
+        /**
+         * Merge a client and server jar.
+         *
+         * @param clientJar the client jar
+         * @param serverJar the server jar
+         * @param outputJar the merged jar to write
+         * @throws Exception if the merge fails
+         */
+        void merge(final Path clientJar, final Path serverJar, final Path outputJar) throws Exception;
+
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.cache;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Read-only cache roots consulted beneath the writable shared cache.
+ *
+ * <p>A seed cache has the same layout as the shared cache, and is usually a
+ * shared cache populated ahead of time and distributed to build machines,
+ * for example as part of a CI image. Lookups for a file in the writable
+ * cache fall through to each seed in order. Nothing is ever written to a
+ * seed: artifacts derived from seeded inputs are written to the writable
+ * cache instead.</p>
+ *
+ * <p>Downloaded files are trusted through hashes recorded alongside them
+ * when they were first downloaded, so seeded files do not have to be read
+ * in full to be validated.</p>
+ *
+ * <p>Asset objects are never served from a seed, since the game reads them
+ * directly from the writable assets directory.</p>
+ */
+public final class SeedCaches {
+
+    public static final SeedCaches NONE = new SeedCaches(Path.of(""), List.of());
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeedCaches.class);
+    private static final String ASSETS = "assets";
+
+    private final Path writableRoot;
+    private final List<Path> roots;
+
+    public SeedCaches(final Path writableRoot, final List<Path> roots) {
+        this.writableRoot = writableRoot.toAbsolutePath().normalize();
+        this.roots = roots.stream()
+            .map(root -> root.toAbsolutePath().normalize())
+            .filter(Files::isDirectory)
+            .toList();
+    }
+
+    /**
+     * Get the seed roots that exist, in lookup order.
+     *
+     * @return the seed roots
+     */
+    public List<Path> roots() {
+        return this.roots;
+    }
+
+    /**
+     * Find a file in the seed caches.
+     *
+     * @param writablePath the location of the file in the writable cache
+     * @return the first seeded copy of the file, or {@code null} if there is
+     *     none or the path is not within the writable cache
+     */
+    public @Nullable Path find(final Path writablePath) {
+        if (this.roots.isEmpty()) {
+            return null;
+        }
+        final Path normalized = writablePath.toAbsolutePath().normalize();
+        if (!normalized.startsWith(this.writableRoot)) {
+            return null;
+        }
+        final Path relative = this.writableRoot.relativize(normalized);
+        if (relative.getNameCount() == 0 || relative.getName(0).toString().equals(SeedCaches.ASSETS)) {
+            return null;
+        }
+        for (final Path root : this.roots) {
+            final Path candidate = root.resolve(relative.toString());
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get whether a path is within one of the seed caches.
+     *
+     * @param path the path to test
+     * @return whether the path is seeded
+     */
+    public boolean isSeeded(final Path path) {
+        return this.seedRoot(path) != null;
+    }
+
+    /**
+     * Map a path within a seed cache to its location in the writable cache.
+     *
+     * <p>Paths outside of the seed caches are returned unchanged.</p>
+     *
+     * @param path the path to map
+     * @return the writable location
+     */
+    public Path toWritable(final Path path) {
+        final @Nullable Path root = this.seedRoot(path);
+        if (root == null) {
+            return path;
+        }
+        return this.writableRoot.resolve(root.relativize(path.toAbsolutePath().normalize()).toString());
+    }
+
+    private @Nullable Path seedRoot(final Path path) {
+        if (this.roots.isEmpty()) {
+            return null;
+        }
+        final Path normalized = path.toAbsolutePath().normalize();
+        for (final Path root : this.roots) {
+            if (normalized.startsWith(root)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determine whether a cached file can be trusted to have a certain hash
+     * without reading it.
+     *
+     * <p>This is the case when the file is named by its hash, or when the
+     * hash recorded alongside it matches.</p>
+     *
+     * @param file the file
+     * @param algorithm the hash algorithm
+     * @param expectedHash the expected hash
+     * @return whether the file is known to match the hash
+     */
+    public static boolean isTrusted(final Path file, final HashAlgorithm algorithm, final String expectedHash) {
+        return file.getFileName().toString().equals(expectedHash)
+            || expectedHash.equals(SeedCaches.recordedHash(file, algorithm));
+    }
+
+    /**
+     * Read the hash recorded alongside a file.
+     *
+     * @param file the file
+     * @param algorithm the hash algorithm
+     * @return the recorded hash, or {@code null} if none is recorded
+     */
+    public static @Nullable String recordedHash(final Path file, final HashAlgorithm algorithm) {
+        final Path sidecar = SeedCaches.sidecar(file, algorithm);
+        try {
+            return Files.isRegularFile(sidecar) ? Files.readString(sidecar, StandardCharsets.UTF_8).trim() : null;
+        } catch (final IOException ex) {
+            SeedCaches.LOGGER.debug("Failed to read recorded hash at {}", sidecar, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Record the hash of a file that has just been validated.
+     *
+     * <p>Nothing is recorded for files that are named by their hash.</p>
+     *
+     * @param file the file
+     * @param algorithm the hash algorithm
+     * @param hash the file's hash
+     */
+    public static void recordHash(final Path file, final HashAlgorithm algorithm, final String hash) {
+        if (file.getFileName().toString().equals(hash)) {
+            return;
+        }
+        final Path sidecar = SeedCaches.sidecar(file, algorithm);
+        try {
+            Files.writeString(sidecar, hash, StandardCharsets.UTF_8);
+        } catch (final IOException ex) {
+            SeedCaches.LOGGER.debug("Failed to record hash of {}", file, ex);
+        }
+    }
+
+    /**
+     * Get the location of the hash recorded for a file.
+     *
+     * @param file the file
+     * @param algorithm the hash algorithm
+     * @return the sidecar location
+     */
+    public static Path sidecar(final Path file, final HashAlgorithm algorithm) {
+        return file.resolveSibling(file.getFileName() + "." + algorithm.name().toLowerCase(Locale.ROOT));
+    }
+
+}
@@ -28,6 +28,7 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.cache.DaemonCache;
 import org.spongepowered.gradle.vanilla.internal.util.GsonUtils;
 import org.spongepowered.gradle.vanilla.resolver.Downloader;
 import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
@@ -35,6 +36,7 @@
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -62,7 +64,12 @@ public CompletableFuture<VersionManifestV2> manifest() {
         CompletableFuture<VersionManifestV2> manifest = this.manifest;
         if (manifest == null) {
             this.manifest = manifest = this.downloader.readString(URI.create(Constants.Manifests.API_V2_ENDPOINT), "manifest.json") // it's fine if we download multiple times, the downloader ensures we do it safely
-                .thenApply(res -> GsonUtils.GSON.fromJson(res.get(), VersionManifestV2.class)); // ensure it's present
+                .thenApply(res -> {
+                    final String content = res.get(); // ensure it's present
+                    // The manifest rarely changes between builds in the same daemon, so reuse the last parse of the same content
+                    final String hash = HashAlgorithm.toHexString(HashAlgorithm.SHA1.digest().digest(content.getBytes(StandardCharsets.UTF_8)));
+                    return DaemonCache.content("version-manifest", hash, () -> GsonUtils.GSON.fromJson(content, VersionManifestV2.class));
+                });
         }
         return manifest;
     }
@@ -105,7 +112,11 @@ public CompletableFuture<ResolutionResult<VersionDescriptor.Full>> fullVersion(f
                 "versions/" + option.id() + ".json",
                 HashAlgorithm.SHA1,
                 option.sha1()
-            ).thenApply(res -> res.mapIfPresent((upToDate, content) -> GsonUtils.GSON.fromJson(content, VersionDescriptor.Full.class)));
+            ).thenApply(res -> res.mapIfPresent((upToDate, content) -> DaemonCache.content(
+                "version-descriptor",
+                option.sha1(), // validated against the content
+                () -> GsonUtils.GSON.fromJson(content, VersionDescriptor.Full.class)
+            )));
         }));
     }
 
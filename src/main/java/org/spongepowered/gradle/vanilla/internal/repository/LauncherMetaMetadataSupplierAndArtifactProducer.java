@@ -29,6 +29,7 @@
 import org.gradle.api.artifacts.ComponentMetadataSupplierDetails;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.provider.Provider;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongepowered.gradle.vanilla.internal.model.VersionClassifier;
@@ -46,10 +47,19 @@
 public class LauncherMetaMetadataSupplierAndArtifactProducer implements ComponentMetadataSupplier {
     private static final Logger LOGGER = LoggerFactory.getLogger(LauncherMetaMetadataSupplierAndArtifactProducer.class);
     private final Provider<MinecraftProviderService> providerService;
+    private final @Nullable String project;
 
+    /**
+     * Create a new metadata supplier.
+     *
+     * @param providerService the provider service
+     * @param project the path of the project the repository belongs to,
+     *     or an empty string for repositories declared in settings
+     */
     @Inject
-    public LauncherMetaMetadataSupplierAndArtifactProducer(final Provider<MinecraftProviderService> providerService) {
+    public LauncherMetaMetadataSupplierAndArtifactProducer(final Provider<MinecraftProviderService> providerService, final String project) {
         this.providerService = providerService;
+        this.project = project.isEmpty() ? null : project;
     }
 
     @Override
@@ -67,16 +77,22 @@ public void execute(final ComponentMetadataSupplierDetails details) {
         }
 
         final MinecraftProviderService providerService = this.providerService.get();
+        final @Nullable ResolutionContext context = providerService.contextFor(id.getModule(), this.project);
+        if (context == null) {
+            // Artifacts are only requested through a configuration that has already recorded its context
+            LauncherMetaMetadataSupplierAndArtifactProducer.LOGGER.warn("No resolution context is known for Minecraft module {}", id.getModule());
+            return;
+        }
 
         final String version = id.getVersion();
         final VersionDescriptor.Full descriptor;
         LauncherMetaMetadataSupplierAndArtifactProducer.LOGGER.info("Attempting to resolve minecraft {} version {}", id.getModule(), version);
         try {
-            final MinecraftResolver resolver = providerService.resolver();
+            final MinecraftResolver resolver = providerService.resolver(context);
             // Request the appropriate jar, block until it's provided
             // TODO: maybe validate that the state keys of the provided modifiers actually match the artifact ID?
             final CompletableFuture<ResolutionResult<MinecraftResolver.MinecraftEnvironment>> resolutionFuture = resolver
-                .provide(platform.get(), version, providerService.peekModifiers());
+                .provide(platform.get(), version, context.modifiers());
 
             final ResolutionResult<MinecraftResolver.MinecraftEnvironment> resolution = resolver.processSyncTasksUntilComplete(resolutionFuture);
             if (!resolution.isPresent()) {
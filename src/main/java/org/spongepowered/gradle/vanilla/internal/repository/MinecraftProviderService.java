@@ -26,7 +26,7 @@
 
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
-import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.services.BuildService;
@@ -37,21 +37,38 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.bundler.BundledLibraryPublisher;
+import org.spongepowered.gradle.vanilla.internal.cache.ArtifactCache;
+import org.spongepowered.gradle.vanilla.internal.cache.CachePruner;
+import org.spongepowered.gradle.vanilla.internal.cache.ClassLocationIndex;
+import org.spongepowered.gradle.vanilla.internal.cache.SeedCaches;
 import org.spongepowered.gradle.vanilla.internal.model.VersionManifestRepository;
 import org.spongepowered.gradle.vanilla.internal.repository.modifier.ArtifactModifier;
+import org.spongepowered.gradle.vanilla.internal.transformer.JarCompression;
+import org.spongepowered.gradle.vanilla.internal.util.ResolutionWatchdog;
+import org.spongepowered.gradle.vanilla.internal.util.StagingArea;
+import org.spongepowered.gradle.vanilla.repository.MinecraftPlatform;
 import org.spongepowered.gradle.vanilla.repository.MinecraftResolver;
 import org.spongepowered.gradle.vanilla.repository.MinecraftResolverImpl;
 import org.spongepowered.gradle.vanilla.resolver.Downloader;
 import org.spongepowered.gradle.vanilla.resolver.jdk.JdkHttpClientDownloader;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class MinecraftProviderService implements
     BuildService<MinecraftProviderService.Parameters>,
@@ -59,23 +76,48 @@ public abstract class MinecraftProviderService implements
     OperationCompletionListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MinecraftProviderService.class);
+    private static final Duration PRUNE_INTERVAL = Duration.ofDays(1);
+    private static final Duration PRUNER_STOP_TIMEOUT = Duration.ofSeconds(30);
+    // Pruning continues after a build finishes, and must not overlap with the next build in the same daemon
+    private static final AtomicReference<@Nullable Thread> PRUNER = new AtomicReference<>();
 
     private volatile @Nullable Downloader downloader;
     private volatile @Nullable MinecraftResolverImpl resolver;
     private volatile @Nullable VersionManifestRepository versions;
-    private final ExecutorService executor;
-    private final ThreadLocal<ResolverState> activeState = ThreadLocal.withInitial(ResolverState::new);
+    private volatile @Nullable StagingArea sharedStaging;
+    private volatile @Nullable StagingArea privateStaging;
+    private volatile @Nullable ResolutionWatchdog watchdog;
+    private volatile @Nullable ClassLocationIndex classIndex;
+    private final ExecutorService ioExecutor;
+    private final ExecutorService cpuExecutor;
+    private final ToolClassLoaderPool toolLoaders = new ToolClassLoaderPool(MinecraftProviderService.class.getClassLoader());
+    private final ConcurrentMap<String, ConcurrentMap<String, ResolutionContext>> contexts = new ConcurrentHashMap<>();
+    private final Instant startTime = Instant.now();
 
     public interface Parameters extends BuildServiceParameters {
         DirectoryProperty getSharedCache(); // global cache
         DirectoryProperty getRootProjectCache(); // root project cache, used for any transformed artifacts that are reliant on project data
         Property<Boolean> getOfflineMode(); // gradle -o offline mode parameter, only resolve from local cache
         Property<Boolean> getRefreshDependencies(); // gradle --refresh-dependencies start parameter, ignore existing data in local cache
+        Property<String> getJarCompression(); // compression for transformed jars consumed by projects, see JarCompression.parse
+        Property<Boolean> getNativeJarMerge(); // experimental, use VanillaGradle's own parallel jar merger rather than mergetool
+        Property<Boolean> getBundledLibraries(); // publish libraries from server bundles into a local repository
+        Property<Long> getCacheSizeQuota(); // maximum size of cached artifacts in bytes, pruned on shutdown
+        Property<Duration> getCacheMaxAge(); // maximum time since a cached artifact was last used, pruned on shutdown
+        Property<String> getArtifactCache(); // location of a remote cache of prepared artifacts, see ArtifactCache.create
+        Property<Boolean> getArtifactCachePush(); // whether prepared artifacts should be stored in the remote cache
+        ConfigurableFileCollection getSeedCaches(); // read-only caches consulted, in order, for anything missing from the shared cache
+        Property<String> getMemoryStaging(); // memory-backed directory to stage scratch files in, if any
+        Property<Long> getMemoryStagingBudget(); // maximum bytes of scratch files staged in memory at once
+        Property<Duration> getStallTimeout(); // how long a resolution stage may run before it is reported as stalled, zero to disable
+        Property<Boolean> getFailStalled(); // whether stalled resolution stages should be failed once reported
     }
 
     public MinecraftProviderService() {
-        final int availableCpus = Runtime.getRuntime().availableProcessors();
-        this.executor = Executors.newWorkStealingPool(Math.min(Math.max(4, availableCpus * 2), 64));
+        MinecraftProviderService.stopPruning();
+        // Blocking network and file I/O gets a cheap virtual thread per task, so it never waits on transformations for a thread
+        this.ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("VanillaGradle I/O ", 0).factory());
+        this.cpuExecutor = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
         MinecraftProviderService.LOGGER.info(Constants.NAME + ": Creating minecraft provider service");
     }
 
@@ -86,33 +128,63 @@ public void onFinish(final FinishEvent finishEvent) {
     }
 
     /**
-     * Prepare the resolver to receive a resolution request from a context.
+     * Create a context to resolve artifacts on behalf of a project.
      *
-     * <p>This is intended for situations where artifact resolution needs to
-     * step through multiple hooks within Gradle to gather all necessary
-     * information. We track these bits of information, to be consumed at the
-     * next artifact resolution.</p>
+     * <p>The context is remembered by the project and the artifact IDs it
+     * produces, so metadata for those artifacts can later be supplied on
+     * whichever thread Gradle chooses.</p>
      *
      * @param project the project to use for resolving dependencies
      * @param modifiers the artifact modifiers to apply to the eventual output artifact
+     * @return a new context
      */
-    public void primeResolver(final Project project, final Set<ArtifactModifier> modifiers) {
-        final ResolverState state = this.activeState.get();
-        state.configurationSource = project.getConfigurations();
-        state.modifiers = modifiers;
+    public ResolutionContext context(final Project project, final Set<ArtifactModifier> modifiers) {
+        final ResolutionContext context = ResolutionContext.of(project, modifiers);
+        for (final MinecraftPlatform platform : MinecraftPlatform.all()) {
+            this.contexts.computeIfAbsent(ArtifactModifier.decorateArtifactId(platform.artifactId(), modifiers), $ -> new ConcurrentHashMap<>())
+                .put(context.project(), context);
+        }
+        return context;
     }
 
-    public Set<ArtifactModifier> peekModifiers() {
-        final ResolverState state = this.activeState.get();
-        final Set<ArtifactModifier> modifiers = state.modifiers;
-        if (modifiers == null) {
-            throw new GradleException("No artifact modifiers were staged for resolution operation!");
+    /**
+     * Find the context a project requested an artifact with.
+     *
+     * <p>When the requesting project is not known, because the artifact is
+     * resolved through a repository declared in settings, the only context
+     * for the artifact is used. If several projects have requested it, the
+     * context returned will refuse to resolve tools, rather than resolving
+     * another project's configurations.</p>
+     *
+     * @param artifactId the decorated artifact ID
+     * @param project the path of the requesting project, if known
+     * @return the context, or {@code null} if the artifact was never requested
+     */
+    public @Nullable ResolutionContext contextFor(final String artifactId, final @Nullable String project) {
+        final @Nullable Map<String, ResolutionContext> byProject = this.contexts.get(artifactId);
+        if (byProject == null) {
+            return null;
+        } else if (project != null) {
+            return byProject.get(project);
         }
-        return modifiers;
+
+        final List<ResolutionContext> candidates = List.copyOf(byProject.values());
+        if (candidates.isEmpty()) {
+            return null;
+        } else if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        return ResolutionContext.ambiguous(candidates.stream().map(ResolutionContext::project).toList(), candidates.get(0).modifiers());
     }
 
-    public void dropState() {
-        this.activeState.remove();
+    /**
+     * Get a resolver that resolves tools through a context.
+     *
+     * @param context the context of the resolution
+     * @return a resolver sharing all state with every other resolver
+     */
+    public MinecraftResolver resolver(final ResolutionContext context) {
+        return ((MinecraftResolverImpl) this.resolver()).withToolResolver(context::resolveTool);
     }
 
     public Downloader downloader() {
@@ -131,10 +203,11 @@ public Downloader downloader() {
                         mode = Downloader.ResolveMode.LOCAL_THEN_REMOTE;
                     }
                     this.downloader = downloader = new JdkHttpClientDownloader(
-                        this.executor,
+                        this.ioExecutor,
                         this.getParameters().getSharedCache().get().getAsFile().toPath(),
-                        mode
-                    );
+                        mode,
+                        this.seedCaches()
+                    ).withWatchdog(this.watchdog());
                 }
             }
         }
@@ -147,12 +220,46 @@ public MinecraftResolver resolver() {
             synchronized (this) {
                 resolver = this.resolver;
                 if (resolver == null) {
+                    final StagingArea sharedStaging;
+                    final StagingArea privateStaging;
+                    try {
+                        final Path sharedCache = this.getParameters().getSharedCache().get().getAsFile().toPath();
+                        this.sharedStaging = sharedStaging = this.getParameters().getMemoryStaging().isPresent()
+                            ? StagingArea.open(sharedCache, Path.of(this.getParameters().getMemoryStaging().get()), this.getParameters().getMemoryStagingBudget().get())
+                            : StagingArea.open(sharedCache);
+                        this.privateStaging = privateStaging = StagingArea.open(this.getParameters().getRootProjectCache().get().getAsFile().toPath());
+                    } catch (final IOException ex) {
+                        throw new GradleException("Failed to prepare a staging area in the VanillaGradle caches", ex);
+                    }
+                    if (this.getParameters().getNativeJarMerge().get()) {
+                        // Only checked against mergetool on test fixtures, and real jars when provided to the tests
+                        MinecraftProviderService.LOGGER.warn(Constants.NAME + ": The native jar merger is experimental, and its output may differ from mergetool's");
+                    }
                     this.resolver = resolver = new MinecraftResolverImpl(
                         this.versions(),
                         this.downloader().withBaseDir(this.downloader().baseDir().resolve(Constants.Directories.JARS)),
                         this.getParameters().getRootProjectCache().get().getAsFile().toPath().resolve(Constants.Directories.JARS),
-                        this.executor,
-                        this::resolveTool,
+                        this.ioExecutor,
+                        this.cpuExecutor,
+                        MinecraftProviderService::noToolResolution,
+                        this.toolLoaders,
+                        sharedStaging,
+                        privateStaging,
+                        JarCompression.parse(this.getParameters().getJarCompression().get()),
+                        this.getParameters().getSharedCache().get().getAsFile().toPath().resolve(Constants.Directories.MERGED_CLASSES),
+                        this.classIndex(),
+                        this.getParameters().getNativeJarMerge().get(),
+                        this.getParameters().getBundledLibraries().get()
+                            ? new BundledLibraryPublisher(
+                                this.getParameters().getSharedCache().get().getAsFile().toPath().resolve(Constants.Directories.LIBRARIES),
+                                this.seedCaches()
+                            )
+                            : null,
+                        this.getParameters().getArtifactCache().isPresent()
+                            ? ArtifactCache.create(this.getParameters().getArtifactCache().get(), this.getParameters().getArtifactCachePush().get(), this.ioExecutor)
+                            : ArtifactCache.NONE,
+                        this.seedCaches(),
+                        this.watchdog(),
                         this.getParameters().getRefreshDependencies().get()
                     );
                 }
@@ -161,20 +268,57 @@ public MinecraftResolver resolver() {
         return resolver;
     }
 
-    private URL[] resolveTool(final ResolvableTool tool) {
-        final ConfigurationContainer configurations = this.activeState.get().configurationSource;
-        if (configurations == null) {
-            throw new IllegalArgumentException("Tried to perform a configuration resolution outside of a project-managed context!");
+    private SeedCaches seedCaches() {
+        if (this.getParameters().getSeedCaches().isEmpty()) {
+            return SeedCaches.NONE;
+        }
+        return new SeedCaches(
+            this.getParameters().getSharedCache().get().getAsFile().toPath(),
+            this.getParameters().getSeedCaches().getFiles().stream().map(File::toPath).toList()
+        );
+    }
+
+    private ResolutionWatchdog watchdog() {
+        ResolutionWatchdog watchdog = this.watchdog;
+        if (watchdog == null) {
+            synchronized (this) {
+                watchdog = this.watchdog;
+                if (watchdog == null) {
+                    this.watchdog = watchdog = ResolutionWatchdog.create(
+                        this.getParameters().getStallTimeout().getOrElse(Duration.ZERO),
+                        this.getParameters().getFailStalled().getOrElse(false)
+                    );
+                }
+            }
         }
-        return configurations.getByName(tool.id()).resolve().stream()
-            .map(file -> {
-                try {
-                    return file.toURI().toURL();
-                } catch (final MalformedURLException ex) {
-                    throw new RuntimeException(ex);
+        return watchdog;
+    }
+
+    /**
+     * Get the index of classes in Minecraft artifacts and their libraries.
+     *
+     * <p>Every artifact provided by the resolver is indexed as it is
+     * published. Any other jar is indexed the first time it is searched.</p>
+     *
+     * @return the class location index
+     */
+    public ClassLocationIndex classIndex() {
+        ClassLocationIndex classIndex = this.classIndex;
+        if (classIndex == null) {
+            synchronized (this) {
+                classIndex = this.classIndex;
+                if (classIndex == null) {
+                    this.classIndex = classIndex = new ClassLocationIndex(
+                        this.getParameters().getSharedCache().get().getAsFile().toPath().resolve(Constants.Directories.CLASS_INDEX)
+                    );
                 }
-            })
-            .toArray(URL[]::new);
+            }
+        }
+        return classIndex;
+    }
+
+    private static URL[] noToolResolution(final ResolvableTool tool) {
+        throw new IllegalArgumentException("Tried to resolve tool " + tool.id() + " outside of a project-managed context!");
     }
 
     public VersionManifestRepository versions() {
@@ -195,31 +339,113 @@ public VersionManifestRepository versions() {
     @Override
     public void close() throws IOException {
         MinecraftProviderService.LOGGER.info(Constants.NAME + ": Shutting down MinecraftProviderService");
-        this.executor.shutdown();
-        boolean success;
-        try {
-            success = this.executor.awaitTermination(10, TimeUnit.SECONDS);
-        } catch (final InterruptedException ex) {
-            success = false;
-        }
-
-        if (!success) {
-            MinecraftProviderService.LOGGER.warn(Constants.NAME + ": Failed to shut down executor in 10 seconds, forcing shutdown!");
-            this.executor.shutdownNow();
-        }
+        this.contexts.clear(); // release project references
+        MinecraftProviderService.shutDown(this.cpuExecutor, "CPU");
+        MinecraftProviderService.shutDown(this.ioExecutor, "I/O");
 
         final Downloader downloader = this.downloader;
         this.downloader = null;
         if (downloader != null) {
             downloader.close();
         }
+
+        this.toolLoaders.close();
+        final @Nullable ResolutionWatchdog watchdog = this.watchdog;
+        if (watchdog != null) {
+            watchdog.close();
+        }
+        MinecraftProviderService.closeStaging(this.sharedStaging);
+        MinecraftProviderService.closeStaging(this.privateStaging);
+        this.pruneInBackground();
+    }
+
+    /**
+     * Evict least-recently-used entries from the caches.
+     *
+     * <p>Nothing used since this service was created will be evicted.</p>
+     *
+     * @param sizeQuota the maximum total size of cache entries in bytes, or
+     *     zero or less for no limit
+     * @param maxAge the maximum time since an entry was last used, or
+     *     {@code null} for no limit
+     * @param dryRun whether to only report what would be evicted
+     * @return a report of evicted entries
+     * @throws IOException if the caches could not be read
+     */
+    public CachePruner.Report pruneCache(final long sizeQuota, final @Nullable Duration maxAge, final boolean dryRun) throws IOException {
+        return new CachePruner(
+            this.getParameters().getSharedCache().get().getAsFile().toPath(),
+            this.getParameters().getRootProjectCache().get().getAsFile().toPath(),
+            sizeQuota,
+            maxAge,
+            this.startTime
+        ).prune(dryRun);
+    }
+
+    private void pruneInBackground() {
+        final long sizeQuota = this.getParameters().getCacheSizeQuota().getOrElse(0L);
+        final @Nullable Duration maxAge = this.getParameters().getCacheMaxAge().getOrNull();
+        if ((sizeQuota <= 0 && maxAge == null)
+            || !CachePruner.isDue(this.getParameters().getSharedCache().get().getAsFile().toPath(), MinecraftProviderService.PRUNE_INTERVAL)) {
+            return;
+        }
+
+        // Pruning has to walk the whole cache, so don't hold up the end of the build for it
+        final Thread pruner = new Thread(() -> {
+            try {
+                this.pruneCache(sizeQuota, maxAge, false);
+            } catch (final IOException ex) {
+                MinecraftProviderService.LOGGER.warn(Constants.NAME + ": Failed to prune caches", ex);
+            }
+        }, "VanillaGradle cache pruner");
+        pruner.setDaemon(true);
+        MinecraftProviderService.PRUNER.set(pruner);
+        pruner.start();
+    }
+
+    /**
+     * Stop any pruning left running by an earlier build, before this build
+     * starts to use the caches.
+     */
+    private static void stopPruning() {
+        final @Nullable Thread pruner = MinecraftProviderService.PRUNER.getAndSet(null);
+        if (pruner == null || !pruner.isAlive()) {
+            return;
+        }
+        MinecraftProviderService.LOGGER.info(Constants.NAME + ": Waiting for the previous build's cache pruning to stop");
+        pruner.interrupt();
+        try {
+            if (!pruner.join(MinecraftProviderService.PRUNER_STOP_TIMEOUT)) {
+                MinecraftProviderService.LOGGER.warn(Constants.NAME + ": Cache pruning did not stop within {}, continuing alongside it", MinecraftProviderService.PRUNER_STOP_TIMEOUT);
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    static final class ResolverState {
+    private static void shutDown(final ExecutorService executor, final String name) {
+        executor.shutdown();
+        boolean success;
+        try {
+            success = executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            success = false;
+        }
 
-        @Nullable ConfigurationContainer configurationSource;
-        @Nullable Set<ArtifactModifier> modifiers;
+        if (!success) {
+            MinecraftProviderService.LOGGER.warn(Constants.NAME + ": Failed to shut down {} executor in 10 seconds, forcing shutdown!", name);
+            executor.shutdownNow();
+        }
+    }
 
+    private static void closeStaging(final @Nullable StagingArea staging) {
+        if (staging != null) {
+            try {
+                staging.close();
+            } catch (final IOException ex) {
+                MinecraftProviderService.LOGGER.warn(Constants.NAME + ": Failed to clean up staging area", ex);
+            }
+        }
     }
 
 }
@@ -32,18 +32,23 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 
 import javax.inject.Inject;
 
 public class MinecraftRepositoryExtensionImpl implements MinecraftRepositoryExtension {
 
     private final Property<Boolean> injectRepositories;
+    private final Property<Long> cacheSizeQuota;
+    private final Property<Duration> cacheMaxAge;
     final Property<MinecraftProviderService> providerService;
     final DirectoryProperty baseDir;
 
     @Inject
     public MinecraftRepositoryExtensionImpl(final ObjectFactory objects) {
         this.injectRepositories = objects.property(Boolean.class).convention(true);
+        this.cacheSizeQuota = objects.property(Long.class);
+        this.cacheMaxAge = objects.property(Duration.class);
         this.providerService = objects.property(MinecraftProviderService.class);
         this.baseDir = objects.directoryProperty();
     }
@@ -58,6 +63,16 @@ public void injectRepositories(final boolean injectRepositories) {
         this.injectRepositories.set(injectRepositories);
     }
 
+    @Override
+    public Property<Long> cacheSizeQuota() {
+        return this.cacheSizeQuota;
+    }
+
+    @Override
+    public Property<Duration> cacheMaxAge() {
+        return this.cacheMaxAge;
+    }
+
     @Override
     public String injectVersion(final String version) {
         try {
@@ -29,36 +29,47 @@
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.ProjectEvaluationListener;
-import org.gradle.api.ProjectState;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.ResolutionStrategy;
-import org.gradle.api.artifacts.ResolvableDependencies;
 import org.gradle.api.artifacts.dsl.ComponentMetadataHandler;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
 import org.gradle.api.artifacts.dsl.RepositoryHandler;
 import org.gradle.api.artifacts.repositories.IvyArtifactRepository;
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
 import org.gradle.api.initialization.Settings;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.api.plugins.ExtensionAware;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.services.BuildServiceRegistration;
 import org.gradle.build.event.BuildEventsListenerRegistry;
 import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.spongepowered.gradle.vanilla.MinecraftExtension;
 import org.spongepowered.gradle.vanilla.internal.Constants;
 import org.spongepowered.gradle.vanilla.internal.MinecraftExtensionImpl;
+import org.spongepowered.gradle.vanilla.internal.bundler.BundledLibraryPublisher;
+import org.spongepowered.gradle.vanilla.internal.model.GroupArtifactVersion;
 import org.spongepowered.gradle.vanilla.internal.model.VersionClassifier;
 import org.spongepowered.gradle.vanilla.internal.repository.modifier.ArtifactModifier;
 import org.spongepowered.gradle.vanilla.internal.repository.rule.JoinedProvidesClientAndServerRule;
 import org.spongepowered.gradle.vanilla.internal.repository.rule.MinecraftIvyModuleExtraDataApplierRule;
 import org.spongepowered.gradle.vanilla.internal.util.ConfigurationUtils;
+import org.spongepowered.gradle.vanilla.internal.util.StagingArea;
 import org.spongepowered.gradle.vanilla.repository.MinecraftPlatform;
 import org.spongepowered.gradle.vanilla.repository.MinecraftRepositoryExtension;
 import org.spongepowered.gradle.vanilla.repository.MinecraftResolver;
 
 import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 
@@ -69,12 +80,38 @@
  */
 public class MinecraftRepositoryPlugin implements Plugin<Object> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MinecraftRepositoryPlugin.class);
+
     private static final String GRADLE_PROPERTY_PREFIX = "org.spongepowered.gradle.vanilla.";
 
     private static final String GRADLE_PROPERTY_SHARED_CACHE = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "sharedCacheRoot";
 
     private static final String GRADLE_PROPERTY_ROOT_PROJECT_CACHE = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "projectCacheRoot";
 
+    private static final String GRADLE_PROPERTY_JAR_COMPRESSION = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "jarCompression";
+
+    private static final String GRADLE_PROPERTY_NATIVE_JAR_MERGE = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "nativeJarMerge";
+
+    private static final String GRADLE_PROPERTY_BUNDLED_LIBRARIES = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "bundledLibraries";
+
+    private static final String GRADLE_PROPERTY_ARTIFACT_CACHE = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "artifactCache";
+
+    private static final String GRADLE_PROPERTY_ARTIFACT_CACHE_PUSH = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "artifactCachePush";
+
+    private static final String GRADLE_PROPERTY_SEED_CACHES = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "seedCacheRoots";
+
+    private static final String GRADLE_PROPERTY_MEMORY_STAGING = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "memoryStaging";
+
+    private static final String GRADLE_PROPERTY_MEMORY_STAGING_BUDGET = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "memoryStagingBudget";
+
+    private static final long DEFAULT_MEMORY_STAGING_BUDGET_MIB = 1024;
+
+    private static final String GRADLE_PROPERTY_STALL_TIMEOUT = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "stallTimeout";
+
+    private static final String GRADLE_PROPERTY_FAIL_STALLED = MinecraftRepositoryPlugin.GRADLE_PROPERTY_PREFIX + "failStalled";
+
+    private static final long DEFAULT_STALL_TIMEOUT_SECONDS = 300;
+
     /**
      * A variant of {@link IvyArtifactRepository#MAVEN_IVY_PATTERN} that takes
      * into account our metadata revision number.
@@ -83,6 +120,8 @@ public class MinecraftRepositoryPlugin implements Plugin<Object> {
 
     private static final String LATEST_PREFIX = "latest.";
 
+    private static final String SERVICE_NAME = "vanillaGradleMinecraft";
+
     private final BuildEventsListenerRegistry repositoryServiceLifetimeHack;
     private @Nullable Provider<MinecraftProviderService> service;
 
@@ -127,13 +166,13 @@ private void applyToProject(final Project project) {
             MinecraftRepositoryPlugin.GRADLE_PROPERTY_ROOT_PROJECT_CACHE,
             new File(project.getRootDir(), ".gradle")
         );
-        final Provider<MinecraftProviderService> service = this.registerService(project.getGradle(), sharedCacheDirectory, rootProjectCache);
+        final Provider<List<File>> seedCaches = MinecraftRepositoryPlugin.resolveSeedCaches(project.getRootDir(), providers);
+        final Provider<MinecraftProviderService> service = this.registerService(project.getGradle(), providers, project.getRootDir(), sharedCacheDirectory, rootProjectCache, seedCaches);
 
         // Apply vanillagradle caches
         if (!project.getGradle().getPlugins().hasPlugin(MinecraftRepositoryPlugin.class)) {
-            this.createRepositories(project.getRepositories(), service, sharedCacheDirectory, rootProjectCache);
+            this.createRepositories(project.getRepositories(), project.getPath(), providers, service, sharedCacheDirectory, rootProjectCache, seedCaches);
             this.registerComponentMetadataRules(project.getDependencies().getComponents());
-            this.registerPostTaskListener(service, project.getGradle());
         }
 
         // Register tool configurations
@@ -148,7 +187,7 @@ private void applyToProject(final Project project) {
         }
 
         // Hook into resolution to provide the Minecraft artifact
-        project.getConfigurations().configureEach(configuration -> this.configureResolutionStrategy(service, project, configuration.getResolutionStrategy(), configuration.getIncoming()));
+        project.getConfigurations().configureEach(configuration -> this.configureResolutionStrategy(service, project, configuration.getResolutionStrategy()));
     }
 
     private void constrainToNewAsm(final DependencyHandler handler, final ResolvableTool tool) {
@@ -165,11 +204,9 @@ private void constrainToNewAsm(final DependencyHandler handler, final Resolvable
     private void configureResolutionStrategy(
         final Provider<MinecraftProviderService> service,
         final Project project,
-        final ResolutionStrategy strategy,
-        final ResolvableDependencies incoming
+        final ResolutionStrategy strategy
     ) {
         JoinedProvidesClientAndServerRule.configureResolution(strategy.getCapabilitiesResolution());
-        final boolean[] minecraftResolved = {false}; // a sentinel to make sure we only drop state when done resolving for *our* configuration
         strategy.eachDependency(dependency -> {
             final ModuleVersionSelector dep = dependency.getTarget();
             if (MinecraftPlatform.GROUP.equals(dep.getGroup())) {
@@ -195,14 +232,13 @@ private void configureResolutionStrategy(
                             + ':' + ArtifactModifier.decorateArtifactId(platform.get().artifactId(), extension.modifiers())
                             + (version == null ? "" : ':' + version)
                     );
-                    minecraftResolved[0] = true;
-                    service.get().primeResolver(project, extension.modifiers());
-                    final MinecraftResolver resolver = providerService.resolver();
+                    final ResolutionContext context = providerService.context(project, extension.modifiers());
 
                     // If we do have a version, try to resolve that fixed version
                     if (version != null) {
+                        final MinecraftResolver resolver = providerService.resolver(context);
                         try {
-                            resolver.processSyncTasksUntilComplete(resolver.provide(platform.get(), version, providerService.peekModifiers()));
+                            resolver.processSyncTasksUntilComplete(resolver.provide(platform.get(), version, context.modifiers()));
                         } catch (final InterruptedException ex) {
                             Thread.currentThread().interrupt();
                         } catch (final ExecutionException ex) {
@@ -212,11 +248,6 @@ private void configureResolutionStrategy(
                 }
             }
         });
-        incoming.afterResolve(resolved -> {
-            if (minecraftResolved[0]) {
-                service.get().dropState(); // make sure we don't leak references
-            }
-        });
     }
 
     private @Nullable String preProcessVersion(final MinecraftProviderService service, final @Nullable String inputVersion) {
@@ -258,14 +289,15 @@ private void applyToSettings(final Settings settings) {
             MinecraftRepositoryPlugin.GRADLE_PROPERTY_ROOT_PROJECT_CACHE,
             new File(settings.getRootDir(), ".gradle")
         );
-        final Provider<MinecraftProviderService> service = this.registerService(settings.getGradle(), sharedCacheDirectory, rootProjectCache);
+        final Provider<List<File>> seedCaches = MinecraftRepositoryPlugin.resolveSeedCaches(settings.getRootDir(), providers);
+        final Provider<MinecraftProviderService> service = this.registerService(settings.getGradle(), providers, settings.getRootDir(), sharedCacheDirectory, rootProjectCache, seedCaches);
 
         // Apply VanillaGradle caches
-        this.createRepositories(settings.getDependencyResolutionManagement().getRepositories(), service, sharedCacheDirectory, rootProjectCache);
+        this.createRepositories(settings.getDependencyResolutionManagement().getRepositories(), "", providers, service, sharedCacheDirectory, rootProjectCache, seedCaches);
         this.registerComponentMetadataRules(settings.getDependencyResolutionManagement().getComponents());
-        this.registerPostTaskListener(service, settings.getGradle());
 
         final MinecraftRepositoryExtension extension = this.registerExtension(settings, service, settings.getRootDir());
+        MinecraftRepositoryPlugin.applyCachePolicy(settings.getGradle(), extension);
 
         // Leave a marker so projects don't try to override these
         settings.getGradle().getPluginManager().apply(MinecraftRepositoryPlugin.class);
@@ -280,24 +312,6 @@ private void applyToSettings(final Settings settings) {
 
     // Common handling //
 
-    private void registerPostTaskListener(final Provider<MinecraftProviderService> service, final Gradle gradle) {
-        gradle.addProjectEvaluationListener(new ProjectEvaluationListener() {
-            @Override
-            public void beforeEvaluate(final Project project) {}
-
-            @Override
-            public void afterEvaluate(final Project project, final ProjectState state) {
-                if (state.getFailure() != null) return;
-                project.getTasks().configureEach(task -> {
-                    task.doLast(t -> {
-                        t.getLogger().info("Dropping VG resolver state on thread '{}' (task doLast action)", Thread.currentThread().getName());
-                        service.get().dropState();
-                    });
-                });
-            }
-        });
-    }
-
     private MinecraftRepositoryExtension registerExtension(final ExtensionAware holder, final Provider<MinecraftProviderService> service, final File rootdir) {
         final MinecraftRepositoryExtensionImpl
             extension = (MinecraftRepositoryExtensionImpl) holder.getExtensions().create(MinecraftRepositoryExtension.class, "minecraft", MinecraftRepositoryExtensionImpl.class);
@@ -306,6 +320,61 @@ private MinecraftRepositoryExtension registerExtension(final ExtensionAware hold
         return extension;
     }
 
+    /**
+     * Use the cache pruning options of an extension for the build's provider
+     * service.
+     *
+     * <p>The policy applies to the whole build, so this is only used for the
+     * settings extension, or the root project's when VanillaGradle is not
+     * applied to settings. The options are read when the service is created,
+     * and cannot be changed after that.</p>
+     *
+     * @param gradle the build owning the service
+     * @param extension the extension to read options from
+     */
+    public static void applyCachePolicy(final Gradle gradle, final MinecraftRepositoryExtension extension) {
+        extension.cacheSizeQuota().finalizeValueOnRead();
+        extension.cacheMaxAge().finalizeValueOnRead();
+        final MinecraftProviderService.Parameters params = MinecraftRepositoryPlugin.serviceParameters(gradle);
+        params.getCacheSizeQuota().set(extension.cacheSizeQuota());
+        params.getCacheMaxAge().set(extension.cacheMaxAge());
+    }
+
+    /**
+     * Check that a project does not configure a cache policy other than the
+     * one applied to the build.
+     *
+     * @param project the project
+     * @param extension the project's extension
+     * @throws InvalidUserDataException if the project's policy conflicts
+     */
+    public static void checkCachePolicy(final Project project, final MinecraftRepositoryExtension extension) {
+        final MinecraftProviderService.Parameters params = MinecraftRepositoryPlugin.serviceParameters(project.getGradle());
+        MinecraftRepositoryPlugin.checkCachePolicy(project, "cacheSizeQuota", extension.cacheSizeQuota(), params.getCacheSizeQuota());
+        MinecraftRepositoryPlugin.checkCachePolicy(project, "cacheMaxAge", extension.cacheMaxAge(), params.getCacheMaxAge());
+    }
+
+    private static <T> void checkCachePolicy(final Project project, final String name, final Property<T> configured, final Property<T> applied) {
+        final @Nullable T value = configured.getOrNull();
+        if (value != null && !value.equals(applied.getOrNull())) {
+            throw new InvalidUserDataException(
+                "Project " + project.getPath() + " sets " + name + " to " + value + ", but the VanillaGradle cache is shared by the whole build, which uses "
+                + applied.getOrNull() + ". Configure " + name + " in settings or the root project instead."
+            );
+        }
+    }
+
+    private static MinecraftProviderService.Parameters serviceParameters(final Gradle gradle) {
+        final BuildServiceRegistration<?, ?> registration = gradle.getSharedServices().getRegistrations().getByName(MinecraftRepositoryPlugin.SERVICE_NAME);
+        return (MinecraftProviderService.Parameters) registration.getParameters();
+    }
+
+    private static Provider<Boolean> booleanProperty(final ProviderFactory providers, final String propertyName) {
+        return Properties.forUseAtConfigurationTime(providers.gradleProperty(propertyName))
+            .map(Boolean::parseBoolean)
+            .orElse(false);
+    }
+
     private static Provider<File> resolveCache(
         final File relativeTo,
         final ProviderFactory providers,
@@ -325,30 +394,124 @@ private static Provider<File> resolveCache(
             .map(loc -> new File(loc, "v" + MinecraftResolver.STORAGE_VERSION));
     }
 
+    /**
+     * Resolve the read-only seed caches, a list of cache roots separated by
+     * the platform path separator.
+     *
+     * <p>Each root is laid out like the shared cache, including its storage
+     * version directory.</p>
+     *
+     * @param relativeTo the directory relative paths are resolved against
+     * @param providers the provider factory
+     * @return the seed cache directories, in lookup order
+     */
+    private static Provider<List<File>> resolveSeedCaches(final File relativeTo, final ProviderFactory providers) {
+        return Properties.forUseAtConfigurationTime(providers.gradleProperty(MinecraftRepositoryPlugin.GRADLE_PROPERTY_SEED_CACHES))
+            .map(roots -> {
+                final List<File> seeds = new ArrayList<>();
+                for (final String root : roots.split(Pattern.quote(File.pathSeparator))) {
+                    if (root.isBlank()) {
+                        continue;
+                    }
+                    final File dir = new File(root.trim());
+                    seeds.add(new File(dir.isAbsolute() ? dir : new File(relativeTo, root.trim()), "v" + MinecraftResolver.STORAGE_VERSION));
+                }
+                return seeds;
+            })
+            .orElse(List.of());
+    }
+
     private void createRepositories(
         final RepositoryHandler repositories,
+        final String project,
+        final ProviderFactory providers,
         final Provider<MinecraftProviderService> service,
         final Provider<File> sharedCache,
-        final Provider<File> rootProjectCache
+        final Provider<File> rootProjectCache,
+        final Provider<List<File>> seedCaches
     ) {
         // Global cache (for standard artifacts)
         repositories.ivy(MinecraftRepositoryPlugin.repositoryConfiguration(
             "VanillaGradle Global Cache",
             sharedCache.map(f -> new File(f, Constants.Directories.JARS)),
-            service
+            service,
+            project
         ));
         // Root-project cache (for project-specific transformations, such as access wideners, potentially other things
         repositories.ivy(MinecraftRepositoryPlugin.repositoryConfiguration(
             "VanillaGradle Project Cache",
             rootProjectCache.map(f -> new File(f, Constants.Directories.JARS)),
-            service
+            service,
+            project
         ));
+        // Read-only seed caches, for artifacts prepared ahead of time that are missing from the global cache
+        final List<File> seeds = seedCaches.get();
+        for (int i = 0; i < seeds.size(); i++) {
+            final File seed = seeds.get(i);
+            repositories.ivy(MinecraftRepositoryPlugin.repositoryConfiguration(
+                "VanillaGradle Seed Cache " + (i + 1),
+                providers.provider(() -> new File(seed, Constants.Directories.JARS)),
+                service,
+                project
+            ));
+        }
+        // Libraries extracted from server bundles, in place of downloading them again
+        if (MinecraftRepositoryPlugin.booleanProperty(providers, MinecraftRepositoryPlugin.GRADLE_PROPERTY_BUNDLED_LIBRARIES).get()) {
+            MinecraftRepositoryPlugin.bundledLibraries(repositories, "VanillaGradle Bundled Libraries", new File(sharedCache.get(), Constants.Directories.LIBRARIES));
+            for (int i = 0; i < seeds.size(); i++) {
+                MinecraftRepositoryPlugin.bundledLibraries(repositories, "VanillaGradle Seeded Libraries " + (i + 1), new File(seeds.get(i), Constants.Directories.LIBRARIES));
+            }
+        }
+    }
+
+    /**
+     * Register a repository of libraries extracted from server bundles.
+     *
+     * <p>Bundles carry no metadata for their libraries, so their libraries
+     * have no dependencies of their own. The repository is therefore limited
+     * to configurations resolving only Minecraft, whose own metadata declares
+     * every library it needs, and to exactly the versions listed in the
+     * repository's index. Other configurations, such as a project's
+     * classpaths, resolve the same libraries from the regular repositories
+     * with their full metadata.</p>
+     *
+     * <p>The index is read when the repository is registered, so libraries
+     * published during a build are only used from the next build on.</p>
+     *
+     * @param repositories the repositories to register with
+     * @param name the name of the repository
+     * @param root the root of the repository
+     */
+    private static void bundledLibraries(final RepositoryHandler repositories, final String name, final File root) {
+        final Set<GroupArtifactVersion> published;
+        try {
+            published = BundledLibraryPublisher.published(root.toPath());
+        } catch (final IOException ex) {
+            MinecraftRepositoryPlugin.LOGGER.warn("Failed to list the libraries in {}, they will be downloaded instead", root, ex);
+            return;
+        }
+        if (published.isEmpty()) {
+            return; // a repository with no includes would match everything
+        }
+
+        repositories.maven(maven -> {
+            maven.setName(name);
+            maven.setUrl(root.toURI());
+            maven.metadataSources(MavenArtifactRepository.MetadataSources::artifact);
+            maven.content(content -> {
+                content.onlyForAttribute(Constants.Attributes.MINECRAFT_LIBRARIES, true);
+                for (final GroupArtifactVersion library : published) {
+                    content.includeVersion(library.group(), library.artifact(), Objects.requireNonNull(library.version()));
+                }
+            });
+        });
     }
 
     private static Action<IvyArtifactRepository> repositoryConfiguration(
         final String name,
         final Provider<File> root,
-        final Provider<MinecraftProviderService> service
+        final Provider<MinecraftProviderService> service,
+        final String project
     ) {
        return ivy -> {
            ivy.setName(name);
@@ -367,7 +530,7 @@ private static Action<IvyArtifactRepository> repositoryConfiguration(
                }
            });
            ivy.setComponentVersionsLister(LauncherMetaVersionLister.class, params -> params.params(service));
-           ivy.setMetadataSupplier(LauncherMetaMetadataSupplierAndArtifactProducer.class, params -> params.params(service));
+           ivy.setMetadataSupplier(LauncherMetaMetadataSupplierAndArtifactProducer.class, params -> params.params(service, project));
            ivy.setAllowInsecureProtocol(true);
            ivy.getResolve().setDynamicMode(false);
            ivy.metadataSources(IvyArtifactRepository.MetadataSources::ivyDescriptor);
@@ -383,14 +546,53 @@ private void registerComponentMetadataRules(final ComponentMetadataHandler handl
     }
 
     private Provider<MinecraftProviderService> registerService(
-        final Gradle gradle, final Provider<File> sharedCacheDir, final Provider<File> rootProjectCacheDir
+        final Gradle gradle,
+        final ProviderFactory providers,
+        final File rootDir,
+        final Provider<File> sharedCacheDir,
+        final Provider<File> rootProjectCacheDir,
+        final Provider<List<File>> seedCaches
     ) {
-        final Provider<MinecraftProviderService> service = this.service = gradle.getSharedServices().registerIfAbsent("vanillaGradleMinecraft", MinecraftProviderService.class, params -> {
+        final Provider<MinecraftProviderService> service = this.service = gradle.getSharedServices().registerIfAbsent(MinecraftRepositoryPlugin.SERVICE_NAME, MinecraftProviderService.class, params -> {
             final MinecraftProviderService.Parameters options = params.getParameters();
             options.getSharedCache().fileProvider(sharedCacheDir);
             options.getRootProjectCache().fileProvider(rootProjectCacheDir);
             options.getOfflineMode().set(gradle.getStartParameter().isOffline());
             options.getRefreshDependencies().set(gradle.getStartParameter().isRefreshDependencies());
+            // Transformed jars are only consumed locally, so by default trade disk space for time
+            options.getJarCompression().set(Properties.forUseAtConfigurationTime(providers.gradleProperty(MinecraftRepositoryPlugin.GRADLE_PROPERTY_JAR_COMPRESSION)).orElse("stored"));
+            options.getNativeJarMerge().set(MinecraftRepositoryPlugin.booleanProperty(providers, MinecraftRepositoryPlugin.GRADLE_PROPERTY_NATIVE_JAR_MERGE));
+            options.getBundledLibraries().set(MinecraftRepositoryPlugin.booleanProperty(providers, MinecraftRepositoryPlugin.GRADLE_PROPERTY_BUNDLED_LIBRARIES));
+            // Either an HTTP(S) URL, or a directory relative to the root project
+            options.getArtifactCache().set(Properties.forUseAtConfigurationTime(providers.gradleProperty(MinecraftRepositoryPlugin.GRADLE_PROPERTY_ARTIFACT_CACHE))
+                .map(location -> location.startsWith("http://") || location.startsWith("https://") || new File(location).isAbsolute()
+                    ? location
+                    : new File(rootDir, location).getAbsolutePath()));
+            options.getArtifactCachePush().set(Properties.forUseAtConfigurationTime(providers.gradleProperty(MinecraftRepositoryPlugin.GRADLE_PROPERTY_ARTIFACT_CACHE_PUSH))
+                .map(Boolean::parseBoolean)
+                .orElse(true));
+            options.getSeedCaches().from(seedCaches);
+            // Either true to use the shared memory directory, or a memory-backed directory
+            options.getMemoryStaging().set(Properties.forUseAtConfigurationTime(providers.gradleProperty(MinecraftRepositoryPlugin.GRADLE_PROPERTY_MEMORY_STAGING))
+                .map(location -> {
+                    if (location.equalsIgnoreCase("false")) {
+                        return null; // disabled
+                    } else if (location.equalsIgnoreCase("true")) {
+                        return StagingArea.SHARED_MEMORY.toString();
+                    }
+                    return new File(location).isAbsolute() ? location : new File(rootDir, location).getAbsolutePath();
+                }));
+            // in MiB
+            options.getMemoryStagingBudget().set(Properties.forUseAtConfigurationTime(providers.gradleProperty(MinecraftRepositoryPlugin.GRADLE_PROPERTY_MEMORY_STAGING_BUDGET))
+                .map(Long::parseLong)
+                .orElse(MinecraftRepositoryPlugin.DEFAULT_MEMORY_STAGING_BUDGET_MIB)
+                .map(mib -> mib * 1024 * 1024));
+            // in seconds, 0 to disable
+            options.getStallTimeout().set(Properties.forUseAtConfigurationTime(providers.gradleProperty(MinecraftRepositoryPlugin.GRADLE_PROPERTY_STALL_TIMEOUT))
+                .map(Long::parseLong)
+                .orElse(MinecraftRepositoryPlugin.DEFAULT_STALL_TIMEOUT_SECONDS)
+                .map(Duration::ofSeconds));
+            options.getFailStalled().set(MinecraftRepositoryPlugin.booleanProperty(providers, MinecraftRepositoryPlugin.GRADLE_PROPERTY_FAIL_STALLED));
         });
 
         // see https://github.com/diffplug/spotless/pull/720#issuecomment-713399731
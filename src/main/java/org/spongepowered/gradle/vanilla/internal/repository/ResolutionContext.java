@@ -0,0 +1,106 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.repository;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.jspecify.annotations.Nullable;
+import org.spongepowered.gradle.vanilla.internal.repository.modifier.ArtifactModifier;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Everything needed to resolve Minecraft on behalf of one project.
+ *
+ * <p>A context travels with each resolution request, rather than being
+ * staged on the requesting thread, so resolutions for several projects can
+ * be in flight at once.</p>
+ *
+ * @param project a description of the project resolving, for messages
+ * @param configurations the configurations to resolve tools from, or
+ *     {@code null} if it is not known which project's to use
+ * @param modifiers the artifact modifiers to apply to resolved artifacts
+ */
+public record ResolutionContext(String project, @Nullable ConfigurationContainer configurations, Set<ArtifactModifier> modifiers) {
+
+    /**
+     * Create a context resolving on behalf of a project.
+     *
+     * @param project the project
+     * @param modifiers the artifact modifiers to apply
+     * @return a new context
+     */
+    public static ResolutionContext of(final Project project, final Set<ArtifactModifier> modifiers) {
+        return new ResolutionContext(project.getPath(), project.getConfigurations(), Set.copyOf(modifiers));
+    }
+
+    /**
+     * Create a context for an artifact requested by several projects,
+     * when it cannot be told which of them is resolving.
+     *
+     * <p>Anything already prepared can be resolved through this context,
+     * but it refuses to resolve tools.</p>
+     *
+     * @param projects the paths of the requesting projects
+     * @param modifiers the artifact modifiers to apply
+     * @return a new context
+     */
+    public static ResolutionContext ambiguous(final Collection<String> projects, final Set<ArtifactModifier> modifiers) {
+        return new ResolutionContext("one of " + new TreeSet<>(projects), null, Set.copyOf(modifiers));
+    }
+
+    /**
+     * Resolve the class path of a tool.
+     *
+     * <p>This must be called on a thread that is allowed to resolve the
+     * context's configurations.</p>
+     *
+     * @param tool the tool to resolve
+     * @return the tool's class path
+     */
+    public URL[] resolveTool(final ResolvableTool tool) {
+        final @Nullable ConfigurationContainer configurations = this.configurations;
+        if (configurations == null) {
+            throw new IllegalStateException(
+                "Tool " + tool.id() + " is needed to prepare Minecraft for " + this.project + ", but Minecraft is resolved through a repository "
+                + "shared between those projects. Declare a fixed Minecraft version, or apply VanillaGradle to each project rather than to settings."
+            );
+        }
+        return configurations.getByName(tool.id()).resolve().stream()
+            .map(file -> {
+                try {
+                    return file.toURI().toURL();
+                } catch (final MalformedURLException ex) {
+                    throw new RuntimeException(ex);
+                }
+            })
+            .toArray(URL[]::new);
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.repository;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.util.SelfPreferringClassLoader;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pool of class loaders for resolved tools.
+ *
+ * <p>Loaders are keyed by a hash of the resolved tool classpath, so the same
+ * tool classes stay loaded (and JIT-compiled) across every resolution that
+ * uses the same tool artifacts.</p>
+ *
+ * <p>Class loaders handed out by this pool are shared, and must not be
+ * closed by their users. Loaders outlive the pool, so later builds in the
+ * same daemon reuse them rather than loading and compiling the tools again.
+ * Only a bounded number are kept: once a loader is no longer used by any
+ * open pool, it is closed as soon as more recently used loaders push it out,
+ * releasing its jars.</p>
+ */
+public final class ToolClassLoaderPool implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolClassLoaderPool.class);
+    private static final int MAX_LOADERS = 8;
+    // Loaders shared by every pool in the daemon, least recently used first
+    private static final LinkedHashMap<String, Shared> SHARED = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ConcurrentMap<String, URLClassLoader> loaders = new ConcurrentHashMap<>();
+    private final ClassLoader parent;
+    private volatile boolean closed;
+
+    public ToolClassLoaderPool(final ClassLoader parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Get a class loader for the provided classpath, creating one if necessary.
+     *
+     * @param classPath the classpath to load from
+     * @return a shared class loader
+     */
+    public URLClassLoader get(final URL[] classPath) {
+        if (this.closed) {
+            throw new IllegalStateException("This tool class loader pool has already been closed");
+        }
+        final String key = ToolClassLoaderPool.key(classPath);
+        final @Nullable URLClassLoader existing = this.loaders.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (ToolClassLoaderPool.SHARED) {
+            final Shared shared = ToolClassLoaderPool.SHARED.computeIfAbsent(key, $ -> {
+                ToolClassLoaderPool.LOGGER.debug("Creating tool class loader {}", key);
+                return new Shared(new SelfPreferringClassLoader(classPath, this.parent));
+            });
+            if (this.loaders.putIfAbsent(key, shared.loader) == null) {
+                shared.users++;
+            }
+            ToolClassLoaderPool.closeExcess();
+            return shared.loader;
+        }
+    }
+
+    /**
+     * Compute a key identifying a tool classpath.
+     *
+     * <p>Local files contribute their size and modification time as well as
+     * their location, so a changed artifact at the same path will not reuse
+     * a loader created for its old contents.</p>
+     *
+     * @param classPath the classpath to hash
+     * @return a hex-encoded hash of the classpath
+     */
+    public static String key(final URL[] classPath) {
+        final MessageDigest digest = HashAlgorithm.SHA1.digest();
+        for (final URL url : classPath) {
+            digest.update(url.toExternalForm().getBytes(StandardCharsets.UTF_8));
+            if ("file".equals(url.getProtocol())) {
+                try {
+                    final File file = new File(url.toURI());
+                    digest.update(ToolClassLoaderPool.longBytes(file.length()));
+                    digest.update(ToolClassLoaderPool.longBytes(file.lastModified()));
+                } catch (final URISyntaxException | IllegalArgumentException ex) {
+                    // not a plain local file, the location alone will have to do
+                }
+            }
+            digest.update((byte) 0);
+        }
+        return HashAlgorithm.toHexString(digest.digest());
+    }
+
+    private static byte[] longBytes(final long value) {
+        final byte[] result = new byte[Long.BYTES];
+        for (int i = 0; i < Long.BYTES; i++) {
+            result[i] = (byte) (value >>> (8 * (Long.BYTES - 1 - i)));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        synchronized (ToolClassLoaderPool.SHARED) {
+            // the loaders themselves are kept for later builds, until they are pushed out
+            for (final String key : this.loaders.keySet()) {
+                final @Nullable Shared shared = ToolClassLoaderPool.SHARED.get(key);
+                if (shared != null) {
+                    shared.users--;
+                }
+            }
+            this.loaders.clear();
+            ToolClassLoaderPool.closeExcess();
+        }
+    }
+
+    private static void closeExcess() {
+        final Iterator<Map.Entry<String, Shared>> it = ToolClassLoaderPool.SHARED.entrySet().iterator();
+        int excess = ToolClassLoaderPool.SHARED.size() - ToolClassLoaderPool.MAX_LOADERS;
+        while (excess > 0 && it.hasNext()) {
+            final Map.Entry<String, Shared> entry = it.next();
+            if (entry.getValue().users > 0) {
+                continue; // still in use by a build, it will be closed once released
+            }
+            it.remove();
+            excess--;
+            try {
+                entry.getValue().loader.close();
+                ToolClassLoaderPool.LOGGER.debug("Closed tool class loader {}", entry.getKey());
+            } catch (final IOException ex) {
+                ToolClassLoaderPool.LOGGER.warn("Failed to close tool class loader {}", entry.getKey(), ex);
+            }
+        }
+    }
+
+    static final class Shared {
+        final URLClassLoader loader;
+        int users;
+
+        Shared(final URLClassLoader loader) {
+            this.loader = loader;
+        }
+    }
+
+}
@@ -24,8 +24,10 @@
  */
 package org.spongepowered.gradle.vanilla.internal.repository.modifier;
 
+import org.gradle.api.InvalidUserDataException;
 import org.jspecify.annotations.Nullable;
 import org.objectweb.asm.ClassVisitor;
+import org.spongepowered.gradle.vanilla.internal.cache.ClassHierarchyIndex;
 import org.spongepowered.gradle.vanilla.internal.repository.ResolvableTool;
 import org.spongepowered.gradle.vanilla.internal.transformer.ClassTransformerProvider;
 import org.spongepowered.gradle.vanilla.internal.util.AsyncUtils;
@@ -36,20 +38,30 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-public final class AccessWidenerModifier implements ArtifactModifier {
+public final class AccessWidenerModifier implements IncrementalArtifactModifier {
 
     private static final String KEY = "aw";
+    private static final String HEADER = "accessWidener";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_REPORTED_PROBLEMS = 20;
 
     private final Set<Path> wideners;
     private volatile @Nullable String stateKey;
@@ -86,6 +98,90 @@ public String stateKey() {
         return stateKey;
     }
 
+    @Override
+    public String describeState() throws IOException {
+        final StringBuilder contents = new StringBuilder();
+        for (final Path widenerFile : this.wideners.stream().sorted().toList()) {
+            contents.append(Files.readString(widenerFile, StandardCharsets.UTF_8)).append('\n');
+        }
+        return WidenerState.parse(contents.toString()).write();
+    }
+
+    @Override
+    public @Nullable Set<String> affectedClasses(final String previousState) throws IOException {
+        final WidenerState previous = WidenerState.parse(previousState);
+        final WidenerState current = WidenerState.parse(this.describeState());
+        if (!previous.headers().equals(current.headers())) {
+            return null; // namespace changed, every entry means something different
+        }
+
+        final Set<String> changed = new HashSet<>(previous.entries());
+        changed.addAll(current.entries());
+        changed.removeIf(entry -> previous.entries().contains(entry) && current.entries().contains(entry));
+
+        final Set<String> affected = new HashSet<>();
+        for (final String entry : changed) {
+            // <access> <class|method|field> <owner> [<name> <descriptor>]
+            final String[] tokens = entry.split(" ");
+            if (tokens.length < 3) {
+                return null;
+            }
+            affected.add(tokens[2]);
+        }
+        return affected;
+    }
+
+    @Override
+    public void validate(final ClassHierarchyIndex input) throws IOException {
+        final List<String> problems = new ArrayList<>();
+        for (final Path widenerFile : this.wideners.stream().sorted().toList()) {
+            final List<String> lines = Files.readAllLines(widenerFile, StandardCharsets.UTF_8);
+            for (int i = 0; i < lines.size(); i++) {
+                final String line = AccessWidenerModifier.normalize(lines.get(i));
+                if (line.isEmpty() || line.startsWith(AccessWidenerModifier.HEADER)) {
+                    continue;
+                }
+                final @Nullable String problem = AccessWidenerModifier.validateEntry(line.split(" "), input);
+                if (problem != null) {
+                    problems.add(widenerFile + ":" + (i + 1) + ": " + problem);
+                }
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            final StringBuilder message = new StringBuilder("Access widener entries do not match the Minecraft jar:");
+            for (final String problem : problems.subList(0, Math.min(problems.size(), AccessWidenerModifier.MAX_REPORTED_PROBLEMS))) {
+                message.append("\n  ").append(problem);
+            }
+            if (problems.size() > AccessWidenerModifier.MAX_REPORTED_PROBLEMS) {
+                message.append("\n  ...and ").append(problems.size() - AccessWidenerModifier.MAX_REPORTED_PROBLEMS).append(" more");
+            }
+            throw new InvalidUserDataException(message.toString());
+        }
+    }
+
+    private static @Nullable String validateEntry(final String[] tokens, final ClassHierarchyIndex input) {
+        // <access> <class|method|field> <owner> [<name> <descriptor>]
+        if (tokens.length < 3) {
+            return "malformed entry";
+        }
+        if (input.classAccess(tokens[2]) == ClassHierarchyIndex.ABSENT) {
+            return "class " + tokens[2] + " does not exist";
+        }
+        return switch (tokens[1]) {
+            case "class" -> null;
+            case "method", "field" -> {
+                if (tokens.length < 5) {
+                    yield "malformed entry";
+                }
+                yield input.memberAccess(tokens[2], tokens[3], tokens[4]) == ClassHierarchyIndex.ABSENT
+                    ? tokens[1] + " " + tokens[2] + "." + tokens[3] + tokens[4] + " does not exist"
+                    : null;
+            }
+            default -> "unknown target type '" + tokens[1] + "'";
+        };
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public CompletableFuture<ClassTransformerProvider> providePopulator(
@@ -112,14 +208,70 @@ public UnaryOperator<ClassVisitor> provide() {
 
             @Override
             public void close() throws IOException {
-                this.loader.close();
+                // the loader is pooled by the resolver, and must stay open
                 this.accessWidenerLoader = null;
             }
-        }, context.executor());
+        }, context.cpuExecutor());
     }
 
     @Override
     public boolean requiresLocalStorage() {
         return true;
     }
+
+    @Override
+    public Set<ResolvableTool> tools() {
+        return Set.of(ResolvableTool.ACCESS_WIDENER);
+    }
+
+    /**
+     * Strip the comment from a line of an access widener, and collapse its
+     * whitespace.
+     */
+    private static String normalize(final String rawLine) {
+        final int commentIdx = rawLine.indexOf('#');
+        return AccessWidenerModifier.WHITESPACE.matcher(commentIdx == -1 ? rawLine : rawLine.substring(0, commentIdx))
+            .replaceAll(" ")
+            .trim();
+    }
+
+    /**
+     * The normalized contents of a set of access widener files.
+     *
+     * <p>Comments, blank lines, and entry order are not significant.</p>
+     *
+     * @param headers the distinct header lines
+     * @param entries the distinct widening entries
+     */
+    record WidenerState(SortedSet<String> headers, SortedSet<String> entries) {
+
+        static WidenerState parse(final String contents) {
+            final SortedSet<String> headers = new TreeSet<>();
+            final SortedSet<String> entries = new TreeSet<>();
+            for (final String rawLine : contents.split("\\R")) {
+                final String line = AccessWidenerModifier.normalize(rawLine);
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.startsWith(AccessWidenerModifier.HEADER)) {
+                    headers.add(line);
+                } else {
+                    entries.add(line);
+                }
+            }
+            return new WidenerState(headers, entries);
+        }
+
+        String write() {
+            final StringBuilder builder = new StringBuilder();
+            for (final String header : this.headers) {
+                builder.append(header).append('\n');
+            }
+            for (final String entry : this.entries) {
+                builder.append(entry).append('\n');
+            }
+            return builder.toString();
+        }
+
+    }
 }
@@ -24,9 +24,15 @@
  */
 package org.spongepowered.gradle.vanilla.internal.repository.modifier;
 
+import org.spongepowered.gradle.vanilla.internal.cache.ClassHierarchyIndex;
+import org.spongepowered.gradle.vanilla.internal.repository.ResolvableTool;
 import org.spongepowered.gradle.vanilla.internal.transformer.ClassTransformerProvider;
 import org.spongepowered.gradle.vanilla.repository.MinecraftResolver;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
@@ -39,7 +45,27 @@ public interface ArtifactModifier {
 
     char KEY_VALUE_SEPARATOR = '-';
 
-    static String decorateArtifactId(final String originalId, final Set<ArtifactModifier> modifiers) {
+    /**
+     * The order modifiers are applied in.
+     *
+     * <p>Modifier sets have no inherent order, so a stable order is needed for
+     * artifact ids to be reproducible, and for different modifier sets to
+     * share the layers they have in common.</p>
+     */
+    Comparator<ArtifactModifier> ORDER = Comparator.comparing(ArtifactModifier::key)
+        .thenComparing(ArtifactModifier::stateKey);
+
+    /**
+     * Sort modifiers into the order they are applied in.
+     *
+     * @param modifiers the modifiers to sort
+     * @return a sorted, unmodifiable list of modifiers
+     */
+    static List<ArtifactModifier> ordered(final Collection<ArtifactModifier> modifiers) {
+        return modifiers.stream().sorted(ArtifactModifier.ORDER).toList();
+    }
+
+    static String decorateArtifactId(final String originalId, final Collection<ArtifactModifier> modifiers) {
         if (modifiers.isEmpty()) {
             return originalId;
         }
@@ -47,7 +73,7 @@ static String decorateArtifactId(final String originalId, final Set<ArtifactModi
         // We need to compute our own key to be able to query the map
         final StringBuilder decoratedArtifactBuilder = new StringBuilder(originalId.length() + 10 * modifiers.size());
         decoratedArtifactBuilder.append(originalId);
-        for (final ArtifactModifier modifier : modifiers) {
+        for (final ArtifactModifier modifier : ArtifactModifier.ordered(modifiers)) {
             decoratedArtifactBuilder.append(ArtifactModifier.ENTRY_SEPARATOR)
                 .append(modifier.key())
                 .append(ArtifactModifier.KEY_VALUE_SEPARATOR)
@@ -94,4 +120,31 @@ static String decorateArtifactId(final String originalId, final Set<ArtifactModi
      */
     boolean requiresLocalStorage();
 
+    /**
+     * Get the tools this modifier uses to transform artifacts.
+     *
+     * <p>The versions of these tools are part of the key used to share the
+     * modified artifact through an artifact cache.</p>
+     *
+     * @return the tools used
+     */
+    default Set<ResolvableTool> tools() {
+        return Set.of();
+    }
+
+    /**
+     * Check that this modifier can be applied to an input, before any
+     * classes are transformed.
+     *
+     * <p>This is only called when the modified artifact is about to be
+     * produced, not when an up-to-date artifact is reused.</p>
+     *
+     * @param input an index of the classes in the input artifact
+     * @throws IOException if this modifier's own inputs could not be read
+     * @throws org.gradle.api.InvalidUserDataException if this modifier does
+     *     not apply to the input
+     */
+    default void validate(final ClassHierarchyIndex input) throws IOException {
+    }
+
 }
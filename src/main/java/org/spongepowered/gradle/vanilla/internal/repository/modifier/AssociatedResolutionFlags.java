@@ -24,6 +24,8 @@
  */
 package org.spongepowered.gradle.vanilla.internal.repository.modifier;
 
+import java.nio.file.Path;
+
 /**
  * Flags to configure the resolution of associated artifacts
  */
@@ -32,6 +34,11 @@ public enum AssociatedResolutionFlags {
     /**
      * For associated artifact generators that need to transform the original
      * input, this allows them to do so safely.
+     *
+     * <p>The generator must not write to the original. It instead writes the
+     * modified original to {@link #modifiedOriginal(Path)}, next to its
+     * output, and that is swapped in for the original once the generator
+     * completes. If nothing is written there, the original is kept.</p>
      */
     MODIFIES_ORIGINAL,
 
@@ -40,4 +47,17 @@ public enum AssociatedResolutionFlags {
      */
     FORCE_REGENERATE;
 
+    /**
+     * Get where a generator with {@link #MODIFIES_ORIGINAL} should write the
+     * modified original.
+     *
+     * @param output the output path given to the generator
+     * @return the path to write the modified original to
+     */
+    public static Path modifiedOriginal(final Path output) {
+        final String name = output.getFileName().toString();
+        final int extension = name.lastIndexOf('.');
+        return output.resolveSibling((extension == -1 ? name : name.substring(0, extension)) + "-original.jar");
+    }
+
 }
@@ -0,0 +1,66 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.repository.modifier;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * An artifact modifier that can update a previous output of the same
+ * modifier, rather than transforming every class in its input again.
+ *
+ * <p>The modifier's state description is stored alongside each artifact it
+ * produces. When a new state is requested, the resolver can hand the state of
+ * an earlier output back to the modifier to find out which classes differ
+ * between the two.</p>
+ */
+public interface IncrementalArtifactModifier extends ArtifactModifier {
+
+    /**
+     * Describe the full inputs of this modifier.
+     *
+     * <p>Unlike the {@link #stateKey()}, this must contain enough information
+     * to compute a difference against another state.</p>
+     *
+     * @return a textual description of this modifier's state
+     * @throws IOException if any inputs could not be read
+     */
+    String describeState() throws IOException;
+
+    /**
+     * Find the classes that may be transformed differently under the current
+     * state than under a previous state.
+     *
+     * @param previousState a state previously produced by
+     *     {@link #describeState()}
+     * @return the internal names of affected classes, or {@code null} if the
+     *     difference cannot be applied incrementally
+     * @throws IOException if any inputs could not be read
+     */
+    @Nullable Set<String> affectedClasses(final String previousState) throws IOException;
+
+}
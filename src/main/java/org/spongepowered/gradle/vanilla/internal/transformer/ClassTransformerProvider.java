@@ -37,6 +37,23 @@ public interface ClassTransformerProvider extends AutoCloseable {
 
     UnaryOperator<ClassVisitor> provide();
 
+    /**
+     * The {@link org.objectweb.asm.ClassReader} parsing options this
+     * transformer works with.
+     *
+     * <p>{@link org.objectweb.asm.ClassReader#SKIP_DEBUG} and
+     * {@link org.objectweb.asm.ClassReader#SKIP_FRAMES} declare that the
+     * transformer neither needs that information nor needs it preserved in
+     * the output, and are only used if every transformer in a chain declares
+     * them. Skipping frames is only safe for transformers that recompute
+     * them. Any other option is used if any transformer declares it.</p>
+     *
+     * @return the parsing options
+     */
+    default int readerFlags() {
+        return 0;
+    }
+
     @Override
     default void close() throws IOException {
     }
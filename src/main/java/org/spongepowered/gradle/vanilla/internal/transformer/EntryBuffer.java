@@ -0,0 +1,112 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.transformer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A growable buffer for reading whole jar entries, reused by each thread.
+ *
+ * <p>Reading entries into a reused buffer avoids allocating (and then
+ * copying) a new array for every entry of a jar. Contents are only valid
+ * until the next read on the same thread.</p>
+ */
+final class EntryBuffer {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    // Don't hold onto the occasional huge entry for the lifetime of the thread
+    private static final int MAX_RETAINED_CAPACITY = 8 * 1024 * 1024;
+    private static final ThreadLocal<EntryBuffer> LOCAL = ThreadLocal.withInitial(EntryBuffer::new);
+
+    private byte[] bytes = new byte[EntryBuffer.INITIAL_CAPACITY];
+    private int length;
+
+    private EntryBuffer() {
+    }
+
+    /**
+     * Get the buffer for the current thread.
+     *
+     * @return the buffer
+     */
+    static EntryBuffer local() {
+        return EntryBuffer.LOCAL.get();
+    }
+
+    /**
+     * Replace the contents of this buffer with the rest of a stream.
+     *
+     * @param in the stream to read
+     * @param sizeHint the expected number of bytes, or {@code -1} if unknown
+     * @return this buffer
+     * @throws IOException if the stream could not be read
+     */
+    EntryBuffer read(final InputStream in, final long sizeHint) throws IOException {
+        if (this.bytes.length > EntryBuffer.MAX_RETAINED_CAPACITY) {
+            this.bytes = new byte[EntryBuffer.INITIAL_CAPACITY];
+        }
+        if (sizeHint > this.bytes.length && sizeHint < Integer.MAX_VALUE - 8) {
+            this.bytes = new byte[(int) sizeHint];
+        }
+
+        int length = 0;
+        while (true) {
+            if (length == this.bytes.length) {
+                // Only grow if the stream really has more, an exact size hint fills the buffer
+                final int next = in.read();
+                if (next == -1) {
+                    break;
+                }
+                final byte[] grown = new byte[Math.multiplyExact(this.bytes.length, 2)];
+                System.arraycopy(this.bytes, 0, grown, 0, length);
+                grown[length++] = (byte) next;
+                this.bytes = grown;
+            }
+            final int read = in.read(this.bytes, length, this.bytes.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * The backing array, of which only the first {@link #length()} bytes are
+     * valid.
+     *
+     * @return the backing array
+     */
+    byte[] array() {
+        return this.bytes;
+    }
+
+    int length() {
+        return this.length;
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.transformer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * How entries are compressed when writing a jar.
+ *
+ * <p>Jars that are only read back by later processing stages, or put on a
+ * development classpath, gain little from compression, and are cheaper to
+ * both write and read when their entries are stored.</p>
+ */
+public final class JarCompression {
+
+    /**
+     * Store entries without compression.
+     */
+    public static final JarCompression STORED = new JarCompression(ZipEntry.STORED, 0);
+
+    /**
+     * Compress entries with the default deflate level.
+     */
+    public static final JarCompression DEFAULT = new JarCompression(ZipEntry.DEFLATED, Deflater.DEFAULT_COMPRESSION);
+
+    private static final String STORED_NAME = "stored";
+    private static final String DEFLATED_NAME = "deflated";
+
+    private final int method;
+    private final int level;
+
+    private JarCompression(final int method, final int level) {
+        this.method = method;
+        this.level = level;
+    }
+
+    /**
+     * Compress entries with a specific deflate level.
+     *
+     * @param level the level, from 0 to 9
+     * @return a compression strategy
+     */
+    public static JarCompression deflated(final int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Deflate level must be between 0 and 9, but was " + level);
+        }
+        return new JarCompression(ZipEntry.DEFLATED, level);
+    }
+
+    /**
+     * Parse a compression strategy from its textual form.
+     *
+     * <p>Accepted values are {@code stored}, {@code deflated}, and
+     * {@code deflated:<level>}.</p>
+     *
+     * @param value the value to parse
+     * @return the compression strategy
+     * @throws IllegalArgumentException if the value is not a known strategy
+     */
+    public static JarCompression parse(final String value) {
+        final String normalized = value.trim().toLowerCase(Locale.ROOT);
+        if (normalized.equals(JarCompression.STORED_NAME)) {
+            return JarCompression.STORED;
+        } else if (normalized.equals(JarCompression.DEFLATED_NAME)) {
+            return JarCompression.DEFAULT;
+        } else if (normalized.startsWith(JarCompression.DEFLATED_NAME + ':')) {
+            try {
+                return JarCompression.deflated(Integer.parseInt(normalized.substring(JarCompression.DEFLATED_NAME.length() + 1)));
+            } catch (final NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid deflate level in jar compression '" + value + "'", ex);
+            }
+        }
+        throw new IllegalArgumentException("Unknown jar compression '" + value + "', expected one of 'stored', 'deflated', or 'deflated:<level>'");
+    }
+
+    /**
+     * Open a zip output stream using this compression.
+     *
+     * @param out the stream to write to
+     * @return a new zip output stream
+     */
+    public ZipOutputStream open(final OutputStream out) {
+        final ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setMethod(this.method);
+        if (this.method == ZipEntry.DEFLATED) {
+            zip.setLevel(this.level);
+        }
+        return zip;
+    }
+
+    /**
+     * Write a complete entry to a stream opened by {@link #open(OutputStream)}.
+     *
+     * <p>Stored entries have their size and checksum computed up front, as
+     * the zip format requires.</p>
+     *
+     * @param out the stream to write to
+     * @param original the entry to copy the name and modification time from
+     * @param contents the contents of the entry
+     * @throws IOException if the entry could not be written
+     */
+    public void write(final ZipOutputStream out, final ZipEntry original, final byte[] contents) throws IOException {
+        this.write(out, original, contents, contents.length);
+    }
+
+    /**
+     * Write a complete entry to a stream opened by {@link #open(OutputStream)},
+     * from the start of a possibly larger buffer.
+     *
+     * @param out the stream to write to
+     * @param original the entry to copy the name and modification time from
+     * @param contents a buffer starting with the contents of the entry
+     * @param length the length of the contents
+     * @throws IOException if the entry could not be written
+     */
+    public void write(final ZipOutputStream out, final ZipEntry original, final byte[] contents, final int length) throws IOException {
+        final ZipEntry entry = new ZipEntry(original.getName());
+        if (original.getTime() != -1) {
+            entry.setTime(original.getTime());
+        }
+        if (this.method == ZipEntry.STORED) {
+            final CRC32 crc = new CRC32();
+            crc.update(contents, 0, length);
+            entry.setSize(length);
+            entry.setCompressedSize(length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(contents, 0, length);
+        out.closeEntry();
+    }
+
+    /**
+     * Options for a zip file system that writes new entries with this
+     * compression.
+     *
+     * <p>The zip file system does not support configuring a deflate level.</p>
+     *
+     * @return the file system environment
+     */
+    public Map<String, ?> fileSystemEnvironment() {
+        return Map.of("compressionMethod", this.method == ZipEntry.STORED ? "STORED" : "DEFLATED");
+    }
+
+    @Override
+    public String toString() {
+        return this.method == ZipEntry.STORED ? JarCompression.STORED_NAME : JarCompression.DEFLATED_NAME + ':' + this.level;
+    }
+
+}
@@ -28,19 +28,28 @@
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.UnaryOperator;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -48,10 +57,16 @@
  * Transforms the content of a jar.
  */
 public class JarTransformer {
-    private final UnaryOperator<ClassVisitor>[] transformers;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
-    private JarTransformer(final UnaryOperator<ClassVisitor>[] transformers) {
-        this.transformers = transformers;
+    private final UnaryOperator<ClassVisitor> chain;
+    private final int readerFlags;
+    private final JarCompression compression;
+
+    private JarTransformer(final UnaryOperator<ClassVisitor> chain, final int readerFlags, final JarCompression compression) {
+        this.chain = chain;
+        this.readerFlags = readerFlags;
+        this.compression = compression;
     }
 
     /**
@@ -62,23 +77,22 @@ private JarTransformer(final UnaryOperator<ClassVisitor>[] transformers) {
      * @throws IOException if an error occurs while reading or writing the jars.
      */
     public void transform(final Path inputJar, final Path outputJar) throws IOException {
-        try (final ZipInputStream zipIn = new ZipInputStream(Files.newInputStream(inputJar));
-             final ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(outputJar))) {
+        try (final ZipInputStream zipIn = new ZipInputStream(new BufferedInputStream(Files.newInputStream(inputJar), JarTransformer.STREAM_BUFFER_SIZE));
+             final ZipOutputStream zipOut = this.compression.open(new BufferedOutputStream(Files.newOutputStream(outputJar), JarTransformer.STREAM_BUFFER_SIZE))) {
 
+            // Entries are buffered so stored entries can have their checksum computed up front
+            final EntryBuffer buffer = EntryBuffer.local();
             ZipEntry entry;
             while ((entry = zipIn.getNextEntry()) != null) {
-                zipOut.putNextEntry(entry);
-
                 final String name = entry.getName();
                 if (name.endsWith(".class")) {
-                    this.transformClass(zipIn, zipOut);
+                    this.compression.write(zipOut, entry, this.transformClass(buffer.read(zipIn, entry.getSize())));
                 } else if (name.equals("META-INF/MANIFEST.MF")) {
-                    this.transformManifest(zipIn, zipOut);
+                    this.compression.write(zipOut, entry, this.transformManifest(zipIn));
                 } else {
-                    zipIn.transferTo(zipOut);
+                    buffer.read(zipIn, entry.getSize());
+                    this.compression.write(zipOut, entry, buffer.array(), buffer.length());
                 }
-
-                zipOut.closeEntry();
             }
         }
     }
@@ -86,29 +100,96 @@ public void transform(final Path inputJar, final Path outputJar) throws IOExcept
     /**
      * Applies class transformers.
      *
-     * @param in The input stream.
-     * @param out The output stream.
-     * @throws IOException if an error occurs while reading or writing the entry.
+     * @param classBytes A buffer containing the class file contents.
+     * @return The transformed class file.
      */
-    private void transformClass(final InputStream in, final OutputStream out) throws IOException {
-        final ClassReader reader = new ClassReader(in.readAllBytes());
+    byte[] transformClass(final EntryBuffer classBytes) {
+        // Read straight from the shared buffer, the writer copies the constant pool from the reader
+        final ClassReader reader = new ClassReader(classBytes.array(), 0, classBytes.length());
         final ClassWriter writer = new ClassWriter(reader, 0);
-        ClassVisitor visitor = writer;
-        for (final UnaryOperator<ClassVisitor> transformer : this.transformers) {
-            visitor = transformer.apply(visitor);
+        reader.accept(this.chain.apply(writer), this.readerFlags);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Updates a previous output of this transformer's operations, only
+     * re-transforming classes whose transformation may have changed.
+     *
+     * <p>The previous output must have been produced from the same input jar.
+     * Affected classes are transformed again from the input jar, and every
+     * other entry is copied from the previous output without being
+     * recompressed. Classes referencing an affected nested class are also
+     * transformed again, since transformers can change the inner class
+     * attributes that describe it.</p>
+     *
+     * @param inputJar The input jar.
+     * @param previousOutputJar The output jar of an earlier transformation of the input jar.
+     * @param outputJar The output jar.
+     * @param affectedClasses The internal names of classes to transform again.
+     * @return the number of classes that were transformed
+     * @throws IOException if an error occurs while reading or writing the jars.
+     */
+    public int patch(final Path inputJar, final Path previousOutputJar, final Path outputJar, final Set<String> affectedClasses) throws IOException {
+        final List<byte[]> nestedNames = new ArrayList<>();
+        for (final String affected : affectedClasses) {
+            if (affected.indexOf('$') != -1) {
+                nestedNames.add(affected.getBytes(StandardCharsets.UTF_8));
+            }
         }
-        reader.accept(visitor, 0);
-        out.write(writer.toByteArray());
+
+        Files.copy(previousOutputJar, outputJar, StandardCopyOption.REPLACE_EXISTING);
+        int transformed = 0;
+        try (final ZipFile input = new ZipFile(inputJar.toFile());
+             final FileSystem output = FileSystems.newFileSystem(outputJar, this.compression.fileSystemEnvironment())) {
+            final EntryBuffer buffer = EntryBuffer.local();
+            final Enumeration<? extends ZipEntry> entries = input.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (!name.endsWith(".class")) {
+                    continue;
+                }
+
+                final boolean directlyAffected = affectedClasses.contains(name.substring(0, name.length() - ".class".length()));
+                if (!directlyAffected && nestedNames.isEmpty()) {
+                    continue;
+                }
+
+                try (final InputStream is = input.getInputStream(entry)) {
+                    buffer.read(is, entry.getSize());
+                }
+                if (directlyAffected || JarTransformer.containsAny(buffer.array(), buffer.length(), nestedNames)) {
+                    Files.write(output.getPath(name), this.transformClass(buffer));
+                    transformed++;
+                }
+            }
+        }
+        return transformed;
+    }
+
+    private static boolean containsAny(final byte[] haystack, final int length, final List<byte[]> needles) {
+        for (final byte[] needle : needles) {
+            outer:
+            for (int i = 0, max = length - needle.length; i <= max; i++) {
+                for (int j = 0; j < needle.length; j++) {
+                    if (haystack[i + j] != needle[j]) {
+                        continue outer;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Strips all class signatures.
      *
      * @param in The input stream.
-     * @param out The output stream.
+     * @return The transformed manifest.
      * @throws IOException if an error occurs while reading or writing the entry.
      */
-    private void transformManifest(final InputStream in, final OutputStream out) throws IOException {
+    private byte[] transformManifest(final InputStream in) throws IOException {
         final Manifest manifest = new Manifest(in);
         manifest.getEntries().entrySet().removeIf((entry) -> {
             final String name = entry.getKey();
@@ -123,7 +204,9 @@ private void transformManifest(final InputStream in, final OutputStream out) thr
             });
             return attributes.isEmpty();
         });
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
         manifest.write(out);
+        return out.toByteArray();
     }
 
     public static Builder builder() {
@@ -131,22 +214,57 @@ public static Builder builder() {
     }
 
     public static class Builder {
+        private static final int SKIP_FLAGS = ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
         private final List<UnaryOperator<ClassVisitor>> transformers = new ArrayList<>();
+        private int skipFlags = Builder.SKIP_FLAGS;
+        private int requiredFlags;
+        private JarCompression compression = JarCompression.DEFAULT;
 
         private Builder() {}
 
+        /**
+         * Add a transformer, which may need every part of a class to be read.
+         *
+         * @param transformer the transformer
+         * @return this builder
+         */
         public Builder add(final UnaryOperator<ClassVisitor> transformer) {
+            return this.add(transformer, 0);
+        }
+
+        public Builder add(final ClassTransformerProvider provider) {
+            Objects.requireNonNull(provider, "provider");
+            return this.add(provider.provide(), provider.readerFlags());
+        }
+
+        private Builder add(final UnaryOperator<ClassVisitor> transformer, final int readerFlags) {
             this.transformers.add(Objects.requireNonNull(transformer, "transformer"));
+            // Parts of a class can only be skipped if every transformer allows it
+            this.skipFlags &= readerFlags;
+            this.requiredFlags |= readerFlags & ~Builder.SKIP_FLAGS;
             return this;
         }
 
-        public Builder add(final ClassTransformerProvider provider) {
-            return this.add(Objects.requireNonNull(provider, "provider").provide());
+        public Builder compression(final JarCompression compression) {
+            this.compression = Objects.requireNonNull(compression, "compression");
+            return this;
         }
 
         @SuppressWarnings("unchecked")
         public JarTransformer build() {
-            return new JarTransformer(this.transformers.toArray(new UnaryOperator[0]));
+            // Compose the chain once, rather than walking the list for every class
+            final UnaryOperator<ClassVisitor>[] transformers = this.transformers.toArray(new UnaryOperator[0]);
+            final UnaryOperator<ClassVisitor> chain = writer -> {
+                ClassVisitor visitor = writer;
+                for (final UnaryOperator<ClassVisitor> transformer : transformers) {
+                    visitor = transformer.apply(visitor);
+                }
+                return visitor;
+            };
+            // With no transformers, classes are copied as-is
+            final int readerFlags = transformers.length == 0 ? 0 : this.skipFlags | this.requiredFlags;
+            return new JarTransformer(chain, readerFlags, this.compression);
         }
     }
 }
@@ -29,8 +29,11 @@
 import java.io.IOException;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -84,6 +87,37 @@ public static Path temporaryPath(final Path parent, final String key) throws IOE
         return Files.createTempFile(parent, "." + key, "");
     }
 
+    /**
+     * Delete a file or directory, and everything inside it.
+     *
+     * <p>Symbolic links are deleted, not followed.</p>
+     *
+     * @param path the path to delete
+     * @throws IOException if any file could not be deleted
+     */
+    public static void deleteRecursively(final Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final @Nullable IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
     public static @Nullable BasicFileAttributes fileAttributesIfExists(final Path file) {
         try {
             return Files.getFileAttributeView(file, BasicFileAttributeView.class).readAttributes();
@@ -0,0 +1,348 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.util;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * A read-only zip file, indexed once when opened.
+ *
+ * <p>The central directory is parsed once when the file is opened, and
+ * entries are read with positional reads of the file. Any number of entries
+ * may be read concurrently from different threads. The file is not mapped
+ * into memory, so once closed it can be replaced or deleted straight away,
+ * even on Windows.</p>
+ *
+ * <p>Zip64 archives are not supported.</p>
+ */
+public final class IndexedZip implements AutoCloseable {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int LOC_SIZE = 30;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+
+    private IndexedZip(final Path path, final FileChannel channel, final Map<String, Entry> entries) {
+        this.path = path;
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    /**
+     * Open and index a zip file.
+     *
+     * @param path the file to open
+     * @return the opened zip
+     * @throws IOException if the file could not be read, or is not a valid zip
+     */
+    public static IndexedZip open(final Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new IndexedZip(path, channel, IndexedZip.readCentralDirectory(path, channel));
+        } catch (final IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private static Map<String, Entry> readCentralDirectory(final Path path, final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        if (size < IndexedZip.EOCD_SIZE) {
+            throw new ZipException("Zip file " + path + " is too short to be a zip file");
+        }
+
+        // Find the end of central directory record, searching backwards past any comment
+        // The comment may itself contain the signature, so only accept a record whose comment ends the file
+        final int tailSize = (int) Math.min(size, IndexedZip.EOCD_SIZE + IndexedZip.MAX_COMMENT_SIZE);
+        final long tailStart = size - tailSize;
+        final ByteBuffer tail = IndexedZip.read(channel, tailStart, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - IndexedZip.EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == IndexedZip.EOCD_SIGNATURE
+                && i + IndexedZip.EOCD_SIZE + Short.toUnsignedInt(tail.getShort(i + 20)) == tailSize) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd == -1) {
+            throw new ZipException("Could not find the end of the central directory in " + path);
+        }
+
+        final int count = Short.toUnsignedInt(tail.getShort(eocd + 10));
+        final long cenSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+        final long cenOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+        if (count == 0xFFFF || cenSize == IndexedZip.ZIP64_MAGIC || cenOffset == IndexedZip.ZIP64_MAGIC) {
+            throw new ZipException("Zip64 archives are not supported, in " + path);
+        }
+        if (cenOffset + cenSize > tailStart + eocd) {
+            throw new ZipException("Central directory at offset " + cenOffset + " with size " + cenSize + " overlaps the end of the central directory in " + path);
+        }
+
+        final ByteBuffer cen = IndexedZip.read(channel, cenOffset, (int) cenSize);
+        final Map<String, Entry> entries = LinkedHashMap.newLinkedHashMap(count);
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos + IndexedZip.CEN_SIZE > cen.limit() || cen.getInt(pos) != IndexedZip.CEN_SIGNATURE) {
+                throw new ZipException("Invalid central directory entry at offset " + (cenOffset + pos) + " in " + path);
+            }
+            final int method = Short.toUnsignedInt(cen.getShort(pos + 10));
+            final long crc = Integer.toUnsignedLong(cen.getInt(pos + 16));
+            final long compressedSize = Integer.toUnsignedLong(cen.getInt(pos + 20));
+            final long uncompressedSize = Integer.toUnsignedLong(cen.getInt(pos + 24));
+            final int nameLength = Short.toUnsignedInt(cen.getShort(pos + 28));
+            final int extraLength = Short.toUnsignedInt(cen.getShort(pos + 30));
+            final int commentLength = Short.toUnsignedInt(cen.getShort(pos + 32));
+            final long localOffset = Integer.toUnsignedLong(cen.getInt(pos + 42));
+            final int next = pos + IndexedZip.CEN_SIZE + nameLength + extraLength + commentLength;
+            if (next > cen.limit()) {
+                throw new ZipException("Central directory entry at offset " + (cenOffset + pos) + " extends past the central directory in " + path);
+            }
+            if (compressedSize == IndexedZip.ZIP64_MAGIC || uncompressedSize == IndexedZip.ZIP64_MAGIC || localOffset == IndexedZip.ZIP64_MAGIC) {
+                throw new ZipException("Zip64 entries are not supported, in " + path);
+            }
+            // Entry data lies between its local header and the central directory
+            if (localOffset + IndexedZip.LOC_SIZE + compressedSize > cenOffset) {
+                throw new ZipException("Central directory entry at offset " + (cenOffset + pos) + " points outside the file data in " + path);
+            }
+
+            final byte[] name = new byte[nameLength];
+            cen.get(pos + IndexedZip.CEN_SIZE, name);
+            final Entry entry = new Entry(new String(name, StandardCharsets.UTF_8), method, crc, compressedSize, uncompressedSize, localOffset);
+            entries.put(entry.name(), entry);
+            pos = next;
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    private static ByteBuffer read(final FileChannel channel, final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new ZipException("Unexpected end of file at offset " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Get the file this zip was opened from.
+     *
+     * @return the file
+     */
+    public Path path() {
+        return this.path;
+    }
+
+    /**
+     * Get an entry by name.
+     *
+     * @param name the entry name
+     * @return the entry, if present
+     */
+    public @Nullable Entry entry(final String name) {
+        return this.entries.get(name);
+    }
+
+    /**
+     * Get every entry, in central directory order.
+     *
+     * @return the entries
+     */
+    public Collection<Entry> entries() {
+        return this.entries.values();
+    }
+
+    /**
+     * Get the offset of an entry's raw, possibly compressed, data.
+     *
+     * @param entry the entry
+     * @return the offset of the data within the file
+     * @throws IOException if the entry's local header is invalid
+     */
+    private long dataOffset(final Entry entry) throws IOException {
+        final ByteBuffer loc = IndexedZip.read(this.channel, entry.localHeaderOffset(), IndexedZip.LOC_SIZE);
+        if (loc.getInt(0) != IndexedZip.LOC_SIGNATURE) {
+            throw new ZipException("Invalid local header for " + entry.name() + " in " + this.path);
+        }
+        final long start = entry.localHeaderOffset() + IndexedZip.LOC_SIZE + Short.toUnsignedInt(loc.getShort(26)) + Short.toUnsignedInt(loc.getShort(28));
+        if (start + entry.compressedSize() > this.channel.size()) {
+            throw new ZipException("Data for " + entry.name() + " extends past the end of " + this.path);
+        }
+        return start;
+    }
+
+    /**
+     * Open a stream over the uncompressed contents of an entry.
+     *
+     * @param entry the entry to read
+     * @return a new stream
+     * @throws IOException if the entry cannot be read
+     */
+    public InputStream open(final Entry entry) throws IOException {
+        final InputStream raw = new EntryInputStream(this.channel, this.dataOffset(entry), entry.compressedSize());
+        return switch (entry.method()) {
+            case ZipEntry.STORED -> raw;
+            case ZipEntry.DEFLATED -> new InflaterInputStream(raw, new Inflater(true), IndexedZip.BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    this.inf.end();
+                }
+            };
+            default -> throw new ZipException("Unsupported compression method " + entry.method() + " for " + entry.name() + " in " + this.path);
+        };
+    }
+
+    /**
+     * Write the uncompressed contents of an entry to a file, updating a
+     * digest with the contents as they are written.
+     *
+     * <p>Stored entries without a digest are transferred directly between
+     * the files.</p>
+     *
+     * @param entry the entry to extract
+     * @param target the file to write
+     * @param digest a digest to update, if any
+     * @throws IOException if the entry could not be read or written
+     */
+    public void extract(final Entry entry, final Path target, final @Nullable MessageDigest digest) throws IOException {
+        try (final FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (entry.method() == ZipEntry.STORED && digest == null) {
+                final long start = this.dataOffset(entry);
+                long transferred = 0;
+                while (transferred < entry.compressedSize()) {
+                    transferred += this.channel.transferTo(start + transferred, entry.compressedSize() - transferred, out);
+                }
+                return;
+            }
+
+            final byte[] buffer = new byte[IndexedZip.BUFFER_SIZE];
+            try (final InputStream is = this.open(entry)) {
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    if (digest != null) {
+                        digest.update(buffer, 0, read);
+                    }
+                    final ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        out.write(chunk);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * An entry in the central directory.
+     *
+     * @param name the entry name
+     * @param method the compression method
+     * @param crc the CRC-32 of the uncompressed data
+     * @param compressedSize the size of the data as stored
+     * @param size the uncompressed size
+     * @param localHeaderOffset the offset of the entry's local header
+     */
+    public record Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+    }
+
+    /**
+     * A stream over a range of a file, using positional reads so any number
+     * may read the same channel at once.
+     */
+    static final class EntryInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        EntryInputStream(final FileChannel channel, final long position, final long length) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return this.read(single, 0, 1) == -1 ? -1 : Byte.toUnsignedInt(single[0]);
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (this.remaining == 0) {
+                return -1;
+            }
+            final int read = this.channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, this.remaining)), this.position);
+            if (read == -1) {
+                throw new ZipException("Unexpected end of file, " + this.remaining + " bytes short of the end of an entry");
+            }
+            this.position += read;
+            this.remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(this.remaining, Integer.MAX_VALUE);
+        }
+
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.util;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Watches in-flight resolution stages, and reports those that take
+ * suspiciously long.
+ *
+ * <p>A stage that never completes would otherwise leave every thread
+ * waiting on it blocked until the build is killed, with no hint as to why.
+ * Once a stage has run for longer than the threshold, every in-flight stage
+ * is logged along with the state of anything registered as
+ * {@link Diagnosable}, such as the download queue and synchronous task
+ * loops. Optionally, stalled stages are then failed with a
+ * {@link StalledException}, so the build fails instead of hanging.</p>
+ */
+public final class ResolutionWatchdog implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolutionWatchdog.class);
+    private static final Duration MIN_CHECK_INTERVAL = Duration.ofSeconds(1);
+    private static final ResolutionWatchdog DISABLED = new ResolutionWatchdog(Duration.ZERO, false, null);
+
+    private final Duration threshold;
+    private final boolean failStalled;
+    private final ConcurrentMap<CompletableFuture<?>, Stage> stages = new ConcurrentHashMap<>();
+    private final Set<Diagnosable> diagnosables = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final @Nullable ScheduledExecutorService scheduler;
+
+    /**
+     * Something that can describe its current state when stages stall.
+     */
+    @FunctionalInterface
+    public interface Diagnosable {
+
+        /**
+         * Describe the current state, for diagnosing a stall.
+         *
+         * @return a description, or an empty string if there is nothing of
+         *     interest to report
+         */
+        String describeState();
+
+    }
+
+    /**
+     * Thrown to fail a stage that stalled.
+     */
+    public static final class StalledException extends TimeoutException {
+
+        private static final long serialVersionUID = 1L;
+
+        StalledException(final String message) {
+            super(message);
+        }
+
+    }
+
+    private ResolutionWatchdog(final Duration threshold, final boolean failStalled, final @Nullable ScheduledExecutorService scheduler) {
+        this.threshold = threshold;
+        this.failStalled = failStalled;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Create a watchdog.
+     *
+     * @param threshold how long a stage may run before it is reported, or
+     *     zero to disable the watchdog
+     * @param failStalled whether to fail stages once they are reported
+     * @return a new watchdog
+     */
+    public static ResolutionWatchdog create(final Duration threshold, final boolean failStalled) {
+        if (threshold.isZero() || threshold.isNegative()) {
+            return ResolutionWatchdog.DISABLED;
+        }
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            final Thread thread = new Thread(task, "VanillaGradle resolution watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final ResolutionWatchdog watchdog = new ResolutionWatchdog(threshold, failStalled, scheduler);
+        final Duration quarter = threshold.dividedBy(4);
+        final long interval = (quarter.compareTo(ResolutionWatchdog.MIN_CHECK_INTERVAL) < 0 ? ResolutionWatchdog.MIN_CHECK_INTERVAL : quarter).toMillis();
+        scheduler.scheduleWithFixedDelay(watchdog::check, interval, interval, TimeUnit.MILLISECONDS);
+        return watchdog;
+    }
+
+    /**
+     * Get a watchdog that tracks nothing.
+     *
+     * @return a disabled watchdog
+     */
+    public static ResolutionWatchdog disabled() {
+        return ResolutionWatchdog.DISABLED;
+    }
+
+    /**
+     * Track a stage until its future completes.
+     *
+     * <p>The future itself is never completed by the watchdog, since it may
+     * be shared with other requests for the same work. Instead, a dependent
+     * future is returned, which is failed with a {@link StalledException}
+     * if the stage stalls and stalled stages are failed. Tracking a future
+     * that is already tracked only adds another dependent.</p>
+     *
+     * @param name a description of the stage
+     * @param future the future completed by the stage
+     * @param <T> the result type
+     * @return a future completed with the result of the stage
+     */
+    public <T> CompletableFuture<T> track(final String name, final CompletableFuture<T> future) {
+        if (this.scheduler == null || future.isDone()) {
+            return future;
+        }
+        final CompletableFuture<T> dependent = future.copy();
+        final Stage created = new Stage(name, Instant.now());
+        final @Nullable Stage existing = this.stages.putIfAbsent(future, created);
+        final Stage stage = existing == null ? created : existing;
+        if (existing == null) {
+            future.whenComplete(($, $$) -> this.stages.remove(future));
+        }
+        stage.dependents.add(dependent);
+        dependent.whenComplete(($, $$) -> stage.dependents.remove(dependent));
+        final @Nullable StalledException failure = stage.failure;
+        if (failure != null) {
+            // the stage was already failed, so anything waiting on it now fails too
+            dependent.completeExceptionally(failure);
+        }
+        return dependent;
+    }
+
+    /**
+     * Include the state of an object in stall reports, for as long as it is
+     * otherwise reachable.
+     *
+     * @param diagnosable the object to describe
+     */
+    public void watch(final Diagnosable diagnosable) {
+        if (this.scheduler != null) {
+            this.diagnosables.add(diagnosable);
+        }
+    }
+
+    private void check() {
+        try {
+            final Instant now = Instant.now();
+            final List<Stage> stalled = new ArrayList<>();
+            for (final Stage stage : this.stages.values()) {
+                if (!stage.reported && Duration.between(stage.started, now).compareTo(this.threshold) > 0) {
+                    stage.reported = true;
+                    stalled.add(stage);
+                }
+            }
+            if (stalled.isEmpty()) {
+                return;
+            }
+
+            final String report = this.report(now);
+            ResolutionWatchdog.LOGGER.warn(
+                "{} Minecraft resolution stage(s) have not completed in {}. Current state:\n{}",
+                stalled.size(),
+                this.threshold,
+                report
+            );
+            if (this.failStalled) {
+                for (final Stage stage : stalled) {
+                    final StalledException failure = new StalledException(
+                        "'" + stage.name + "' did not complete within " + this.threshold + ". State when it was failed:\n" + report
+                    );
+                    stage.failure = failure;
+                    for (final CompletableFuture<?> dependent : stage.dependents) {
+                        dependent.completeExceptionally(failure);
+                    }
+                }
+            }
+        } catch (final RuntimeException ex) {
+            // never let the check die, or later stalls would go unreported
+            ResolutionWatchdog.LOGGER.error("Failed to check for stalled resolution stages", ex);
+        }
+    }
+
+    private String report(final Instant now) {
+        final StringBuilder report = new StringBuilder("In-flight stages:");
+        final List<Stage> inFlight = new ArrayList<>(this.stages.values());
+        inFlight.sort(Comparator.comparing(stage -> stage.started));
+        for (final Stage stage : inFlight) {
+            report.append("\n  ").append(stage.name).append(" (running for ").append(Duration.between(stage.started, now).toSeconds()).append("s)");
+        }
+        final List<Diagnosable> diagnosables;
+        synchronized (this.diagnosables) {
+            diagnosables = new ArrayList<>(this.diagnosables);
+        }
+        for (final Diagnosable diagnosable : diagnosables) {
+            final String state = diagnosable.describeState();
+            if (!state.isEmpty()) {
+                report.append("\n").append(state);
+            }
+        }
+        return report.toString();
+    }
+
+    @Override
+    public void close() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        this.stages.clear();
+    }
+
+    static final class Stage {
+        final String name;
+        final Instant started;
+        final Set<CompletableFuture<?>> dependents = ConcurrentHashMap.newKeySet();
+        volatile boolean reported;
+        volatile @Nullable StalledException failure;
+
+        Stage(final String name, final Instant started) {
+            this.name = name;
+            this.started = started;
+        }
+    }
+
+}
@@ -0,0 +1,293 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.util;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A directory inside a cache root that outputs are prepared in before being
+ * published to the cache.
+ *
+ * <p>Staging next to the cache, rather than in the system temporary
+ * directory, keeps staged files on the same file system as their final
+ * location, so publishing them is a plain rename.</p>
+ *
+ * <p>Each process stages files in its own directory, marked with the
+ * identity of its owner. Directories whose owning process no longer exists
+ * are left over from a build that was killed, and are removed whenever a new
+ * staging area is opened in the same cache root.</p>
+ *
+ * <p>Scratch files, which are never published, can optionally be staged in
+ * a memory-backed directory such as {@code /dev/shm} instead. A budget
+ * limits how much memory is used this way, and scratch space falls back to
+ * the cache root once it is exhausted.</p>
+ */
+public final class StagingArea implements AutoCloseable {
+
+    public static final String DIRECTORY = ".staging";
+    /**
+     * The default memory-backed directory, where one exists.
+     */
+    public static final Path SHARED_MEMORY = Path.of("/dev/shm");
+    private static final String MEMORY_DIRECTORY = "vanillagradle-staging";
+    private static final String OWNER_FILE = "owner";
+    private static final Logger LOGGER = LoggerFactory.getLogger(StagingArea.class);
+
+    private final Path directory;
+    private final @Nullable Path memoryDirectory;
+    private final long memoryBudget;
+    private final ConcurrentMap<Path, Long> memoryReservations = new ConcurrentHashMap<>();
+    private long memoryReserved;
+
+    private StagingArea(final Path directory, final @Nullable Path memoryDirectory, final long memoryBudget) {
+        this.directory = directory;
+        this.memoryDirectory = memoryDirectory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Open a staging area for this process in a cache root, cleaning up any
+     * stale staging directories left by other processes.
+     *
+     * @param cacheRoot the cache root to stage files in
+     * @return a new staging area
+     * @throws IOException if the staging directory could not be created
+     */
+    public static StagingArea open(final Path cacheRoot) throws IOException {
+        return new StagingArea(StagingArea.openDirectory(cacheRoot.resolve(StagingArea.DIRECTORY)), null, 0);
+    }
+
+    /**
+     * Open a staging area for this process in a cache root, staging scratch
+     * files in memory while within a budget.
+     *
+     * <p>If the memory-backed directory cannot be used, every file is
+     * staged in the cache root.</p>
+     *
+     * @param cacheRoot the cache root to stage files in
+     * @param memoryRoot a directory backed by memory
+     * @param memoryBudget the most bytes to stage in memory at once
+     * @return a new staging area
+     * @throws IOException if the staging directory could not be created
+     */
+    public static StagingArea open(final Path cacheRoot, final Path memoryRoot, final long memoryBudget) throws IOException {
+        final Path directory = StagingArea.openDirectory(cacheRoot.resolve(StagingArea.DIRECTORY));
+        Path memoryDirectory;
+        try {
+            memoryDirectory = StagingArea.openDirectory(memoryRoot.resolve(StagingArea.MEMORY_DIRECTORY));
+        } catch (final IOException ex) {
+            StagingArea.LOGGER.warn("Unable to stage files in memory at {}, staging on disk instead", memoryRoot, ex);
+            memoryDirectory = null;
+        }
+        return new StagingArea(directory, memoryDirectory, memoryBudget);
+    }
+
+    private static Path openDirectory(final Path root) throws IOException {
+        FileUtils.createDirectoriesSymlinkSafe(root);
+        StagingArea.sweep(root);
+
+        final ProcessHandle self = ProcessHandle.current();
+        final Path directory = Files.createTempDirectory(root, self.pid() + "-");
+        Files.writeString(directory.resolve(StagingArea.OWNER_FILE), StagingArea.ownerId(self), StandardCharsets.UTF_8);
+        return directory;
+    }
+
+    /**
+     * Remove every staging directory in a staging root whose owner is no
+     * longer running.
+     *
+     * @param root the staging root
+     * @return the number of directories removed
+     */
+    static int sweep(final Path root) {
+        int removed = 0;
+        try (final DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (final Path entry : entries) {
+                if (StagingArea.isOwnerAlive(entry)) {
+                    continue;
+                }
+
+                try {
+                    FileUtils.deleteRecursively(entry);
+                    removed++;
+                } catch (final IOException ex) {
+                    StagingArea.LOGGER.debug("Failed to remove stale staging directory {}", entry, ex);
+                }
+            }
+        } catch (final IOException ex) {
+            StagingArea.LOGGER.debug("Failed to list staging directories in {}", root, ex);
+        }
+
+        if (removed > 0) {
+            StagingArea.LOGGER.info("Removed {} stale staging directories from {}", removed, root);
+        }
+        return removed;
+    }
+
+    private static boolean isOwnerAlive(final Path stagingDir) {
+        final List<String> owner;
+        try {
+            owner = Files.readAllLines(stagingDir.resolve(StagingArea.OWNER_FILE), StandardCharsets.UTF_8);
+        } catch (final IOException ex) {
+            // Either the owner is still being written, or the process died before writing it
+            // Leave it until it is clearly abandoned
+            return StagingArea.modifiedWithinADay(stagingDir);
+        }
+
+        if (owner.isEmpty()) {
+            return StagingArea.modifiedWithinADay(stagingDir);
+        }
+
+        final long pid;
+        try {
+            pid = Long.parseLong(owner.getFirst().split(" ", 2)[0]);
+        } catch (final NumberFormatException ex) {
+            return false;
+        }
+
+        return ProcessHandle.of(pid)
+            .filter(ProcessHandle::isAlive)
+            .map(handle -> StagingArea.ownerId(handle).equals(owner.getFirst()))
+            .orElse(false);
+    }
+
+    private static boolean modifiedWithinADay(final Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isAfter(Instant.now().minusSeconds(24 * 60 * 60));
+        } catch (final IOException ex) {
+            return false;
+        }
+    }
+
+    private static String ownerId(final ProcessHandle process) {
+        // Process ids get reused, so the start time distinguishes between processes
+        final Optional<Instant> start = process.info().startInstant();
+        return start.map(instant -> process.pid() + " " + instant.toEpochMilli()).orElseGet(() -> Long.toString(process.pid()));
+    }
+
+    /**
+     * Create a new, empty directory to prepare outputs in.
+     *
+     * @param key a name describing what is being staged
+     * @return the new directory
+     * @throws IOException if the directory could not be created
+     */
+    public Path stage(final String key) throws IOException {
+        return Files.createTempDirectory(this.directory, key);
+    }
+
+    /**
+     * Create a new, empty directory for scratch files that will never be
+     * published.
+     *
+     * <p>The directory is in memory when the memory budget allows for its
+     * expected size, and otherwise on disk. Either way, it must be
+     * {@link #discard(Path) discarded} once it is no longer needed.</p>
+     *
+     * @param key a name describing what is being staged
+     * @param expectedSize an estimate of the most bytes that will be
+     *     written to the directory
+     * @return the new directory
+     * @throws IOException if the directory could not be created
+     */
+    public Path stageScratch(final String key, final long expectedSize) throws IOException {
+        final @Nullable Path memoryDirectory = this.memoryDirectory;
+        if (memoryDirectory != null && this.reserveMemory(memoryDirectory, expectedSize)) {
+            final Path scratch;
+            try {
+                scratch = Files.createTempDirectory(memoryDirectory, key);
+            } catch (final IOException ex) {
+                this.releaseMemory(expectedSize);
+                throw ex;
+            }
+            this.memoryReservations.put(scratch, expectedSize);
+            return scratch;
+        }
+        return this.stage(key);
+    }
+
+    /**
+     * Delete a staged directory and everything in it, returning any memory
+     * it used to the budget.
+     *
+     * @param staged the staged directory
+     * @throws IOException if the directory could not be deleted
+     */
+    public void discard(final Path staged) throws IOException {
+        try {
+            FileUtils.deleteRecursively(staged);
+        } finally {
+            final @Nullable Long reserved = this.memoryReservations.remove(staged);
+            if (reserved != null) {
+                this.releaseMemory(reserved);
+            }
+        }
+    }
+
+    private synchronized boolean reserveMemory(final Path memoryDirectory, final long size) {
+        if (this.memoryReserved + size > this.memoryBudget) {
+            return false;
+        }
+        try {
+            // Memory-backed file systems are also limited by the memory actually free
+            if (Files.getFileStore(memoryDirectory).getUsableSpace() < size) {
+                return false;
+            }
+        } catch (final IOException ex) {
+            return false;
+        }
+        this.memoryReserved += size;
+        return true;
+    }
+
+    private synchronized void releaseMemory(final long size) {
+        this.memoryReserved -= size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            FileUtils.deleteRecursively(this.directory);
+        } finally {
+            if (this.memoryDirectory != null) {
+                FileUtils.deleteRecursively(this.memoryDirectory);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.internal.util;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An executor for tasks that must run on a thread waiting for a result,
+ * rather than on a background pool.
+ *
+ * <p>Tasks may be submitted from any thread at any time, and are queued
+ * until a thread runs the loop through {@link #runUntilComplete(CompletableFuture, Duration)}.
+ * Any number of threads may run the loop at once, each until its own future
+ * completes. A task that itself waits on a future runs a nested loop, which
+ * returns as soon as that future completes without disturbing the outer
+ * one.</p>
+ */
+public final class SyncTaskLoop implements Executor, ResolutionWatchdog.Diagnosable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncTaskLoop.class);
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = this.lock.newCondition();
+    private final AtomicInteger running = new AtomicInteger();
+
+    @Override
+    public void execute(final Runnable task) {
+        this.tasks.add(task);
+        this.signal();
+    }
+
+    /**
+     * Run queued tasks on the current thread until a future completes.
+     *
+     * @param future the future to wait for
+     * @param timeout the longest time to wait, or {@code null} to wait
+     *     indefinitely
+     * @param <T> the result type
+     * @return the result of the future
+     * @throws ExecutionException if the future completed exceptionally, or
+     *     was cancelled
+     * @throws InterruptedException if the thread was interrupted while
+     *     waiting
+     * @throws TimeoutException if the future did not complete in time
+     */
+    public <T> T runUntilComplete(final CompletableFuture<T> future, final @Nullable Duration timeout)
+        throws ExecutionException, InterruptedException, TimeoutException {
+        if (!future.isDone()) {
+            // Wake this loop on completion, even when no tasks are submitted
+            future.whenComplete((res, err) -> this.signal());
+            final long deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+            this.lock.lockInterruptibly();
+            this.running.incrementAndGet();
+            try {
+                while (!future.isDone()) {
+                    final @Nullable Runnable task = this.tasks.poll();
+                    if (task != null) {
+                        this.lock.unlock();
+                        try {
+                            this.run(task);
+                        } finally {
+                            this.lock.lock();
+                        }
+                    } else if (timeout == null) {
+                        this.changed.await();
+                    } else {
+                        final long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new TimeoutException("Timed out after " + timeout + " waiting for " + future);
+                        }
+                        this.changed.awaitNanos(remaining);
+                    }
+                }
+            } finally {
+                this.running.decrementAndGet();
+                this.lock.unlock();
+            }
+        }
+
+        try {
+            return future.get();
+        } catch (final CancellationException ex) {
+            throw new ExecutionException(ex);
+        }
+    }
+
+    @Override
+    public String describeState() {
+        final int queued = this.tasks.size();
+        final int running = this.running.get();
+        if (queued == 0 && running == 0) {
+            return "";
+        }
+        // Queued tasks with no thread running the loop will never run
+        return "Synchronous task loop: " + queued + " task(s) queued, " + running + " thread(s) running the loop";
+    }
+
+    private void run(final Runnable task) {
+        try {
+            task.run();
+        } catch (final Exception ex) {
+            SyncTaskLoop.LOGGER.error("Failed to execute synchronous task {}", task, ex);
+        }
+    }
+
+    private void signal() {
+        this.lock.lock();
+        try {
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+}
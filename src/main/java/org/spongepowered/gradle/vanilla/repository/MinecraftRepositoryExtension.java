@@ -27,6 +27,7 @@
 import org.gradle.api.provider.Property;
 
 import java.io.File;
+import java.time.Duration;
 
 public interface MinecraftRepositoryExtension {
 
@@ -58,6 +59,43 @@ public interface MinecraftRepositoryExtension {
      */
     void injectRepositories(boolean injectRepositories);
 
+    /**
+     * Get the maximum total size of the VanillaGradle caches, in bytes.
+     *
+     * <p>When a build finishes, the least recently used Minecraft versions,
+     * bundled libraries, merged classes and assets are evicted from the
+     * caches until they fit within this quota. Pruning runs at most once a
+     * day, and never evicts anything used by the current build, or used by
+     * any build within the last hour. It can also be run on demand with the
+     * {@code pruneMinecraftCache} task.</p>
+     *
+     * <p>The caches are shared by the whole build, so this can only be set
+     * in settings, or on the root project if VanillaGradle is not applied to
+     * settings. Other projects may only repeat the same value.</p>
+     *
+     * <p>By default, there is no quota.</p>
+     *
+     * @return the cache size quota property
+     */
+    Property<Long> cacheSizeQuota();
+
+    /**
+     * Get the maximum time since an entry in the VanillaGradle caches was
+     * last used before it is evicted.
+     *
+     * <p>The time an entry was last used is only recorded once an hour, so
+     * it may be up to an hour earlier than the actual last use. Anything
+     * recorded as used within the last hour is never evicted, so a maximum
+     * age below an hour has the same effect as an hour.</p>
+     *
+     * <p>By default, entries do not expire.</p>
+     *
+     * @return the cache maximum age property
+     * @see #cacheSizeQuota() for when pruning happens, and where it is
+     *     configured
+     */
+    Property<Duration> cacheMaxAge();
+
     /**
      * Inject a version from the provided file
      *
@@ -24,6 +24,8 @@
  */
 package org.spongepowered.gradle.vanilla.repository;
 
+import org.jspecify.annotations.Nullable;
+import org.spongepowered.gradle.vanilla.internal.cache.ClassHierarchyIndex;
 import org.spongepowered.gradle.vanilla.internal.model.GroupArtifactVersion;
 import org.spongepowered.gradle.vanilla.internal.model.VersionDescriptor;
 import org.spongepowered.gradle.vanilla.internal.model.VersionManifestRepository;
@@ -35,11 +37,13 @@
 
 import java.net.URLClassLoader;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.SequencedSet;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
@@ -98,12 +102,47 @@ public interface MinecraftResolver {
      *     environment and a target path
      * @return a future returning the result of resolving a jar path
      */
+    default CompletableFuture<ResolutionResult<Path>> produceAssociatedArtifact(
+        final MinecraftPlatform side,
+        final String version,
+        final Set<ArtifactModifier> modifiers,
+        final String id,
+        final Set<AssociatedResolutionFlags> flags,
+        final BiFunction<MinecraftEnvironment, Path, CompletableFuture<?>> action
+    ) {
+        return this.produceAssociatedArtifact(side, version, modifiers, id, flags, null, action);
+    }
+
+    /**
+     * Produce an associated artifact, which may be shared through an
+     * artifact cache.
+     *
+     * <p>When a tool key is given, the artifact (and the modified original,
+     * for {@link AssociatedResolutionFlags#MODIFIES_ORIGINAL}) may be fetched
+     * from the artifact cache instead of executing the action, and is stored
+     * in the cache after the action executes.</p>
+     *
+     * @param side the platform to base off of
+     * @param version the version to base off of
+     * @param modifiers any modifiers to complete the description of the provided
+     *     argument
+     * @param id An identifier for this artifact
+     * @param flags flags to configure this resolution
+     * @param toolKey a key identifying every input to the action other than
+     *     the environment, or {@code null} if the artifact must always be
+     *     produced locally
+     * @param action the action needed to produce a variant, taking the input
+     *     environment and a target path
+     * @return a future returning the result of resolving a jar path
+     * @see #produceAssociatedArtifact(MinecraftPlatform, String, Set, String, Set, BiFunction)
+     */
     CompletableFuture<ResolutionResult<Path>> produceAssociatedArtifact(
         final MinecraftPlatform side,
         final String version,
         final Set<ArtifactModifier> modifiers,
         final String id,
         final Set<AssociatedResolutionFlags> flags,
+        final @Nullable String toolKey,
         final BiFunction<MinecraftEnvironment, Path, CompletableFuture<?>> action
     );
 
@@ -119,6 +158,21 @@ CompletableFuture<ResolutionResult<Path>> produceAssociatedArtifact(
      */
     <T> T processSyncTasksUntilComplete(CompletableFuture<T> future) throws ExecutionException, InterruptedException;
 
+    /**
+     * Block on the completion of a provided future for a limited time,
+     * processing "sync" tasks while that occurs.
+     *
+     * @param <T> the return value type
+     * @param future the future to await
+     * @param timeout the longest time to wait
+     * @return the result of the future
+     * @throws ExecutionException if the task execution fails
+     * @throws InterruptedException if the thread executing the future is interrupted
+     * @throws TimeoutException if the future does not complete within the timeout
+     */
+    <T> T processSyncTasksUntilComplete(CompletableFuture<T> future, Duration timeout)
+        throws ExecutionException, InterruptedException, TimeoutException;
+
     interface MinecraftEnvironment {
 
         /**
@@ -176,16 +230,46 @@ interface Context {
         Downloader downloader();
 
         /**
-         * An executor for performing asynchronous operations.
+         * An executor for asynchronous operations.
          *
-         * @return the environment's executor
+         * @return the environment's CPU executor
+         * @deprecated use {@link #cpuExecutor()} for computation, or
+         *     {@link #ioExecutor()} for blocking I/O
          */
-        Executor executor();
+        @Deprecated
+        default Executor executor() {
+            return this.cpuExecutor();
+        }
+
+        /**
+         * An executor for blocking network and file I/O.
+         *
+         * <p>Every task runs on its own virtual thread, so tasks may block
+         * freely, but should not spend long computing.</p>
+         *
+         * @return the environment's I/O executor
+         */
+        Executor ioExecutor();
+
+        /**
+         * An executor for CPU-bound work, such as transforming jars or
+         * hashing.
+         *
+         * <p>This executor has about one thread per processor, so tasks
+         * should avoid blocking on I/O.</p>
+         *
+         * @return the environment's CPU executor
+         */
+        Executor cpuExecutor();
 
         /**
          * An executor for performing main-thread synchronous operations, like some
          * dependency resolution.
          *
+         * <p>Tasks are queued until a thread waiting in
+         * {@link MinecraftResolver#processSyncTasksUntilComplete(CompletableFuture)}
+         * picks them up.</p>
+         *
          * @return the synchronous executor
          */
         Executor syncExecutor();
@@ -200,10 +284,27 @@ interface Context {
          *
          * <p>This must be run on the {@link #syncExecutor()}.</p>
          *
+         * <p>Class loaders are pooled by their resolved classpath for as
+         * long as the Gradle daemon keeps them, and are shared between
+         * users. Callers must not close the returned loader.</p>
+         *
          * @param tool the tool to resolve
          * @return a class loader with the tool on the classpath
          */
         Supplier<URLClassLoader> classLoaderWithTool(final ResolvableTool tool);
+
+        /**
+         * Get an index of the class hierarchy and members of a jar.
+         *
+         * <p>The index is written alongside the jar the first time it is
+         * requested, and read from there afterwards. Every
+         * environment the resolver provides is indexed as it is
+         * published.</p>
+         *
+         * @param jar the jar to index
+         * @return a future providing the index
+         */
+        CompletableFuture<ClassHierarchyIndex> classHierarchy(final Path jar);
     }
 
 }
@@ -28,21 +28,35 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.bundler.BundledLibraryPublisher;
 import org.spongepowered.gradle.vanilla.internal.bundler.BundlerMetadata;
+import org.spongepowered.gradle.vanilla.internal.cache.ArtifactCache;
+import org.spongepowered.gradle.vanilla.internal.cache.CacheAccess;
+import org.spongepowered.gradle.vanilla.internal.cache.ClassHierarchyIndex;
+import org.spongepowered.gradle.vanilla.internal.cache.ClassLocationIndex;
+import org.spongepowered.gradle.vanilla.internal.cache.DaemonCache;
+import org.spongepowered.gradle.vanilla.internal.cache.MergedClassCache;
+import org.spongepowered.gradle.vanilla.internal.cache.SeedCaches;
 import org.spongepowered.gradle.vanilla.internal.model.Download;
 import org.spongepowered.gradle.vanilla.internal.model.GroupArtifactVersion;
 import org.spongepowered.gradle.vanilla.internal.model.VersionDescriptor;
 import org.spongepowered.gradle.vanilla.internal.model.VersionManifestRepository;
 import org.spongepowered.gradle.vanilla.internal.repository.IvyModuleWriter;
 import org.spongepowered.gradle.vanilla.internal.repository.ResolvableTool;
+import org.spongepowered.gradle.vanilla.internal.repository.ToolClassLoaderPool;
 import org.spongepowered.gradle.vanilla.internal.repository.modifier.ArtifactModifier;
 import org.spongepowered.gradle.vanilla.internal.repository.modifier.AssociatedResolutionFlags;
+import org.spongepowered.gradle.vanilla.internal.repository.modifier.IncrementalArtifactModifier;
 import org.spongepowered.gradle.vanilla.internal.transformer.ClassTransformerProvider;
+import org.spongepowered.gradle.vanilla.internal.transformer.JarCompression;
 import org.spongepowered.gradle.vanilla.internal.transformer.JarTransformer;
 import org.spongepowered.gradle.vanilla.internal.util.AsyncUtils;
 import org.spongepowered.gradle.vanilla.internal.util.FileUtils;
 import org.spongepowered.gradle.vanilla.internal.util.FunctionalUtils;
-import org.spongepowered.gradle.vanilla.internal.util.SelfPreferringClassLoader;
+import org.spongepowered.gradle.vanilla.internal.util.IndexedZip;
+import org.spongepowered.gradle.vanilla.internal.util.ResolutionWatchdog;
+import org.spongepowered.gradle.vanilla.internal.util.StagingArea;
+import org.spongepowered.gradle.vanilla.internal.util.SyncTaskLoop;
 import org.spongepowered.gradle.vanilla.resolver.Downloader;
 import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
 import org.spongepowered.gradle.vanilla.resolver.ResolutionResult;
@@ -53,23 +67,26 @@
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.SequencedSet;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -79,31 +96,116 @@
 public class MinecraftResolverImpl implements MinecraftResolver, MinecraftResolver.Context {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MinecraftResolverImpl.class);
+    private static final String HIERARCHY_CACHE_KIND = "class-hierarchy";
     private final VersionManifestRepository manifests;
     private final Downloader downloader;
-    private final ExecutorService executor;
+    private final Executor ioExecutor;
+    private final Executor cpuExecutor;
     private final Path privateCache;
     private final Function<ResolvableTool, URL[]> toolResolver;
-    private final ConcurrentMap<EnvironmentKey, CompletableFuture<ResolutionResult<MinecraftEnvironment>>> artifacts = new ConcurrentHashMap<>();
-    private final ConcurrentMap<EnvironmentKey, CompletableFuture<ResolutionResult<Path>>> associatedArtifacts = new ConcurrentHashMap<>();
+    private final ToolClassLoaderPool toolLoaders;
+    private final StagingArea sharedStaging;
+    private final StagingArea privateStaging;
+    private final JarCompression outputCompression;
+    private final Path mergeCache;
+    private final ClassLocationIndex classIndex;
+    private final boolean nativeJarMerge;
+    private final @Nullable BundledLibraryPublisher bundledLibraries;
+    private final ArtifactCache artifactCache;
+    private final SeedCaches seeds;
+    private final ConcurrentMap<EnvironmentKey, CompletableFuture<ResolutionResult<MinecraftEnvironment>>> artifacts;
+    private final ConcurrentMap<EnvironmentKey, CompletableFuture<ResolutionResult<Path>>> associatedArtifacts;
+    private final ConcurrentMap<Path, CompletableFuture<ClassHierarchyIndex>> hierarchies;
     private final boolean forceRefresh;
-    private final BlockingQueue<Runnable> syncTasks = new SynchronousQueue<>();
-    private final Executor syncExecutor = this.syncTasks::add;
+    private final SyncTaskLoop syncTasks;
+    private final ResolutionWatchdog watchdog;
 
     public MinecraftResolverImpl(
         final VersionManifestRepository manifests,
         final Downloader downloader,
         final Path privateCache,
-        final ExecutorService executor,
+        final Executor ioExecutor,
+        final Executor cpuExecutor,
         final Function<ResolvableTool, URL[]> toolResolver,
+        final ToolClassLoaderPool toolLoaders,
+        final StagingArea sharedStaging,
+        final StagingArea privateStaging,
+        final JarCompression outputCompression,
+        final Path mergeCache,
+        final ClassLocationIndex classIndex,
+        final boolean nativeJarMerge,
+        final @Nullable BundledLibraryPublisher bundledLibraries,
+        final ArtifactCache artifactCache,
+        final SeedCaches seeds,
+        final ResolutionWatchdog watchdog,
         final boolean forceRefresh
     ) {
         this.manifests = manifests;
         this.downloader = downloader;
         this.privateCache = privateCache;
-        this.executor = executor;
+        this.ioExecutor = ioExecutor;
+        this.cpuExecutor = cpuExecutor;
         this.toolResolver = toolResolver;
+        this.toolLoaders = toolLoaders;
+        this.sharedStaging = sharedStaging;
+        this.privateStaging = privateStaging;
+        this.outputCompression = outputCompression;
+        this.mergeCache = mergeCache;
+        this.classIndex = classIndex;
+        this.nativeJarMerge = nativeJarMerge;
+        this.bundledLibraries = bundledLibraries;
+        this.artifactCache = artifactCache;
+        this.seeds = seeds;
+        this.watchdog = watchdog;
         this.forceRefresh = forceRefresh;
+        this.artifacts = new ConcurrentHashMap<>();
+        this.associatedArtifacts = new ConcurrentHashMap<>();
+        this.hierarchies = new ConcurrentHashMap<>();
+        this.syncTasks = new SyncTaskLoop();
+        watchdog.watch(this.syncTasks);
+    }
+
+    private MinecraftResolverImpl(final MinecraftResolverImpl base, final Function<ResolvableTool, URL[]> toolResolver) {
+        this.manifests = base.manifests;
+        this.downloader = base.downloader;
+        this.privateCache = base.privateCache;
+        this.ioExecutor = base.ioExecutor;
+        this.cpuExecutor = base.cpuExecutor;
+        this.toolResolver = toolResolver;
+        this.toolLoaders = base.toolLoaders;
+        this.sharedStaging = base.sharedStaging;
+        this.privateStaging = base.privateStaging;
+        this.outputCompression = base.outputCompression;
+        this.mergeCache = base.mergeCache;
+        this.classIndex = base.classIndex;
+        this.nativeJarMerge = base.nativeJarMerge;
+        this.bundledLibraries = base.bundledLibraries;
+        this.artifactCache = base.artifactCache;
+        this.seeds = base.seeds;
+        this.watchdog = base.watchdog;
+        this.forceRefresh = base.forceRefresh;
+        this.artifacts = base.artifacts;
+        this.associatedArtifacts = base.associatedArtifacts;
+        this.hierarchies = base.hierarchies;
+        this.syncTasks = new SyncTaskLoop();
+        this.watchdog.watch(this.syncTasks);
+    }
+
+    /**
+     * Get a view of this resolver that resolves tools in a different way.
+     *
+     * <p>The view shares every artifact, cache and background executor with
+     * this resolver. Tools are only resolved on the thread requesting an
+     * artifact, while that request is made, so each view can resolve tools
+     * from the context of its own caller. Each view has its own
+     * {@link #syncExecutor()}, so synchronous tasks run on the thread of the
+     * caller that submitted them.</p>
+     *
+     * @param toolResolver the tool resolver to use
+     * @return a resolver view
+     */
+    public MinecraftResolverImpl withToolResolver(final Function<ResolvableTool, URL[]> toolResolver) {
+        return new MinecraftResolverImpl(this, toolResolver);
     }
 
     @Override
@@ -117,26 +219,75 @@ public Downloader downloader() {
     }
 
     @Override
-    public Executor executor() {
-        return this.executor;
+    public Executor ioExecutor() {
+        return this.ioExecutor;
+    }
+
+    @Override
+    public Executor cpuExecutor() {
+        return this.cpuExecutor;
     }
 
     @Override
     public Executor syncExecutor() {
-        return this.syncExecutor;
+        return this.syncTasks;
     }
 
     @Override
     public Supplier<URLClassLoader> classLoaderWithTool(final ResolvableTool tool) {
+        final URL[] classPath = this.toolClassPath(tool);
+        // Loaders are pooled by classpath, so tool classes stay loaded (and warm) across resolutions
+        return AsyncUtils.memoizedSupplier(() -> this.toolLoaders.get(classPath));
+    }
+
+    private URL[] toolClassPath(final ResolvableTool tool) {
         final URL[] toolUrls = this.toolResolver.apply(tool);
 
-        // Create a ClassLoader containing the resolved configuration, plus our own code source to be able to access our own classes
+        // The classpath for a tool ClassLoader: the resolved configuration, plus our own code source to be able to access our own classes
         final URL[] classPath = new URL[toolUrls.length + 1];
         classPath[0] = this.getClass().getProtectionDomain().getCodeSource().getLocation();
         System.arraycopy(toolUrls, 0, classPath, 1, toolUrls.length);
-        // Use a custom classloader that prefers classes from the child loader
-        // This means we cannot
-        return AsyncUtils.memoizedSupplier(() -> new SelfPreferringClassLoader(classPath, MinecraftResolverImpl.class.getClassLoader()));
+        return classPath;
+    }
+
+    @Override
+    public CompletableFuture<ClassHierarchyIndex> classHierarchy(final Path jar) {
+        final Path absolute = jar.toAbsolutePath().normalize();
+        // Only one load per jar at a time, later requests are served from the daemon cache or the written index
+        final CompletableFuture<ClassHierarchyIndex> created = new CompletableFuture<>();
+        final @Nullable CompletableFuture<ClassHierarchyIndex> existing = this.hierarchies.putIfAbsent(absolute, created);
+        if (existing != null) {
+            return existing;
+        }
+        this.cpuExecutor.execute(() -> {
+            try {
+                created.complete(DaemonCache.file(MinecraftResolverImpl.HIERARCHY_CACHE_KIND, absolute, this::loadHierarchy));
+            } catch (final Throwable ex) {
+                created.completeExceptionally(ex);
+            } finally {
+                this.hierarchies.remove(absolute, created);
+            }
+        });
+        return created;
+    }
+
+    private ClassHierarchyIndex loadHierarchy(final Path jar) throws IOException {
+        final @Nullable ClassHierarchyIndex existing = ClassHierarchyIndex.open(jar);
+        if (existing != null) {
+            return existing;
+        }
+
+        final ClassHierarchyIndex built = ClassHierarchyIndex.build(jar, this.cpuExecutor);
+        MinecraftResolverImpl.LOGGER.info("Indexed the hierarchy of {} classes in {}", built.classCount(), jar);
+        if (!this.seeds.isSeeded(jar)) {
+            try {
+                built.write(jar);
+            } catch (final IOException ex) {
+                // the in-memory index is just as good for this build
+                MinecraftResolverImpl.LOGGER.debug("Failed to write the class hierarchy of {}", jar, ex);
+            }
+        }
+        return built;
     }
 
     // provide a single-sided jar
@@ -161,44 +312,61 @@ CompletableFuture<ResolutionResult<MinecraftEnvironment>> provide(final Minecraf
                 );
 
                 return jarFuture.thenApplyAsync((jar) -> {
-                    try {
+                    // Index the download once, and share it between metadata reading, library publishing and extraction
+                    try (final IndexedZip bundle = IndexedZip.open(jar.get())) {
                         final boolean outputExists = Files.exists(outputJar);
-                        final BundlerMetadata bundlerMeta = BundlerMetadata.read(jar.get()).orElse(null);
+                        final BundlerMetadata bundlerMeta = BundlerMetadata.read(bundle).orElse(null);
+                        final CompletableFuture<Integer> libraries;
                         if (bundlerMeta != null) {
                             MinecraftResolverImpl.LOGGER.info("Resolved bundler metadata {} from jar at '{}'", bundlerMeta, jar.get());
+                            // Make the bundled libraries available before Gradle goes looking for them, while the server is extracted
+                            libraries = this.bundledLibraries == null
+                                ? CompletableFuture.completedFuture(0)
+                                : this.bundledLibraries.publish(bundle, bundlerMeta, this.ioExecutor);
                         } else {
                             MinecraftResolverImpl.LOGGER.info("No bundler metadata found in jar {}", jar.get());
+                            libraries = CompletableFuture.completedFuture(0);
                         }
-                        final Supplier<SequencedSet<GroupArtifactVersion>> dependencies = () -> side.dependencies(descriptor, bundlerMeta);
-                        if (!this.forceRefresh && jar.upToDate() && outputExists) {
-                            // Our inputs are up-to-date, and the output exists, so we can assume (for now) that the output is up-to-date
-                            // Check meta here too, before returning
-                            this.writeMetaIfNecessary(platform, potentialDescriptor, dependencies, outputJar.getParent());
-                            // todo: eventually, store a hash along with the jar to compare to, for validation
-                            return ResolutionResult.result(new MinecraftEnvironmentImpl(platform.artifactId(), outputJar, dependencies, descriptor), true);
-                        } else if (!jar.isPresent()) {
-                            throw new IllegalArgumentException("No jar was available for Minecraft " + descriptor.id() + "side " + side.name()
-                                + "! Are you sure the data file is correct?");
-                        }
-                        MinecraftResolverImpl.LOGGER.warn("Preparing Minecraft: Java Edition {} version {}", side, version);
-                        this.cleanAssociatedArtifacts(platform, version);
+                        try {
+                            final Supplier<SequencedSet<GroupArtifactVersion>> dependencies = () -> side.dependencies(descriptor, bundlerMeta);
+                            if (!this.forceRefresh && jar.upToDate() && outputExists) {
+                                // Our inputs are up-to-date, and the output exists, so we can assume (for now) that the output is up-to-date
+                                // Check meta here too, before returning
+                                this.writeMetaIfNecessary(platform, potentialDescriptor, dependencies, outputJar.getParent());
+                                // todo: eventually, store a hash along with the jar to compare to, for validation
+                                return ResolutionResult.result(new MinecraftEnvironmentImpl(platform.artifactId(), outputJar, dependencies, descriptor), true);
+                            }
+                            final @Nullable Path seeded = this.forceRefresh || !jar.upToDate() ? null : this.seededArtifact(outputJar, version);
+                            if (seeded != null) {
+                                return ResolutionResult.result(new MinecraftEnvironmentImpl(platform.artifactId(), seeded, dependencies, descriptor), true);
+                            } else if (!jar.isPresent()) {
+                                throw new IllegalArgumentException("No jar was available for Minecraft " + descriptor.id() + "side " + side.name()
+                                    + "! Are you sure the data file is correct?");
+                            }
+                            MinecraftResolverImpl.LOGGER.warn("Preparing Minecraft: Java Edition {} version {}", side, version);
+                            this.cleanAssociatedArtifacts(platform, version);
 
-                        final Path outputTmp = Files.createTempDirectory("vanillagradle").resolve("output" + side.name() + ".jar");
-                        FileUtils.createDirectoriesSymlinkSafe(outputJar.getParent());
+                            final Path outputTmp = this.sharedStaging.stage(side.name()).resolve("output" + side.name() + ".jar");
+                            FileUtils.createDirectoriesSymlinkSafe(outputJar.getParent());
 
-                        // Extract jar
-                        side.extractJar(jar.get(), outputTmp, bundlerMeta);
+                            // Extract jar
+                            side.extractJar(bundle, outputTmp, bundlerMeta);
 
-                        this.writeMetaIfNecessary(platform, potentialDescriptor, dependencies, outputJar.getParent());
-                        FileUtils.atomicMove(outputTmp, outputJar);
-                        // not up-to-date, we had to generate the jar
-                        MinecraftResolverImpl.LOGGER.warn("Successfully prepared Minecraft: Java Edition {} version {}", side, version);
-                        return ResolutionResult.result(new MinecraftEnvironmentImpl(platform.artifactId(), outputJar, dependencies, descriptor), false);
+                            this.writeMetaIfNecessary(platform, potentialDescriptor, dependencies, outputJar.getParent());
+                            FileUtils.atomicMove(outputTmp, outputJar);
+                            this.indexPublished(outputJar);
+                            // not up-to-date, we had to generate the jar
+                            MinecraftResolverImpl.LOGGER.warn("Successfully prepared Minecraft: Java Edition {} version {}", side, version);
+                            return ResolutionResult.result(new MinecraftEnvironmentImpl(platform.artifactId(), outputJar, dependencies, descriptor), false);
+                        } finally {
+                            // The bundle must stay open until every library has been copied out of it
+                            libraries.join();
+                        }
                     } catch (final IOException | XMLStreamException ex) {
                         throw new CompletionException(ex);
                     }
-                }, this.executor);
-            }, this.executor);
+                }, this.cpuExecutor);
+            }, this.cpuExecutor);
         });
     }
 
@@ -214,15 +382,27 @@ CompletableFuture<ResolutionResult<MinecraftEnvironment>> provideJoined(
             // For now, let's resolve everything ahead-of-time
             // Shouldn't really do this in a `computeIfAbsent`, but oh well... what gradle tells us, we must do
             final CompletableFuture<ResolutionResult<VersionDescriptor.Full>> descriptorFuture = this.manifests.fullVersion(key.versionId());
-            final Executable merge = this.prepareChildLoader(ResolvableTool.JAR_MERGE, "org.spongepowered.gradle.vanilla.internal.worker.JarMerger", "execute");
-
-            return descriptorFuture.thenComposeAsync(potentialDescriptor -> clientFuture.thenCombineAsync(serverFuture, (client, server) -> {
+            final URL[] mergeClassPath = this.toolClassPath(ResolvableTool.JAR_MERGE);
+            final Executable merge = this.prepareChildLoader(
+                mergeClassPath,
+                this.nativeJarMerge ? "org.spongepowered.gradle.vanilla.internal.worker.ParallelJarMerger" : "org.spongepowered.gradle.vanilla.internal.worker.JarMerger",
+                "execute"
+            );
+            // Merged classes are only valid for the exact merge tool (and VanillaGradle) that produced them
+            final MergedClassCache mergedClasses = new MergedClassCache(
+                this.mergeCache,
+                (this.nativeJarMerge ? "native-" : "mergetool-") + ToolClassLoaderPool.key(mergeClassPath)
+            );
+            final String toolsKey = this.toolsKey(MinecraftPlatform.JOINED, List.of());
+
+            return descriptorFuture.thenComposeAsync(potentialDescriptor -> clientFuture.<ResolutionResult<MinecraftEnvironment>, CompletableFuture<ResolutionResult<MinecraftEnvironment>>>thenCombineAsync(serverFuture, (client, server) -> {
                 try {
                     if (!potentialDescriptor.isPresent()) {
-                        return ResolutionResult.notFound();
+                        return CompletableFuture.completedFuture(ResolutionResult.notFound());
                     }
                     final VersionDescriptor.Full descriptor = potentialDescriptor.get();
-                    final boolean outputExists = Files.isRegularFile(outputJar);
+                    // A joined jar produced by another merger is not equivalent, so is out of date
+                    final boolean outputExists = Files.isRegularFile(outputJar) && this.mergedBySelectedMerger(outputJar);
                     final Supplier<SequencedSet<GroupArtifactVersion>> dependencies = () -> MinecraftResolverImpl.mergedDependencies(client.get(), server.get());
                     if (!this.forceRefresh && client.upToDate() && server.upToDate() && outputExists) {
                         // We're up-to-date, give meta a poke and then return without re-executing the jar merge
@@ -232,27 +412,96 @@ CompletableFuture<ResolutionResult<MinecraftEnvironment>> provideJoined(
                             () -> MinecraftResolverImpl.mergedDependencies(client.get(), server.get()),
                             outputJar.getParent()
                         );
-                        return ResolutionResult.result(new MinecraftEnvironmentImpl(MinecraftPlatform.JOINED.artifactId(), outputJar, dependencies, descriptor), true);
+                        return CompletableFuture.completedFuture(ResolutionResult.result(new MinecraftEnvironmentImpl(MinecraftPlatform.JOINED.artifactId(), outputJar, dependencies, descriptor), true));
+                    }
+                    final @Nullable Path seeded = this.forceRefresh || !client.upToDate() || !server.upToDate() ? null : this.seededArtifact(outputJar, version);
+                    if (seeded != null && this.mergedBySelectedMerger(seeded)) {
+                        return CompletableFuture.completedFuture(ResolutionResult.result(new MinecraftEnvironmentImpl(MinecraftPlatform.JOINED.artifactId(), seeded, dependencies, descriptor), true));
                     }
                     MinecraftResolverImpl.LOGGER.warn("Preparing Minecraft: Java Edition JOINED version {}", version);
                     this.cleanAssociatedArtifacts(MinecraftPlatform.JOINED, version);
 
-                    final Path outputTmp = FileUtils.temporaryPath(outputJar.getParent(), "mergetmp" + version);
+                    final Path outputTmp = this.sharedStaging.stage("merge").resolve("merged-" + version + ".jar");
 
-                    // apply jar merge worker as a (Path client, Path server, Path merged)
-                    merge.execute(client.get().jar(), server.get().jar(), outputTmp);
+                    final String cacheKey = MinecraftResolverImpl.environmentKey(descriptor, MinecraftPlatform.JOINED, List.of(), toolsKey);
+                    return this.fetchCached(cacheKey, outputTmp).thenApplyAsync(fetched -> {
+                        try {
+                            if (fetched) {
+                                MinecraftResolverImpl.LOGGER.info("Fetched merged jar for {} from the artifact cache", version);
+                            } else {
+                                // Partial inputs and output are scratch, so they can be staged in memory.
+                                // The merged output can be at most as large as both inputs.
+                                final long inputSize = Files.size(client.get().jar()) + Files.size(server.get().jar());
+                                final Path partialDir = this.sharedStaging.stageScratch("merge-partial", 2 * inputSize);
+                                try {
+                                    // apply jar merge worker as a (Path client, Path server, Path merged), to any classes not merged before
+                                    mergedClasses.merge(
+                                        client.get().jar(),
+                                        server.get().jar(),
+                                        outputTmp,
+                                        partialDir,
+                                        this.outputCompression,
+                                        // the native merger shares our CPU pool rather than sizing its own
+                                        (clientJar, serverJar, mergedJar) -> {
+                                            if (this.nativeJarMerge) {
+                                                merge.execute(clientJar, serverJar, mergedJar, this.cpuExecutor);
+                                            } else {
+                                                merge.execute(clientJar, serverJar, mergedJar);
+                                            }
+                                        }
+                                    );
+                                } finally {
+                                    this.sharedStaging.discard(partialDir);
+                                }
+                            }
 
-                    this.writeMetaIfNecessary(MinecraftPlatform.JOINED, potentialDescriptor, dependencies, outputJar.getParent());
-                    FileUtils.atomicMove(outputTmp, outputJar);
-                    MinecraftResolverImpl.LOGGER.warn("Successfully prepared Minecraft: Java Edition JOINED version {}", version);
-                    return ResolutionResult.result(new MinecraftEnvironmentImpl(MinecraftPlatform.JOINED.artifactId(), outputJar, dependencies, descriptor), false);
+                            this.writeMetaIfNecessary(MinecraftPlatform.JOINED, potentialDescriptor, dependencies, outputJar.getParent());
+                            FileUtils.atomicMove(outputTmp, outputJar);
+                            // Recorded only once the jar is in place, so an interrupted publish is merged again rather than trusted
+                            final Path mergerTmp = FileUtils.temporaryPath(outputJar.getParent(), "merger");
+                            Files.writeString(mergerTmp, this.mergerId(), StandardCharsets.UTF_8);
+                            FileUtils.atomicMove(mergerTmp, MinecraftResolverImpl.mergerFile(outputJar));
+                            this.indexPublished(outputJar);
+                            if (!fetched) {
+                                this.storeCached(cacheKey, outputJar);
+                            }
+                            MinecraftResolverImpl.LOGGER.warn("Successfully prepared Minecraft: Java Edition JOINED version {}", version);
+                            return ResolutionResult.<MinecraftEnvironment>result(new MinecraftEnvironmentImpl(MinecraftPlatform.JOINED.artifactId(), outputJar, dependencies, descriptor), false);
+                        } catch (final Exception ex) {
+                            throw new CompletionException(ex);
+                        }
+                    }, this.cpuExecutor);
                 } catch (final Exception ex) {
                     throw new CompletionException(ex);
                 }
-            }, this.executor));
+            }, this.cpuExecutor).thenCompose(Function.identity()));
         });
     }
 
+    private String mergerId() {
+        return this.nativeJarMerge ? "native" : "mergetool";
+    }
+
+    /**
+     * Get whether a joined jar was produced by the merger this resolver is
+     * configured to use.
+     *
+     * <p>Jars without a record of their merger are never trusted.</p>
+     *
+     * @param joinedJar the joined jar
+     * @return whether the jar was merged by the selected merger
+     * @throws IOException if the record could not be read
+     */
+    private boolean mergedBySelectedMerger(final Path joinedJar) throws IOException {
+        final Path mergerFile = MinecraftResolverImpl.mergerFile(joinedJar);
+        return Files.isRegularFile(mergerFile) && Files.readString(mergerFile, StandardCharsets.UTF_8).trim().equals(this.mergerId());
+    }
+
+    private static Path mergerFile(final Path jar) {
+        final String fileName = jar.getFileName().toString();
+        return jar.resolveSibling(fileName.substring(0, fileName.length() - ".jar".length()) + ".merger");
+    }
+
     private static SequencedSet<GroupArtifactVersion> mergedDependencies(final MinecraftEnvironment client, final MinecraftEnvironment server) {
         final SequencedSet<GroupArtifactVersion> deps = new LinkedHashSet<>();
         deps.addAll(client.dependencies());
@@ -261,21 +510,21 @@ private static SequencedSet<GroupArtifactVersion> mergedDependencies(final Minec
     }
 
     /**
-     * Single-use executable interface
+     * Reflective entry point into a tool
      */
     @FunctionalInterface
     interface Executable {
         <T> T execute(final Object... args) throws Exception;
     }
 
-    private Executable prepareChildLoader(final ResolvableTool tool, final String className, final String methodName) {
-        final Supplier<URLClassLoader> loader = this.classLoaderWithTool(tool);
+    private Executable prepareChildLoader(final URL[] classPath, final String className, final String methodName) {
+        final Supplier<URLClassLoader> loader = AsyncUtils.memoizedSupplier(() -> this.toolLoaders.get(classPath));
         return new Executable() {
             @SuppressWarnings("unchecked")
             @Override
             public <T> T execute(final Object... args) throws Exception {
-                try (final URLClassLoader child = loader.get()) {
-                    final Class<?> action = Class.forName(className, true, child);
+                try {
+                    final Class<?> action = Class.forName(className, true, loader.get());
                     for (final Method method : action.getMethods()) {
                         if (method.getName().equals(methodName) && Modifier.isStatic(method.getModifiers())
                             && method.getParameters().length == args.length) {
@@ -305,7 +554,7 @@ public <T> T execute(final Object... args) throws Exception {
     public CompletableFuture<ResolutionResult<MinecraftEnvironment>> provide(
         final MinecraftPlatform side, final String version
     ) {
-        return this.provide0(side, version);
+        return this.provide0(side, version).thenApply(this::markAccessed);
     }
 
     private CompletableFuture<ResolutionResult<MinecraftEnvironment>> provide0(final MinecraftPlatform side, final String version) {
@@ -317,80 +566,483 @@ private CompletableFuture<ResolutionResult<MinecraftEnvironment>> provide0(final
         }
 
         // Each platform is responsible for its own up-to-date checks
-        return side.resolveMinecraft(this, version, output);
+        return this.track(
+            side.artifactId() + ' ' + version,
+            this.artifacts,
+            new EnvironmentKey(side, version, null),
+            side.resolveMinecraft(this, version, output)
+        );
     }
 
     @Override
     public CompletableFuture<ResolutionResult<MinecraftEnvironment>> provide(
         final MinecraftPlatform side, final String version, final Set<ArtifactModifier> modifiers
     ) {
-        final CompletableFuture<ResolutionResult<MinecraftEnvironment>> unmodified = this.provide0(side, version);
         if (modifiers.isEmpty()) { // no modifiers provided, follow the normal path
-            return unmodified;
+            return this.provide0(side, version).thenApply(this::markAccessed);
         }
 
-        final String decoratedArtifact = ArtifactModifier.decorateArtifactId(side.artifactId(), modifiers);
-        boolean requiresLocalStorage = false;
-        // Synchronously compute the modifier populator providers
-        @SuppressWarnings({"unchecked", "rawtypes"})
-        final CompletableFuture<ClassTransformerProvider>[] populators = new CompletableFuture[modifiers.size()];
+        final List<ArtifactModifier> chain = ArtifactModifier.ordered(modifiers);
+        final String decoratedArtifact = ArtifactModifier.decorateArtifactId(side.artifactId(), chain);
+        return this.track(
+            decoratedArtifact + ' ' + version,
+            this.artifacts,
+            new EnvironmentKey(side, version, decoratedArtifact),
+            this.provideLayer(side, version, chain, false)
+        ).thenApply(this::markAccessed);
+    }
+
+    /**
+     * Track a memoized stage with the watchdog.
+     *
+     * <p>If the stage is failed as stalled, or fails because a stage it
+     * depends on stalled, it is forgotten, so the next request for it starts
+     * over rather than receiving the failure.</p>
+     *
+     * @param name a description of the stage
+     * @param memo the map the stage's future is memoized in
+     * @param key the key of the stage's future in {@code memo}
+     * @param future the stage's future
+     * @param <K> the key type
+     * @param <T> the result type
+     * @return a future completed with the result of the stage
+     */
+    private <K, T> CompletableFuture<T> track(
+        final String name,
+        final ConcurrentMap<K, CompletableFuture<T>> memo,
+        final K key,
+        final CompletableFuture<T> future
+    ) {
+        final CompletableFuture<T> tracked = this.watchdog.track(name, future);
+        tracked.whenComplete(($, ex) -> {
+            Throwable cause = ex;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof ResolutionWatchdog.StalledException) {
+                memo.remove(key, future);
+            }
+        });
+        return tracked;
+    }
 
-        int idx = 0;
-        for (final ArtifactModifier modifier : modifiers) {
-            requiresLocalStorage |= modifier.requiresLocalStorage();
-            populators[idx++] = modifier.providePopulator(this);
+    private ResolutionResult<MinecraftEnvironment> markAccessed(final ResolutionResult<MinecraftEnvironment> result) {
+        if (result.isPresent() && !this.seeds.isSeeded(result.get().jar())) {
+            // Keep the version directory from being pruned as unused
+            CacheAccess.touchDirectory(result.get().jar().getParent());
         }
+        return result;
+    }
 
-        final boolean finalRequiresLocalStorage = requiresLocalStorage;
-        return this.artifacts.computeIfAbsent(new EnvironmentKey(side, version, decoratedArtifact), $ -> unmodified.thenCombineAsync(
-            CompletableFuture.allOf(populators),
-            (input, popIgnored) -> {
-                try {
-                    // compute a file name based on the modifiers
-                    final Path output = this.artifactPath(
-                        finalRequiresLocalStorage ? this.privateCache : this.downloader.baseDir(),
-                        decoratedArtifact,
-                        version,
-                        null,
-                        "jar"
-                    );
-                    if (!this.forceRefresh && input.upToDate() && Files.isRegularFile(output)) {
-                        this.writeMetaIfNecessary(side, decoratedArtifact, input.mapIfPresent((upToDate, env) -> env.metadata()), input.get()::dependencies, output.getParent());
-                        return ResolutionResult.result(new MinecraftEnvironmentImpl(decoratedArtifact, output, input.get()::dependencies, input.get().metadata()), true);
-                    } else {
-                        if (!input.isPresent()) {
-                            return ResolutionResult.notFound();
-                        }
+    /**
+     * Start indexing a newly published jar.
+     *
+     * <p>Jars are indexed as they are published, while they are still in the
+     * page cache, so class lookups and modifier validation rarely have to
+     * wait on it. Both indexes persist, so jars from earlier builds are not
+     * indexed again.</p>
+     *
+     * @param jar the published jar
+     */
+    private void indexPublished(final Path jar) {
+        this.ioExecutor.execute(() -> {
+            try {
+                this.classIndex.index(jar);
+            } catch (final IOException ex) {
+                MinecraftResolverImpl.LOGGER.debug("Failed to index classes in {}", jar, ex);
+            }
+        });
+        this.classHierarchy(jar).exceptionally(ex -> {
+            MinecraftResolverImpl.LOGGER.debug("Failed to index the class hierarchy of {}", jar, ex);
+            return null;
+        });
+    }
 
-                        final Path outputTmp = Files.createTempDirectory("vanillagradle").resolve("output" + decoratedArtifact + ".jar");
-                        FileUtils.createDirectoriesSymlinkSafe(output.getParent());
+    /**
+     * Provide an artifact with a chain of modifiers applied.
+     *
+     * <p>Each modifier is applied as its own layer, on top of the artifact
+     * produced by every modifier before it in the chain. Layers are stored
+     * separately, so chains which share a prefix share the artifacts for that
+     * prefix, and only layers that are missing or out of date are
+     * recomputed.</p>
+     *
+     * @param side the platform to resolve
+     * @param version the version to resolve
+     * @param chain the ordered modifiers to apply
+     * @param intermediate whether this layer is only being produced as the
+     *     input to another layer, and so can be written without compression
+     * @return a future providing the modified environment
+     */
+    private CompletableFuture<ResolutionResult<MinecraftEnvironment>> provideLayer(
+        final MinecraftPlatform side,
+        final String version,
+        final List<ArtifactModifier> chain,
+        final boolean intermediate
+    ) {
+        if (chain.isEmpty()) {
+            return this.provide0(side, version);
+        }
 
-                        final JarTransformer.Builder builder = JarTransformer.builder();
-                        for (final CompletableFuture<ClassTransformerProvider> populator : populators) {
-                            builder.add(populator.get().provide());
-                        }
+        final String decoratedArtifact = ArtifactModifier.decorateArtifactId(side.artifactId(), chain);
+        final EnvironmentKey key = new EnvironmentKey(side, version, decoratedArtifact);
+        final CompletableFuture<ResolutionResult<MinecraftEnvironment>> existing = this.artifacts.get(key);
+        if (existing != null) {
+            return existing;
+        }
 
-                        builder.build().transform(input.get().jar(), outputTmp);
+        // Resolve the parent layer outside of computeIfAbsent, the map does not permit recursive updates
+        final CompletableFuture<ResolutionResult<MinecraftEnvironment>> parent = this.provideLayer(side, version, chain.subList(0, chain.size() - 1), true);
+        final ArtifactModifier modifier = chain.getLast();
+        boolean requiresLocalStorage = false;
+        for (final ArtifactModifier layer : chain) {
+            requiresLocalStorage |= layer.requiresLocalStorage();
+        }
 
-                        FileUtils.atomicMove(outputTmp, output);
-                        this.writeMetaIfNecessary(side, decoratedArtifact, input.mapIfPresent((upToDate, env) -> env.metadata()), input.get()::dependencies, output.getParent());
-                        return ResolutionResult.result(new MinecraftEnvironmentImpl(decoratedArtifact, output, input.get()::dependencies, input.get().metadata()), false);
-                    }
-                } catch (final Exception ex) {
-                    throw new CompletionException(ex);
-                } finally {
-                    for (final CompletableFuture<ClassTransformerProvider> populator : populators) {
-                        if (!populator.isCompletedExceptionally()) {
-                            try {
-                                populator.join().close();
-                            } catch (final IOException ex) {
-                                // ignore, we will continue trying to close every modifier
+        final boolean finalRequiresLocalStorage = requiresLocalStorage;
+        return this.artifacts.computeIfAbsent(key, $ -> {
+            // Synchronously compute the modifier populator provider, and resolve tools for the cache key
+            final CompletableFuture<ClassTransformerProvider> populator = modifier.providePopulator(this);
+            final String toolsKey = this.toolsKey(side, chain);
+            final CompletableFuture<ResolutionResult<MinecraftEnvironment>> result = parent.<ClassTransformerProvider, CompletableFuture<ResolutionResult<MinecraftEnvironment>>>thenCombineAsync(
+                populator,
+                (input, provider) -> {
+                    try {
+                        // compute a file name based on the modifiers
+                        final Path output = this.artifactPath(
+                            finalRequiresLocalStorage ? this.privateCache : this.downloader.baseDir(),
+                            decoratedArtifact,
+                            version,
+                            null,
+                            "jar"
+                        );
+                        if (!this.forceRefresh && input.upToDate() && Files.isRegularFile(output)) {
+                            this.writeMetaIfNecessary(side, decoratedArtifact, input.mapIfPresent((upToDate, env) -> env.metadata()), input.get()::dependencies, output.getParent());
+                            return CompletableFuture.completedFuture(ResolutionResult.result(new MinecraftEnvironmentImpl(decoratedArtifact, output, input.get()::dependencies, input.get().metadata()), true));
+                        } else {
+                            if (!input.isPresent()) {
+                                return CompletableFuture.completedFuture(ResolutionResult.notFound());
+                            }
+                            final @Nullable Path seeded = this.forceRefresh || !input.upToDate() ? null : this.seededArtifact(output, version);
+                            if (seeded != null) {
+                                return CompletableFuture.completedFuture(ResolutionResult.result(new MinecraftEnvironmentImpl(decoratedArtifact, seeded, input.get()::dependencies, input.get().metadata()), true));
                             }
+
+                            final JarTransformer transformer = JarTransformer.builder()
+                                .add(provider.provide())
+                                .compression(intermediate ? JarCompression.STORED : this.outputCompression)
+                                .build();
+                            return this.produceLayer(side, decoratedArtifact, chain, toolsKey, transformer, input, output, finalRequiresLocalStorage);
                         }
+                    } catch (final IOException | XMLStreamException ex) {
+                        throw new CompletionException(ex);
                     }
+                },
+                this.cpuExecutor
+            ).thenCompose(Function.identity());
+            // Only close the populator once the layer has been produced, or could not be
+            result.whenComplete(($$, $$$) -> populator.thenAccept(provider -> {
+                try {
+                    provider.close();
+                } catch (final IOException ex) {
+                    // ignore, the layer has already been produced
                 }
+            }));
+            return result;
+        });
+    }
+
+    /**
+     * Produce a modifier layer that is missing or out of date.
+     *
+     * <p>The layer is fetched from the artifact cache if possible. Otherwise,
+     * the modifier is validated against an index of its input, which is
+     * built without holding a thread, and the input is transformed.</p>
+     *
+     * @param side the platform being resolved
+     * @param decoratedArtifact the artifact ID of the layer
+     * @param chain the modifiers applied up to and including this layer
+     * @param toolsKey the key of the tools used by the chain
+     * @param transformer the transformer applying this layer's modifier
+     * @param input the resolved environment the layer applies to
+     * @param output the final location of the layer
+     * @param localStorage whether the layer is stored in the project cache
+     * @return a future providing the produced environment
+     * @throws IOException if the layer could not be staged
+     */
+    private CompletableFuture<ResolutionResult<MinecraftEnvironment>> produceLayer(
+        final MinecraftPlatform side,
+        final String decoratedArtifact,
+        final List<ArtifactModifier> chain,
+        final String toolsKey,
+        final JarTransformer transformer,
+        final ResolutionResult<MinecraftEnvironment> input,
+        final Path output,
+        final boolean localStorage
+    ) throws IOException {
+        final ArtifactModifier modifier = chain.getLast();
+        final MinecraftEnvironment env = input.get();
+        final String version = env.metadata().id();
+        final Path outputTmp = (localStorage ? this.privateStaging : this.sharedStaging).stage(decoratedArtifact)
+            .resolve("output" + decoratedArtifact + ".jar");
+        FileUtils.createDirectoriesSymlinkSafe(output.getParent());
+
+        final String cacheKey = MinecraftResolverImpl.environmentKey(env.metadata(), side, chain, toolsKey);
+        final CompletableFuture<Boolean> fetched = this.fetchCached(cacheKey, outputTmp);
+        final CompletableFuture<@Nullable String> state = fetched.thenCompose(hit -> {
+            if (hit) {
+                MinecraftResolverImpl.LOGGER.info("Fetched {} for {} from the artifact cache", decoratedArtifact, version);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return modifier instanceof final IncrementalArtifactModifier incremental
+                            ? MinecraftResolverImpl.fingerprint(env.jar()) + '\n' + incremental.describeState()
+                            : null;
+                    } catch (final IOException ex) {
+                        throw new CompletionException(ex);
+                    }
+                }, this.cpuExecutor);
             }
-        ));
+            return this.classHierarchy(env.jar()).thenApplyAsync(hierarchy -> {
+                try {
+                    // Reject modifiers that do not fit their input before spending any time on transforming it
+                    modifier.validate(hierarchy);
+                    return this.transformLayer(modifier, transformer, env.jar(), output, outputTmp);
+                } catch (final IOException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, this.cpuExecutor);
+        });
+
+        return state.thenApply(layerState -> {
+            try {
+                FileUtils.atomicMove(outputTmp, output);
+                if (!fetched.join()) {
+                    this.storeCached(cacheKey, output);
+                }
+                if (layerState != null) {
+                    final Path stateFile = MinecraftResolverImpl.layerStateFile(output);
+                    final Path stateTmp = FileUtils.temporaryPath(output.getParent(), "state");
+                    Files.writeString(stateTmp, layerState, StandardCharsets.UTF_8);
+                    FileUtils.atomicMove(stateTmp, stateFile);
+                }
+                // The next layer, if any, is validated against this one, so it is indexed while that layer is prepared
+                this.indexPublished(output);
+                this.writeMetaIfNecessary(side, decoratedArtifact, input.mapIfPresent((upToDate, inputEnv) -> inputEnv.metadata()), env::dependencies, output.getParent());
+                return ResolutionResult.result(new MinecraftEnvironmentImpl(decoratedArtifact, output, env::dependencies, env.metadata()), false);
+            } catch (final IOException | XMLStreamException ex) {
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    /**
+     * Transform the input of a modifier layer.
+     *
+     * <p>For incremental modifiers, an earlier output of the same modifier on
+     * the same input is patched if one exists, rather than transforming the
+     * entire input again.</p>
+     *
+     * @param modifier the modifier this layer applies
+     * @param transformer the transformer for the modifier
+     * @param input the input jar
+     * @param output the final location of the layer's output
+     * @param outputTmp the path to write the output to
+     * @return the state to store alongside the output, if any
+     * @throws IOException if the jars could not be read or written
+     */
+    private @Nullable String transformLayer(
+        final ArtifactModifier modifier,
+        final JarTransformer transformer,
+        final Path input,
+        final Path output,
+        final Path outputTmp
+    ) throws IOException {
+        if (!(modifier instanceof final IncrementalArtifactModifier incremental)) {
+            transformer.transform(input, outputTmp);
+            return null;
+        }
+
+        final String inputFingerprint = MinecraftResolverImpl.fingerprint(input);
+        final String state = inputFingerprint + '\n' + incremental.describeState();
+        final @Nullable Path previous = this.forceRefresh ? null : MinecraftResolverImpl.findPreviousLayer(modifier, output, inputFingerprint);
+        if (previous != null) {
+            final String previousState = Files.readString(MinecraftResolverImpl.layerStateFile(previous), StandardCharsets.UTF_8);
+            final @Nullable Set<String> affected = incremental.affectedClasses(previousState.substring(previousState.indexOf('\n') + 1));
+            if (affected != null) {
+                final int count = transformer.patch(input, previous, outputTmp, affected);
+                MinecraftResolverImpl.LOGGER.info("Updated {} classes of {} incrementally, from {}", count, output.getFileName(), previous.getFileName());
+                return state;
+            }
+        }
+
+        transformer.transform(input, outputTmp);
+        return state;
+    }
+
+    /**
+     * Find the most recent output of a modifier with a different state, built
+     * from the same input as the layer being produced.
+     *
+     * @param modifier the modifier to find an earlier output of
+     * @param output the output of the layer being produced
+     * @param inputFingerprint the fingerprint of the layer's input
+     * @return the previous output jar, if any
+     * @throws IOException if the artifact directory could not be read
+     */
+    private static @Nullable Path findPreviousLayer(final ArtifactModifier modifier, final Path output, final String inputFingerprint) throws IOException {
+        // <artifacts>/<prefix>_<key>-<state>/<version>/<prefix>_<key>-<state>-<version>.jar
+        final Path versionDir = output.getParent();
+        final String artifactId = versionDir.getParent().getFileName().toString();
+        final String layerPrefix = artifactId.substring(0, artifactId.lastIndexOf(ArtifactModifier.ENTRY_SEPARATOR) + 1)
+            + modifier.key() + ArtifactModifier.KEY_VALUE_SEPARATOR;
+        final String version = versionDir.getFileName().toString();
+
+        @Nullable Path newest = null;
+        long newestModified = Long.MIN_VALUE;
+        try (final DirectoryStream<Path> candidates = Files.newDirectoryStream(versionDir.getParent().getParent(), Files::isDirectory)) {
+            for (final Path candidate : candidates) {
+                final String candidateId = candidate.getFileName().toString();
+                if (!candidateId.startsWith(layerPrefix) || candidateId.indexOf(ArtifactModifier.ENTRY_SEPARATOR, layerPrefix.length()) != -1) {
+                    continue;
+                }
+
+                final Path jar = candidate.resolve(version).resolve(candidateId + '-' + version + ".jar");
+                final Path stateFile = MinecraftResolverImpl.layerStateFile(jar);
+                if (!Files.isRegularFile(jar) || !Files.isRegularFile(stateFile)) {
+                    continue;
+                }
+
+                final String candidateState = Files.readString(stateFile, StandardCharsets.UTF_8);
+                final long modified = Files.getLastModifiedTime(jar).toMillis();
+                if (candidateState.startsWith(inputFingerprint + '\n') && modified > newestModified) {
+                    newest = jar;
+                    newestModified = modified;
+                }
+            }
+        }
+        return newest;
+    }
+
+    private static Path layerStateFile(final Path jar) {
+        final String fileName = jar.getFileName().toString();
+        return jar.resolveSibling(fileName.substring(0, fileName.length() - ".jar".length()) + ".state");
+    }
+
+    private static String fingerprint(final Path file) throws IOException {
+        return Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    /**
+     * Fetch an artifact from the artifact cache on the I/O executor.
+     *
+     * @param key the artifact key
+     * @param destination the file to write the artifact to
+     * @return a future providing whether the artifact was fetched
+     */
+    private CompletableFuture<Boolean> fetchCached(final String key, final Path destination) {
+        if (this.artifactCache == ArtifactCache.NONE) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return CompletableFuture.supplyAsync(() -> this.artifactCache.fetch(key, destination), this.ioExecutor);
+    }
+
+    /**
+     * Store a published artifact in the artifact cache in the background.
+     *
+     * <p>Artifacts are only stored once published, so nothing waits for
+     * the upload. The published file may be replaced before the upload
+     * starts, for example by an associated artifact that modifies it, so
+     * the upload reads from a link to the file as it is now.</p>
+     *
+     * @param key the artifact key
+     * @param published the published artifact
+     * @throws IOException if the artifact could not be captured
+     */
+    private void storeCached(final String key, final Path published) throws IOException {
+        if (this.artifactCache == ArtifactCache.NONE) {
+            return;
+        }
+        final Path snapshot = FileUtils.temporaryPath(published.getParent(), "store");
+        try {
+            Files.delete(snapshot);
+            Files.createLink(snapshot, published);
+        } catch (final IOException | UnsupportedOperationException ex) {
+            // no hard links on this file system, fall back to a copy
+            Files.copy(published, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+        this.ioExecutor.execute(() -> {
+            try {
+                this.artifactCache.store(key, snapshot);
+            } finally {
+                try {
+                    Files.deleteIfExists(snapshot);
+                } catch (final IOException ex) {
+                    MinecraftResolverImpl.LOGGER.debug("Failed to delete {}", snapshot, ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * Describe the tools involved in producing an environment, for use in
+     * artifact cache keys.
+     *
+     * <p>This may resolve tools, so must be called from the thread where
+     * resolution was initiated.</p>
+     *
+     * @param platform the platform of the environment
+     * @param chain the modifiers applied to the environment
+     * @return a key describing the tools
+     */
+    private String toolsKey(final MinecraftPlatform platform, final List<ArtifactModifier> chain) {
+        if (this.artifactCache == ArtifactCache.NONE) {
+            return "";
+        }
+
+        final StringBuilder key = new StringBuilder();
+        if (platform == MinecraftPlatform.JOINED) {
+            key.append(this.nativeJarMerge ? "native=" : "mergetool=")
+                .append(ArtifactCache.toolKey(this.toolClassPath(ResolvableTool.JAR_MERGE)));
+        }
+        for (final ArtifactModifier modifier : chain) {
+            for (final ResolvableTool tool : modifier.tools()) {
+                key.append(',').append(tool.id()).append('=').append(ArtifactCache.toolKey(this.toolClassPath(tool)));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Compute the artifact cache key for an environment.
+     *
+     * <p>The key only depends on the hashes of the official jars, so can be
+     * computed before anything is downloaded.</p>
+     *
+     * @param descriptor the version of the environment
+     * @param platform the platform of the environment
+     * @param chain the modifiers applied to the environment
+     * @param toolsKey the key describing the tools used
+     * @return the cache key
+     */
+    private static String environmentKey(
+        final VersionDescriptor.Full descriptor,
+        final MinecraftPlatform platform,
+        final List<ArtifactModifier> chain,
+        final String toolsKey
+    ) {
+        final List<String> inputs = new ArrayList<>();
+        inputs.add(Constants.VERSION);
+        inputs.add(String.valueOf(MinecraftResolver.STORAGE_VERSION));
+        inputs.add(platform.artifactId());
+        inputs.add(descriptor.id());
+        for (final MinecraftSide side : platform.activeSides()) {
+            inputs.add(descriptor.requireDownload(side.executableArtifact()).sha1());
+        }
+        for (final ArtifactModifier modifier : chain) {
+            inputs.add(modifier.key() + ArtifactModifier.KEY_VALUE_SEPARATOR + modifier.stateKey());
+        }
+        inputs.add(toolsKey);
+        return ArtifactCache.key(inputs.toArray(new String[0]));
     }
 
     private void cleanAssociatedArtifacts(final MinecraftPlatform platform, final String version) throws IOException {
@@ -420,103 +1072,123 @@ public CompletableFuture<ResolutionResult<Path>> produceAssociatedArtifact(
         final Set<ArtifactModifier> modifiers,
         final String id,
         final Set<AssociatedResolutionFlags> flags,
+        final @Nullable String toolKey,
         final BiFunction<MinecraftEnvironment, Path, CompletableFuture<?>> action
     ) {
         // We need to compute our own key to be able to query the map
         final String decoratedArtifact = ArtifactModifier.decorateArtifactId(side.artifactId(), modifiers) + '-' + id;
 
         // there's nothing yet, it's our time to resolve
-        return this.associatedArtifacts.computeIfAbsent(
-            new EnvironmentKey(side, version, decoratedArtifact),
-            key -> this.provide(side, version, modifiers).thenComposeAsync(
-                envResult -> {
-                    if (!envResult.isPresent()) {
-                        throw new IllegalStateException("No environment could be found for '" + side + "' version " + version);
-                    }
-                    final MinecraftEnvironment env = envResult.get();
-                    final Path output = env.jar().resolveSibling(env.decoratedArtifactId() + "-" + env.metadata().id() + "-" + id + ".jar");
-                    if (this.forceRefresh || !envResult.upToDate() || flags.contains(AssociatedResolutionFlags.FORCE_REGENERATE) || !Files.exists(output)) {
-                        final Path tempOutDir;
-                        try {
-                            tempOutDir = Files.createTempDirectory("vanillagradle-" + env.decoratedArtifactId() + "-" + id);
-                        } catch (final IOException ex) {
-                            throw new CompletionException(ex);
+        final EnvironmentKey associatedKey = new EnvironmentKey(side, version, decoratedArtifact);
+        return this.track(decoratedArtifact + ' ' + version, this.associatedArtifacts, associatedKey, this.associatedArtifacts.computeIfAbsent(
+            associatedKey,
+            key -> {
+                final List<ArtifactModifier> chain = ArtifactModifier.ordered(modifiers);
+                final @Nullable String toolsKey = toolKey == null ? null : this.toolsKey(side, chain) + ',' + id + '=' + toolKey;
+                return this.provide(side, version, modifiers).thenComposeAsync(
+                    envResult -> {
+                        if (!envResult.isPresent()) {
+                            throw new IllegalStateException("No environment could be found for '" + side + "' version " + version);
                         }
-                        final Path tempOut = tempOutDir.resolve(id + ".jar");
-
-                        final CompletableFuture<?> actionResult;
-                        if (flags.contains(AssociatedResolutionFlags.MODIFIES_ORIGINAL)) {
-                            // To safely modify the input, we copy it to a temporary location, then copy back when the action successfully completes
-                            final Path tempInput = tempOutDir.resolve("original-to-modify.jar");
+                        final MinecraftEnvironment resolved = envResult.get();
+                        final Path produced = resolved.jar().resolveSibling(resolved.decoratedArtifactId() + "-" + resolved.metadata().id() + "-" + id + ".jar");
+                        // Artifacts are only ever written to the writable cache, even when the environment comes from a seed
+                        final Path output = this.seeds.toWritable(produced);
+                        final boolean exists = Files.exists(output) || Files.exists(produced);
+                        if (this.forceRefresh || !envResult.upToDate() || flags.contains(AssociatedResolutionFlags.FORCE_REGENERATE) || !exists) {
+                            final boolean modifiesOriginal = flags.contains(AssociatedResolutionFlags.MODIFIES_ORIGINAL);
+                            final MinecraftEnvironment env = resolved;
+                            final Path tempOutDir;
                             try {
-                                Files.copy(env.jar(), tempInput);
+                                // Stage in the same cache as the (writable) environment, so publishing is a rename
+                                final StagingArea staging = env.jar().startsWith(this.privateCache) ? this.privateStaging : this.sharedStaging;
+                                tempOutDir = staging.stage(env.decoratedArtifactId() + "-" + id);
                             } catch (final IOException ex) {
                                 throw new CompletionException(ex);
                             }
-                            actionResult = action.apply(new MinecraftEnvironmentImpl(env.decoratedArtifactId(), tempInput, env::dependencies, env.metadata()), tempOut)
-                                .thenApply(in -> {
+                            final Path tempOut = tempOutDir.resolve(id + ".jar");
+                            // The original is only read, and a modified copy written alongside the output, so it stays usable until swapped
+                            final Path tempModified = AssociatedResolutionFlags.modifiedOriginal(tempOut);
+                            final @Nullable String cacheKey = toolsKey == null || flags.contains(AssociatedResolutionFlags.FORCE_REGENERATE)
+                                ? null
+                                : MinecraftResolverImpl.environmentKey(env.metadata(), side, chain, toolsKey);
+
+                            final CompletableFuture<Boolean> fetched = cacheKey == null
+                                ? CompletableFuture.completedFuture(false)
+                                : this.fetchCached(cacheKey, tempOut).thenCompose(hit -> hit && modifiesOriginal
+                                    ? this.fetchCached(cacheKey + "-original", tempModified)
+                                    : CompletableFuture.completedFuture(hit));
+                            return fetched.thenComposeAsync(hit -> {
+                                if (hit) {
+                                    MinecraftResolverImpl.LOGGER.info("Fetched {} for {} from the artifact cache", decoratedArtifact, version);
+                                    try {
+                                        if (modifiesOriginal) {
+                                            this.replaceOriginal(env, tempModified);
+                                        }
+                                        FileUtils.atomicMove(tempOut, output);
+                                    } catch (final IOException ex) {
+                                        throw new CompletionException(ex);
+                                    }
+                                    return CompletableFuture.completedFuture(ResolutionResult.result(output, false));
+                                }
+
+                                final CompletableFuture<?> actionResult;
+                                if (modifiesOriginal) {
+                                    actionResult = action.apply(env, tempOut)
+                                        .thenApply(in -> {
+                                            if (!Files.exists(tempModified)) {
+                                                return in; // nothing to change
+                                            }
+                                            try {
+                                                this.replaceOriginal(env, tempModified);
+                                                if (cacheKey != null) {
+                                                    this.storeCached(cacheKey + "-original", this.seeds.toWritable(env.jar()));
+                                                }
+                                            } catch (final IOException ex) {
+                                                throw new CompletionException(ex);
+                                            }
+                                            return in;
+                                        });
+                                } else {
+                                    actionResult = action.apply(env, tempOut);
+                                }
+                                return actionResult.thenApply(in -> {
                                     try {
-                                        FileUtils.atomicMove(tempInput, env.jar());
+                                        FileUtils.atomicMove(tempOut, output);
+                                        if (cacheKey != null) {
+                                            this.storeCached(cacheKey, output);
+                                        }
                                     } catch (final IOException ex) {
                                         throw new CompletionException(ex);
                                     }
-                                    return in;
+                                    return ResolutionResult.result(output, false);
                                 });
+                            }, this.cpuExecutor);
                         } else {
-                            actionResult = action.apply(env, tempOut);
+                            return CompletableFuture.completedFuture(ResolutionResult.result(Files.exists(output) ? output : produced, true)); // todo: find some better way of checking validity? for ex. when decompiler version changes
                         }
-                        return actionResult.thenApply(in -> {
-                            try {
-                                FileUtils.atomicMove(tempOut, output);
-                            } catch (final IOException ex) {
-                                throw new CompletionException(ex);
-                            }
-                            return ResolutionResult.result(output, false);
-                        });
-                    } else {
-                        return CompletableFuture.completedFuture(ResolutionResult.result(output, true)); // todo: find some better way of checking validity? for ex. when decompiler version changes
-                    }
-                },
-                this.executor()
-            )
-        );
+                    },
+                    this.cpuExecutor
+                );
+            }
+        ));
     }
 
     @Override
     public <T> T processSyncTasksUntilComplete(final CompletableFuture<T> future) throws InterruptedException, ExecutionException {
-        if (future.isDone()) {
-            return future.get();
-        }
-
-        future.handleAsync(
-            (res, err) -> {
-                this.syncTasks.add(new CompleteEvaluation(future));
-                return res;
-            },
-            this.executor
-        );
-
-        Runnable action;
-        for (;;) {
-            action = this.syncTasks.take();
-
-            // todo: rethrow exceptions with an ExecutionException
-            if (action instanceof CompleteEvaluation) {
-                if (((CompleteEvaluation) action).completed == future) {
-                    break;
-                } else {
-                    this.syncTasks.add(action);
-                }
-            }
-
-            try {
-                action.run();
-            } catch (final Exception ex) {
-                MinecraftResolverImpl.LOGGER.error("Failed to execute synchronous task {} while resolving {}", action, future, ex);
-            }
+        try {
+            return this.syncTasks.runUntilComplete(future, null);
+        } catch (final TimeoutException ex) {
+            throw new IllegalStateException("Unexpected timeout while waiting without a limit", ex);
         }
+    }
 
-        return future.get();
+    @Override
+    public <T> T processSyncTasksUntilComplete(
+        final CompletableFuture<T> future,
+        final Duration timeout
+    ) throws InterruptedException, ExecutionException, TimeoutException {
+        return this.syncTasks.runUntilComplete(future, timeout);
     }
 
     private String sharedArtifactFileName(
@@ -595,7 +1267,7 @@ private void writeMetaIfNecessary(
         if (!version.isPresent()) {
             return; // not found, we can't resolve
         }
-        final Path metaFile = baseDir.resolve("ivy-" + version.get().id() + "-vg" + MinecraftResolver.METADATA_VERSION + ".xml");
+        final Path metaFile = MinecraftResolverImpl.metadataFile(baseDir, version.get().id());
         if (!version.upToDate() || !Files.exists(metaFile)) {
             FileUtils.createDirectoriesSymlinkSafe(metaFile.getParent());
             final Path metaFileTmp = FileUtils.temporaryPath(metaFile.getParent(), "metadata");
@@ -609,6 +1281,59 @@ private void writeMetaIfNecessary(
         }
     }
 
+    private static Path metadataFile(final Path baseDir, final String versionId) {
+        return baseDir.resolve("ivy-" + versionId + "-vg" + MinecraftResolver.METADATA_VERSION + ".xml");
+    }
+
+    /**
+     * Find a prepared artifact in the seed caches, for an artifact missing
+     * from the writable cache.
+     *
+     * <p>Only artifacts published along with their metadata are used, so
+     * the seed's own repository can resolve them.</p>
+     *
+     * @param outputJar the location of the artifact in the writable cache
+     * @param versionId the Minecraft version
+     * @return the seeded artifact, or {@code null} if none is available
+     */
+    private @Nullable Path seededArtifact(final Path outputJar, final String versionId) {
+        final @Nullable Path seeded = this.seeds.find(outputJar);
+        if (seeded == null || !Files.isRegularFile(MinecraftResolverImpl.metadataFile(seeded.getParent(), versionId))) {
+            return null;
+        }
+        MinecraftResolverImpl.LOGGER.info("Using {} from seed cache", seeded);
+        return seeded;
+    }
+
+    /**
+     * Replace an environment's jar with a modified copy.
+     *
+     * <p>A seeded jar is read-only, so the modified copy is instead moved into
+     * the writable cache along with the environment's metadata, where it
+     * shadows the seeded jar.</p>
+     *
+     * @param env the environment whose jar was modified
+     * @param modified the modified jar, which is moved into place
+     * @throws IOException if the modified jar or metadata could not be moved
+     */
+    private void replaceOriginal(final MinecraftEnvironment env, final Path modified) throws IOException {
+        if (!this.seeds.isSeeded(env.jar())) {
+            FileUtils.atomicMove(modified, env.jar());
+            this.indexPublished(env.jar());
+            return;
+        }
+        // Seeds are read-only, so the modified original shadows the seeded jar from the writable cache
+        final Path jar = this.seeds.toWritable(env.jar());
+        FileUtils.createDirectoriesSymlinkSafe(jar.getParent());
+        final Path metaFile = MinecraftResolverImpl.metadataFile(env.jar().getParent(), env.metadata().id());
+        final Path metaTarget = MinecraftResolverImpl.metadataFile(jar.getParent(), env.metadata().id());
+        final Path metaTmp = FileUtils.temporaryPath(jar.getParent(), "metadata");
+        Files.copy(metaFile, metaTmp, StandardCopyOption.REPLACE_EXISTING);
+        FileUtils.atomicMove(metaTmp, metaTarget);
+        FileUtils.atomicMove(modified, jar);
+        this.indexPublished(jar);
+    }
+
     /**
      * A key used to resolve a specific minecraft version.
      *
@@ -653,11 +1378,4 @@ public VersionDescriptor.Full metadata() {
 
     }
 
-    record CompleteEvaluation(CompletableFuture<?> completed) implements Runnable {
-        @Override
-        public void run() {
-            // no-op
-        }
-    }
-
 }
@@ -32,18 +32,19 @@
 import org.spongepowered.gradle.vanilla.internal.model.Library;
 import org.spongepowered.gradle.vanilla.internal.model.VersionDescriptor;
 import org.spongepowered.gradle.vanilla.internal.model.rule.RuleContext;
+import org.spongepowered.gradle.vanilla.internal.util.IndexedZip;
+import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.SequencedSet;
 import java.util.Set;
 import java.util.function.Predicate;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 
 public enum MinecraftSide {
@@ -81,18 +82,22 @@ public SequencedSet<GroupArtifactVersion> dependencies(
         }
 
         @Override
-        public void extractJar(
-            final Path downloaded, final Path output, final @Nullable BundlerMetadata metadata
+        void extractJar(
+            final IndexedZip downloaded, final Path output, final @Nullable BundlerMetadata metadata
         ) throws IOException {
             if (metadata == null) {
                 super.extractJar(downloaded, output, metadata);
             } else {
-                try (final JarFile jf = new JarFile(downloaded.toFile())) {
-                    final JarEntry ent = jf.getJarEntry(metadata.server().path());
-                    if (ent == null) {
-                        throw new IOException("Could not locate server artifact in " + downloaded + " at " + metadata.server().path());
-                    }
-                    Files.copy(jf.getInputStream(ent), output, StandardCopyOption.REPLACE_EXISTING);
+                final IndexedZip.Entry ent = downloaded.entry(metadata.server().path());
+                if (ent == null) {
+                    throw new IOException("Could not locate server artifact in " + downloaded.path() + " at " + metadata.server().path());
+                }
+                // Verify while copying, rather than reading the server jar a second time
+                final MessageDigest digest = HashAlgorithm.SHA256.digest();
+                downloaded.extract(ent, output, digest);
+                final String actualHash = HashAlgorithm.toHexString(digest.digest());
+                if (!actualHash.equalsIgnoreCase(metadata.server().sha256())) {
+                    throw new IOException("Bundled server jar had hash " + actualHash + ", but " + metadata.server().sha256() + " was expected");
                 }
             }
         }
@@ -124,10 +129,25 @@ public abstract SequencedSet<GroupArtifactVersion> dependencies(
      * @throws IOException if an error occurs
      */
     public void extractJar(final Path downloaded, final Path output, final @Nullable BundlerMetadata metadata) throws IOException {
+        try (final IndexedZip zip = IndexedZip.open(downloaded)) {
+            this.extractJar(zip, output, metadata);
+        }
+    }
+
+    /**
+     * Extract the real jar from an already-opened download.
+     *
+     * @param downloaded the downloaded file from the manifest
+     * @param output the output
+     * @param metadata bundler metadata to read
+     * @throws IOException if an error occurs
+     * @see #extractJar(Path, Path, BundlerMetadata)
+     */
+    void extractJar(final IndexedZip downloaded, final Path output, final @Nullable BundlerMetadata metadata) throws IOException {
         try {
-            Files.createLink(output, downloaded);
+            Files.createLink(output, downloaded.path());
         } catch (final IOException ex) {
-            Files.copy(downloaded, output, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(downloaded.path(), output, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
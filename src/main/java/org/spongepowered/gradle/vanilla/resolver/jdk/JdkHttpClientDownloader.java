@@ -27,8 +27,10 @@
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.spongepowered.gradle.vanilla.internal.cache.SeedCaches;
 import org.spongepowered.gradle.vanilla.internal.util.AsyncUtils;
 import org.spongepowered.gradle.vanilla.internal.util.FileUtils;
+import org.spongepowered.gradle.vanilla.internal.util.ResolutionWatchdog;
 import org.spongepowered.gradle.vanilla.resolver.Downloader;
 import org.spongepowered.gradle.vanilla.resolver.HashAlgorithm;
 import org.spongepowered.gradle.vanilla.resolver.HttpErrorResponseException;
@@ -60,6 +62,8 @@ public class JdkHttpClientDownloader implements Downloader {
     private final HttpClient client;
     private final ResolveMode resolveMode;
     private final boolean writeToDisk;
+    private final SeedCaches seeds;
+    private final ResolutionWatchdog watchdog;
 
     /**
      * We limit the number of parallel requests otherwise:
@@ -89,11 +93,36 @@ public JdkHttpClientDownloader(final Executor asyncExecutor, final Path baseDire
         this(asyncExecutor, baseDirectory, resolveMode, true);
     }
 
+    /**
+     * Create a downloader that falls back to read-only seed caches for files
+     * missing from its base directory.
+     *
+     * @param asyncExecutor the executor to execute on
+     * @param baseDirectory the writable directory to download into
+     * @param resolveMode the resolve mode
+     * @param seeds the seed caches to consult
+     */
+    public JdkHttpClientDownloader(final Executor asyncExecutor, final Path baseDirectory, final ResolveMode resolveMode, final SeedCaches seeds) {
+        this(asyncExecutor, baseDirectory, resolveMode, true, seeds);
+    }
+
     private JdkHttpClientDownloader(final Executor asyncExecutor, final Path baseDirectory, final ResolveMode resolveMode, final boolean writeToDisk) {
+        this(asyncExecutor, baseDirectory, resolveMode, writeToDisk, SeedCaches.NONE);
+    }
+
+    private JdkHttpClientDownloader(
+        final Executor asyncExecutor,
+        final Path baseDirectory,
+        final ResolveMode resolveMode,
+        final boolean writeToDisk,
+        final SeedCaches seeds
+    ) {
         this.asyncExecutor = asyncExecutor;
         this.baseDirectory = baseDirectory;
         this.resolveMode = resolveMode;
         this.writeToDisk = writeToDisk;
+        this.seeds = seeds;
+        this.watchdog = ResolutionWatchdog.disabled();
 
         // Configure the HTTP client
         // This won't actually launch a thread pool until the first request is performed.
@@ -103,12 +132,23 @@ private JdkHttpClientDownloader(final Executor asyncExecutor, final Path baseDir
             .build();
     }
 
-    private JdkHttpClientDownloader(final Executor asyncExecutor, final Path baseDirectory, final ResolveMode mode, final boolean writeToDisk, final HttpClient existing) {
+    private JdkHttpClientDownloader(
+        final Executor asyncExecutor,
+        final Path baseDirectory,
+        final ResolveMode mode,
+        final boolean writeToDisk,
+        final SeedCaches seeds,
+        final ResolutionWatchdog watchdog,
+        final HttpClient existing
+    ) {
         this.asyncExecutor = asyncExecutor;
         this.baseDirectory = baseDirectory;
         this.resolveMode = mode;
         this.writeToDisk = writeToDisk;
+        this.seeds = seeds;
+        this.watchdog = watchdog;
         this.client = existing;
+        watchdog.watch(this.queue);
     }
 
     @Override
@@ -118,7 +158,18 @@ public Path baseDir() {
 
     @Override
     public Downloader withBaseDir(final Path override) {
-        return new JdkHttpClientDownloader(this.asyncExecutor, Objects.requireNonNull(override, "override"), this.resolveMode, this.writeToDisk, this.client);
+        return new JdkHttpClientDownloader(this.asyncExecutor, Objects.requireNonNull(override, "override"), this.resolveMode, this.writeToDisk, this.seeds, this.watchdog, this.client);
+    }
+
+    /**
+     * Create a downloader that reports requests taking too long to a
+     * watchdog.
+     *
+     * @param watchdog the watchdog to track requests with
+     * @return a new downloader
+     */
+    public JdkHttpClientDownloader withWatchdog(final ResolutionWatchdog watchdog) {
+        return new JdkHttpClientDownloader(this.asyncExecutor, this.baseDirectory, this.resolveMode, this.writeToDisk, this.seeds, Objects.requireNonNull(watchdog, "watchdog"), this.client);
     }
 
     @Override
@@ -186,12 +237,20 @@ private <T> CompletableFuture<ResolutionResult<T>> download(
         final Function<Path, CompletableFuture<T>> existingHandler
     ) {
         final Path path = this.baseDirectory.resolve(destination);
-        final BasicFileAttributes destAttributes = FileUtils.fileAttributesIfExists(path);
-        if (this.resolveMode != ResolveMode.REMOTE_ONLY && (destAttributes != null && destAttributes.isRegularFile())) { // TODO: check etag?
-            // Check every 24 hours
-            if (this.resolveMode == ResolveMode.LOCAL_ONLY
-                || System.currentTimeMillis() - destAttributes.lastModifiedTime().toMillis() < JdkHttpClientDownloader.CACHE_TIMEOUT_SECONDS * 1000) {
-                return existingHandler.apply(path).thenApply(result -> ResolutionResult.result(result, true));
+        if (this.resolveMode != ResolveMode.REMOTE_ONLY) {
+            @Nullable Path existing = path;
+            BasicFileAttributes destAttributes = FileUtils.fileAttributesIfExists(path);
+            if (destAttributes == null && this.writeToDisk) {
+                // Fall back to a seeded copy, under the same freshness rules
+                existing = this.seeds.find(path);
+                destAttributes = existing == null ? null : FileUtils.fileAttributesIfExists(existing);
+            }
+            if (existing != null && destAttributes != null && destAttributes.isRegularFile()) { // TODO: check etag?
+                // Check every 24 hours
+                if (this.resolveMode == ResolveMode.LOCAL_ONLY
+                    || System.currentTimeMillis() - destAttributes.lastModifiedTime().toMillis() < JdkHttpClientDownloader.CACHE_TIMEOUT_SECONDS * 1000) {
+                    return existingHandler.apply(existing).thenApply(result -> ResolutionResult.result(result, true));
+                }
             }
         }
 
@@ -225,9 +284,16 @@ private <T> CompletableFuture<ResolutionResult<T>> downloadValidating(
             }
             try {
                 Files.deleteIfExists(path);
+                Files.deleteIfExists(SeedCaches.sidecar(path, algorithm));
             } catch (final IOException ex) {
                 JdkHttpClientDownloader.LOGGER.warn("Failed to delete file at {}, will try to re-download anyways", path);
             }
+        } else if (this.writeToDisk) {
+            // Seeded files are trusted through their recorded hash rather than being read in full
+            final @Nullable Path seeded = this.seeds.find(path);
+            if (seeded != null && SeedCaches.isTrusted(seeded, algorithm, expectedHash)) {
+                return existingHandler.apply(seeded).thenApply(result -> ResolutionResult.result(result, true));
+            }
         }
 
         if (this.resolveMode == ResolveMode.LOCAL_ONLY) {
@@ -235,7 +301,18 @@ private <T> CompletableFuture<ResolutionResult<T>> downloadValidating(
             return CompletableFuture.completedFuture(ResolutionResult.notFound());
         }
 
-        return this.sendRequest(source, null, JdkHttpClientDownloader.validating(responseConsumer.apply(path), algorithm, expectedHash));
+        final CompletableFuture<ResolutionResult<T>> result =
+            this.sendRequest(source, null, JdkHttpClientDownloader.validating(responseConsumer.apply(path), algorithm, expectedHash));
+        if (!this.writeToDisk) {
+            return result;
+        }
+        return result.thenApply(downloaded -> {
+            if (downloaded.isPresent()) {
+                // Allow this file to be trusted when this cache is later used as a seed
+                SeedCaches.recordHash(path, algorithm, expectedHash);
+            }
+            return downloaded;
+        });
     }
 
     private <T> CompletableFuture<ResolutionResult<T>> sendRequest(final URI uri, final @Nullable String etag, final HttpResponse.BodyHandler<T> bodyHandler) {
@@ -244,7 +321,7 @@ private <T> CompletableFuture<ResolutionResult<T>> sendRequest(final URI uri, fi
             requestBuilder.header(HttpConstants.HEADER_IF_NONE_MATCH, etag);
         }
         final HttpRequest request = requestBuilder.build();
-        return this.queue.run(() -> this.client.sendAsync(request, bodyHandler))
+        return this.queue.run(() -> this.watchdog.track("HTTP GET " + uri, this.client.sendAsync(request, bodyHandler)))
             .thenApply(message -> {
                 switch (message.statusCode()) {
                     case HttpConstants.STATUS_NOT_FOUND:
@@ -24,12 +24,14 @@
  */
 package org.spongepowered.gradle.vanilla.resolver.jdk;
 
+import org.spongepowered.gradle.vanilla.internal.util.ResolutionWatchdog;
+
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
-class TaskQueue implements AutoCloseable {
+class TaskQueue implements AutoCloseable, ResolutionWatchdog.Diagnosable {
     private final int max;
     private boolean closed;
     private int running;
@@ -72,6 +74,14 @@ public <T> CompletableFuture<T> run(final Supplier<CompletableFuture<T>> task) {
         return this.acquire().thenCompose(_ -> task.get()).whenComplete((_, _) -> this.release());
     }
 
+    @Override
+    public synchronized String describeState() {
+        if (this.running == 0 && this.pending.isEmpty()) {
+            return "";
+        }
+        return "Download queue: " + this.running + "/" + this.max + " request(s) running, " + this.pending.size() + " waiting";
+    }
+
     @Override
     public synchronized void close() {
         if (!this.closed) {
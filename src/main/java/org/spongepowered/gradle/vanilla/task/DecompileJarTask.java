@@ -45,6 +45,7 @@
 import org.spongepowered.gradle.vanilla.MinecraftExtension;
 import org.spongepowered.gradle.vanilla.internal.Constants;
 import org.spongepowered.gradle.vanilla.internal.MinecraftExtensionImpl;
+import org.spongepowered.gradle.vanilla.internal.cache.ArtifactCache;
 import org.spongepowered.gradle.vanilla.internal.repository.MinecraftProviderService;
 import org.spongepowered.gradle.vanilla.internal.repository.modifier.ArtifactModifier;
 import org.spongepowered.gradle.vanilla.internal.repository.modifier.AssociatedResolutionFlags;
@@ -55,21 +56,21 @@
 
 import java.io.File;
 import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.locks.ReentrantLock;
 
 import javax.inject.Inject;
 
 public abstract class DecompileJarTask extends DefaultTask {
 
-    private static final ReentrantLock DECOMPILE_LOCK = new ReentrantLock();
-
     public DecompileJarTask() {
         this.setGroup(Constants.TASK_GROUP);
     }
@@ -120,84 +121,92 @@ public DecompileJarTask() {
     @Inject
     protected abstract WorkerExecutor getWorkerExecutor();
 
+    private String decompilerKey() {
+        // Sources depend on the decompiler and its options, on top of the environment itself
+        final URL[] classPath = this.getWorkerClasspath().getFiles().stream()
+            .map(file -> {
+                try {
+                    return file.toURI().toURL();
+                } catch (final MalformedURLException ex) {
+                    throw new GradleException("Invalid worker class path entry " + file, ex);
+                }
+            })
+            .toArray(URL[]::new);
+        return ArtifactCache.key(ArtifactCache.toolKey(classPath), new TreeMap<>(this.getExtraFernFlowerArgs().getOrElse(Collections.emptyMap())).toString());
+    }
+
     @TaskAction
     public void execute() {
         // TODO: get rid of these project references... somehow
-        // TODO: also find a less hacky way to ensure we don't acquire a Project lock before a task executing on a different thread can resolve the
-        // dependencies necessary (mergetool, AW, etc)
-        DecompileJarTask.DECOMPILE_LOCK.lock(); // gradle is super picky about how we resolve configurations, so this lock is a hack fix...
-        final CompletableFuture<ResolutionResult<Path>> resultFuture;
-        try {
-            final MinecraftProviderService minecraftProvider = this.getMinecraftProvider().get();
-            final Set<ArtifactModifier> modifiers =
-                ((MinecraftExtensionImpl) this.getProject().getExtensions().getByType(MinecraftExtension.class)).modifiers();
-
-            minecraftProvider.primeResolver(this.getProject(), modifiers);
-            final Set<AssociatedResolutionFlags> flags = EnumSet.of(AssociatedResolutionFlags.MODIFIES_ORIGINAL);
-            if (this.getForced().getOrElse(false)) {
-                flags.add(AssociatedResolutionFlags.FORCE_REGENERATE);
-            }
-            resultFuture = minecraftProvider.resolver().produceAssociatedArtifact(
-                this.getMinecraftPlatform().get(),
-                this.getMinecraftVersion().get(),
-                modifiers,
-                "sources",
-                flags,
-                (env, output) -> {
-                    final long totalSystemMemoryBytes =
-                        ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getTotalMemorySize() / (1024L * 1024L);
-                    return CompletableFuture.runAsync(() -> {
-                        // Determine which parts of the configuration are MC, and which are its dependencies
-                        final Set<File> dependencies = new HashSet<>();
-                        for (final ResolvedArtifactResult artifact : this.getInputArtifacts().get()) {
-                            if (artifact.getId() instanceof ModuleComponentArtifactIdentifier id) {
-                                if (id.getComponentIdentifier().getGroup().equals(MinecraftPlatform.GROUP)) {
-                                    if (env.decoratedArtifactId().equals(id.getComponentIdentifier().getModule())) {
-                                        continue;
-                                    }
+        final MinecraftProviderService minecraftProvider = this.getMinecraftProvider().get();
+        final Set<ArtifactModifier> modifiers =
+            ((MinecraftExtensionImpl) this.getProject().getExtensions().getByType(MinecraftExtension.class)).modifiers();
+        // Tools are resolved from this task's own project, on this thread, so decompiles in parallel projects need no coordination
+        final MinecraftResolver resolver = minecraftProvider.resolver(minecraftProvider.context(this.getProject(), modifiers));
+        final Set<AssociatedResolutionFlags> flags = EnumSet.of(AssociatedResolutionFlags.MODIFIES_ORIGINAL);
+        if (this.getForced().getOrElse(false)) {
+            flags.add(AssociatedResolutionFlags.FORCE_REGENERATE);
+        }
+        final CompletableFuture<ResolutionResult<Path>> resultFuture = resolver.produceAssociatedArtifact(
+            this.getMinecraftPlatform().get(),
+            this.getMinecraftVersion().get(),
+            modifiers,
+            "sources",
+            flags,
+            this.decompilerKey(),
+            (env, output) -> {
+                final long totalSystemMemoryBytes =
+                    ((OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getTotalMemorySize() / (1024L * 1024L);
+                return CompletableFuture.runAsync(() -> {
+                    // Determine which parts of the configuration are MC, and which are its dependencies
+                    final Set<File> dependencies = new HashSet<>();
+                    for (final ResolvedArtifactResult artifact : this.getInputArtifacts().get()) {
+                        if (artifact.getId() instanceof ModuleComponentArtifactIdentifier id) {
+                            if (id.getComponentIdentifier().getGroup().equals(MinecraftPlatform.GROUP)) {
+                                if (env.decoratedArtifactId().equals(id.getComponentIdentifier().getModule())) {
+                                    continue;
                                 }
                             }
-                            dependencies.add(artifact.getFile());
                         }
-
-                        if (dependencies.isEmpty()) {
-                            throw new InvalidUserDataException("No dependencies were found as part of the classpath");
-                        }
-
-                        // Execute in an isolated JVM that can access our customized classpath
-                        // This actually performs the decompile
-                        this.getWorkerExecutor().processIsolation(spec -> {
-                            spec.forkOptions(options -> {
-                                options.setMaxHeapSize(Math.max(totalSystemMemoryBytes / 4, 4096) + "M");
-                                // Enable toolchain support
-                                if (this.getJavaLauncher().isPresent()) {
-                                    final JavaLauncher launcher = this.getJavaLauncher().get();
-                                    options.setExecutable(launcher.getExecutablePath());
-                                }
-                            });
-                            spec.getClasspath().from(this.getWorkerClasspath());
-                        }).submit(JarDecompileWorker.class, parameters -> {
-                            parameters.getDecompileClasspath().from(dependencies);
-                            parameters.getExtraArgs().set(this.getExtraFernFlowerArgs().orElse(Collections.emptyMap()));
-                            parameters.getInputJar().set(env.jar().toFile()); // Use the temporary jar
-                            parameters.getOutputJar().set(output.toFile());
+                        dependencies.add(artifact.getFile());
+                    }
+
+                    if (dependencies.isEmpty()) {
+                        throw new InvalidUserDataException("No dependencies were found as part of the classpath");
+                    }
+
+                    // Execute in an isolated JVM that can access our customized classpath
+                    // This actually performs the decompile
+                    this.getWorkerExecutor().processIsolation(spec -> {
+                        spec.forkOptions(options -> {
+                            options.setMaxHeapSize(Math.max(totalSystemMemoryBytes / 4, 4096) + "M");
+                            // Enable toolchain support
+                            if (this.getJavaLauncher().isPresent()) {
+                                final JavaLauncher launcher = this.getJavaLauncher().get();
+                                options.setExecutable(launcher.getExecutablePath());
+                            }
                         });
-                        this.getWorkerExecutor().await();
-                    }, ((MinecraftResolver.Context) minecraftProvider.resolver()).syncExecutor());
-                }
-            );
-
-            try {
-                final ResolutionResult<Path> result = minecraftProvider.resolver().processSyncTasksUntilComplete(resultFuture);
-                this.setDidWork(!result.upToDate());
-            } catch (final ExecutionException ex) {
-                throw new GradleException("Failed to decompile " + this.getMinecraftVersion().get(), ex.getCause());
-            } catch (final InterruptedException ex) {
-                Thread.currentThread().interrupt();
-                throw new GradleException("Interrupted");
+                        spec.getClasspath().from(this.getWorkerClasspath());
+                    }).submit(JarDecompileWorker.class, parameters -> {
+                        parameters.getDecompileClasspath().from(dependencies);
+                        parameters.getExtraArgs().set(this.getExtraFernFlowerArgs().orElse(Collections.emptyMap()));
+                        parameters.getInputJar().set(env.jar().toFile()); // only read, the line-mapped copy replaces it afterwards
+                        parameters.getOutputJar().set(output.toFile());
+                        parameters.getLineMappedJar().set(AssociatedResolutionFlags.modifiedOriginal(output).toFile());
+                    });
+                    this.getWorkerExecutor().await();
+                }, ((MinecraftResolver.Context) resolver).syncExecutor());
             }
-        } finally {
-            DecompileJarTask.DECOMPILE_LOCK.unlock();
+        );
+
+        try {
+            final ResolutionResult<Path> result = resolver.processSyncTasksUntilComplete(resultFuture);
+            this.setDidWork(!result.upToDate());
+        } catch (final ExecutionException ex) {
+            throw new GradleException("Failed to decompile " + this.getMinecraftVersion().get(), ex.getCause());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted");
         }
     }
 
@@ -33,6 +33,7 @@
 import org.gradle.api.tasks.TaskAction;
 import org.jspecify.annotations.Nullable;
 import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.cache.CacheAccess;
 import org.spongepowered.gradle.vanilla.internal.model.AssetIndex;
 import org.spongepowered.gradle.vanilla.internal.model.AssetIndexReference;
 import org.spongepowered.gradle.vanilla.internal.repository.MinecraftProviderService;
@@ -75,6 +76,8 @@ public DownloadAssetsTask() {
     public void execute() {
         final Path assetsDirectory = Paths.get(this.getAssetsDirectory().get());
         final Downloader downloader = this.getMinecraftProvider().get().downloader().withBaseDir(assetsDirectory);
+        // Objects are pruned along with the last index using them, but a launcher's assets directory is never managed by us
+        final boolean trackAccess = assetsDirectory.startsWith(this.getMinecraftProvider().get().getParameters().getSharedCache().get().getAsFile().toPath());
 
         // Fetch asset index
         this.getLogger().info("Fetching asset index for {}", this.getTargetVersion().get());
@@ -84,8 +87,14 @@ public void execute() {
                     return CompletableFuture.completedFuture(ResolutionResult.notFound());
                 }
                 final AssetIndexReference ref = result.get().assetIndex();
-                return downloader.readStringAndValidate(ref.url(), "indexes/" + ref.id() + ".json", HashAlgorithm.SHA1, ref.sha1())
-                    .thenApply(idx -> idx.mapIfPresent((upToDate, contents) -> GsonUtils.GSON.fromJson(contents, AssetIndex.class)));
+                final String indexPath = "indexes/" + ref.id() + ".json";
+                return downloader.readStringAndValidate(ref.url(), indexPath, HashAlgorithm.SHA1, ref.sha1())
+                    .thenApply(idx -> {
+                        if (trackAccess && idx.isPresent()) {
+                            CacheAccess.touchFile(assetsDirectory.resolve(indexPath));
+                        }
+                        return idx.mapIfPresent((upToDate, contents) -> GsonUtils.GSON.fromJson(contents, AssetIndex.class));
+                    });
             });
 
         final AssetIndex index;
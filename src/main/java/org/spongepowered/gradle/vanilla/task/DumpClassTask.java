@@ -36,6 +36,7 @@
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
@@ -43,11 +44,14 @@
 import org.gradle.workers.WorkAction;
 import org.gradle.workers.WorkParameters;
 import org.gradle.workers.WorkerExecutor;
+import org.jspecify.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.util.ASMifier;
 import org.objectweb.asm.util.Printer;
 import org.objectweb.asm.util.Textifier;
 import org.objectweb.asm.util.TraceClassVisitor;
+import org.spongepowered.gradle.vanilla.internal.cache.ClassLocationIndex;
+import org.spongepowered.gradle.vanilla.internal.repository.MinecraftProviderService;
 
 import java.io.BufferedWriter;
 import java.io.File;
@@ -84,6 +88,9 @@ public abstract class DumpClassTask extends DefaultTask {
     @Option(option = "to", description = "A file to write the class dump to")
     public abstract Property<String> getDestinationFile();
 
+    @Internal
+    public abstract Property<MinecraftProviderService> getMinecraftProvider();
+
     @Inject
     protected abstract WorkerExecutor getWorkerExecutor();
 
@@ -97,9 +104,11 @@ public DumpClassTask() {
 
     @TaskAction
     public void run() {
+        // Only the element containing the class needs to be searched, if the index knows which one that is
+        final ClassLocationIndex.@Nullable Location location = this.locate();
         this.getWorkerExecutor().classLoaderIsolation(spec -> spec.getClasspath().from(this.getAsmUtilClasspath()))
             .submit(DumpClassAction.class, params -> {
-                params.getMinecraftClasspath().from(this.getMinecraftClasspath());
+                params.getMinecraftClasspath().from(location != null ? location.container() : this.getMinecraftClasspath());
                 params.getDumpedClass().set(this.getDumpedClass());
                 params.getUseAsmifier().set(this.getUseAsmifier());
                 params.getDestinationFile().set(this.getDestinationFile().flatMap(path -> this.getProjectLayout().getBuildDirectory().file(path)));
@@ -107,6 +116,21 @@ public void run() {
         this.getWorkerExecutor().await();
     }
 
+    private ClassLocationIndex.@Nullable Location locate() {
+        if (!this.getMinecraftProvider().isPresent()) {
+            return null;
+        }
+        try {
+            return this.getMinecraftProvider().get().classIndex().locate(
+                this.getMinecraftClasspath().getFiles().stream().map(File::toPath).toList(),
+                this.getDumpedClass().get()
+            );
+        } catch (final IOException ex) {
+            this.getLogger().info("Failed to look up {} in the class index, searching the whole classpath", this.getDumpedClass().get(), ex);
+            return null;
+        }
+    }
+
 
     // allow changing the ASM version from within the buildscript
     public abstract static class DumpClassAction implements WorkAction<DumpClassAction.Parameters> {
@@ -0,0 +1,100 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.task;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+import org.spongepowered.gradle.vanilla.internal.Constants;
+import org.spongepowered.gradle.vanilla.internal.cache.CachePruner;
+import org.spongepowered.gradle.vanilla.internal.repository.MinecraftProviderService;
+
+import java.io.IOException;
+import java.time.Duration;
+
+public abstract class PruneMinecraftCacheTask extends DefaultTask {
+
+    @Internal
+    public abstract Property<MinecraftProviderService> getMinecraftProvider();
+
+    @Internal
+    public abstract Property<Long> getSizeQuota();
+
+    @Internal
+    public abstract Property<Duration> getMaxAge();
+
+    @Internal
+    @Option(option = "dry-run", description = "Only report what would be evicted, without deleting anything")
+    public abstract Property<Boolean> getDryRun();
+
+    public PruneMinecraftCacheTask() {
+        this.setGroup(Constants.TASK_GROUP);
+        this.setDescription("Evict least recently used entries from the VanillaGradle caches");
+        this.getDryRun().convention(false);
+        this.getOutputs().upToDateWhen(t -> false);
+    }
+
+    @TaskAction
+    public void execute() {
+        final boolean dryRun = this.getDryRun().get();
+        final CachePruner.Report report;
+        try {
+            report = this.getMinecraftProvider().get().pruneCache(this.getSizeQuota().getOrElse(0L), this.getMaxAge().getOrNull(), dryRun);
+        } catch (final IOException ex) {
+            throw new GradleException("Failed to prune the VanillaGradle caches", ex);
+        }
+
+        for (final CachePruner.Entry entry : report.evicted()) {
+            this.getLogger().lifecycle(
+                "{} {} {} ({}, last used {})",
+                dryRun ? "Would evict" : "Evicted",
+                entry.kind(),
+                entry.path(),
+                PruneMinecraftCacheTask.formatSize(entry.size()),
+                entry.lastAccess()
+            );
+        }
+        this.getLogger().lifecycle(
+            "{} {} entries totalling {}, {} retained",
+            dryRun ? "Would evict" : "Evicted",
+            report.evicted().size(),
+            PruneMinecraftCacheTask.formatSize(report.evictedSize()),
+            PruneMinecraftCacheTask.formatSize(report.retainedSize())
+        );
+        this.setDidWork(!dryRun && !report.evicted().isEmpty());
+    }
+
+    private static String formatSize(final long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        final int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format("%.1f %ciB", (double) bytes / (1L << (unit * 10)), " KMGTPE".charAt(unit));
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spongepowered.gradle.vanilla.internal.cache.MergedClassCache;
+import org.spongepowered.gradle.vanilla.internal.transformer.JarCompression;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+public class MergedClassCacheTest {
+
+    private static final long TIME = 1_600_000_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCachedMergeIsIdentical() throws Exception {
+        final Path client = this.tempDir.resolve("client.jar");
+        final Path server = this.tempDir.resolve("server.jar");
+        MergedClassCacheTest.jar(client, "META-INF/MANIFEST.MF", "a/A.class", "a/B.class", "data/client.txt");
+        MergedClassCacheTest.jar(server, "META-INF/MANIFEST.MF", "a/A.class", "a/C.class", "data/server.txt");
+
+        final MergedClassCache cache = new MergedClassCache(this.tempDir.resolve("cache"), "test");
+        final List<List<String>> mergedClasses = new ArrayList<>();
+        final Path cold = this.tempDir.resolve("cold.jar");
+        final Path warm = this.tempDir.resolve("warm.jar");
+        cache.merge(client, server, cold, Files.createDirectory(this.tempDir.resolve("cold")), JarCompression.STORED, MergedClassCacheTest.merger(mergedClasses));
+        cache.merge(client, server, warm, Files.createDirectory(this.tempDir.resolve("warm")), JarCompression.STORED, MergedClassCacheTest.merger(mergedClasses));
+
+        Assertions.assertEquals(List.of("a/A.class", "a/B.class", "a/C.class"), mergedClasses.get(0));
+        Assertions.assertEquals(List.of(), mergedClasses.get(1), "every class should have been cached");
+        Assertions.assertEquals(
+            List.of("META-INF/MANIFEST.MF", "a/A.class", "a/B.class", "data/client.txt", "a/C.class", "data/server.txt", "tool/Marker.class"),
+            MergedClassCacheTest.names(cold)
+        );
+        Assertions.assertArrayEquals(Files.readAllBytes(cold), Files.readAllBytes(warm));
+    }
+
+    /**
+     * A merge tool that takes the client's copy of every entry, writes them
+     * in reverse order, and adds a class of its own.
+     */
+    private static MergedClassCache.Merge merger(final List<List<String>> mergedClasses) {
+        return (clientJar, serverJar, outputJar) -> {
+            final List<String> classes = new ArrayList<>();
+            try (final ZipFile clientZip = new ZipFile(clientJar.toFile());
+                 final ZipFile serverZip = new ZipFile(serverJar.toFile());
+                 final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(outputJar))) {
+                final List<ZipEntry> entries = new ArrayList<>(Collections.list(clientZip.entries()));
+                for (final ZipEntry entry : Collections.list(serverZip.entries())) {
+                    if (clientZip.getEntry(entry.getName()) == null) {
+                        entries.add(entry);
+                    }
+                }
+                Collections.reverse(entries);
+                for (final ZipEntry entry : entries) {
+                    final ZipFile source = clientZip.getEntry(entry.getName()) != null ? clientZip : serverZip;
+                    final ZipEntry copy = new ZipEntry(entry.getName());
+                    copy.setTime(entry.getTime());
+                    out.putNextEntry(copy);
+                    out.write(source.getInputStream(entry).readAllBytes());
+                    out.closeEntry();
+                    if (entry.getName().endsWith(".class")) {
+                        classes.add(entry.getName());
+                    }
+                }
+                final ZipEntry marker = new ZipEntry("tool/Marker.class");
+                marker.setTime(MergedClassCacheTest.TIME);
+                out.putNextEntry(marker);
+                out.closeEntry();
+            }
+            Collections.sort(classes);
+            mergedClasses.add(classes);
+        };
+    }
+
+    private static void jar(final Path jar, final String... names) throws IOException {
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (final String name : names) {
+                final ZipEntry entry = new ZipEntry(name);
+                entry.setTime(MergedClassCacheTest.TIME);
+                out.putNextEntry(entry);
+                out.write(name.getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static List<String> names(final Path jar) throws IOException {
+        try (final ZipFile zip = new ZipFile(jar.toFile())) {
+            return zip.stream().map(ZipEntry::getName).toList();
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spongepowered.gradle.vanilla.internal.util.IndexedZip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+public class IndexedZipTest {
+
+    private static final String CONTENTS = "The quick brown fox jumps over the lazy dog. ".repeat(64);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testFindsEndRecordBeforeComment() throws IOException {
+        final Path jar = this.tempDir.resolve("commented.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            IndexedZipTest.deflated(out, "a.txt", "first");
+            IndexedZipTest.deflated(out, "b.txt", "second");
+            // long enough to hold anything resembling an end record, and then some
+            out.setComment("PK\u0005\u0006 is not the end of the central directory ".repeat(100));
+        }
+
+        try (final IndexedZip zip = IndexedZip.open(jar)) {
+            Assertions.assertEquals(List.of("a.txt", "b.txt"), zip.entries().stream().map(IndexedZip.Entry::name).toList());
+            Assertions.assertEquals("second", IndexedZipTest.read(zip, "b.txt"));
+        }
+    }
+
+    @Test
+    void testReadsEntriesWithDataDescriptors() throws IOException {
+        final Path jar = this.tempDir.resolve("descriptors.jar");
+        // Deflated entries written to a stream have their sizes in a data descriptor after the data, not the local header
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            IndexedZipTest.deflated(out, "first.txt", IndexedZipTest.CONTENTS);
+            IndexedZipTest.deflated(out, "second.txt", "after a descriptor");
+        }
+
+        try (final IndexedZip zip = IndexedZip.open(jar)) {
+            final IndexedZip.Entry first = zip.entry("first.txt");
+            Assertions.assertNotNull(first);
+            Assertions.assertEquals(IndexedZipTest.CONTENTS.length(), first.size());
+            Assertions.assertTrue(first.compressedSize() < first.size());
+            Assertions.assertEquals(IndexedZipTest.CONTENTS, IndexedZipTest.read(zip, "first.txt"));
+            Assertions.assertEquals("after a descriptor", IndexedZipTest.read(zip, "second.txt"));
+        }
+    }
+
+    @Test
+    void testExtractsStoredAndDeflatedEntries() throws IOException, NoSuchAlgorithmException {
+        final Path jar = this.tempDir.resolve("mixed.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            IndexedZipTest.stored(out, "stored.txt", IndexedZipTest.CONTENTS);
+            IndexedZipTest.deflated(out, "deflated.txt", IndexedZipTest.CONTENTS);
+        }
+
+        final byte[] expected = IndexedZipTest.CONTENTS.getBytes(StandardCharsets.UTF_8);
+        final byte[] expectedDigest = MessageDigest.getInstance("SHA-256").digest(expected);
+        try (final IndexedZip zip = IndexedZip.open(jar)) {
+            for (final String name : List.of("stored.txt", "deflated.txt")) {
+                final IndexedZip.Entry entry = zip.entry(name);
+                Assertions.assertNotNull(entry);
+                final Path target = this.tempDir.resolve(name);
+                final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                zip.extract(entry, target, digest);
+                Assertions.assertArrayEquals(expected, Files.readAllBytes(target), name);
+                Assertions.assertArrayEquals(expectedDigest, digest.digest(), name);
+
+                // without a digest, stored entries are transferred directly
+                final Path undigested = this.tempDir.resolve("undigested-" + name);
+                zip.extract(entry, undigested, null);
+                Assertions.assertArrayEquals(expected, Files.readAllBytes(undigested), name);
+            }
+            Assertions.assertEquals(ZipEntry.STORED, zip.entry("stored.txt").method());
+            Assertions.assertEquals(ZipEntry.DEFLATED, zip.entry("deflated.txt").method());
+        }
+    }
+
+    @Test
+    void testRejectsZip64() throws IOException {
+        // An empty archive whose end record defers to a Zip64 end record
+        final ByteBuffer eocd = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        eocd.putInt(0x06054b50);
+        eocd.putShort((short) 0); // this disk
+        eocd.putShort((short) 0); // disk with the central directory
+        eocd.putShort((short) 0xFFFF); // entries on this disk
+        eocd.putShort((short) 0xFFFF); // total entries
+        eocd.putInt(0xFFFFFFFF); // central directory size
+        eocd.putInt(0xFFFFFFFF); // central directory offset
+        eocd.putShort((short) 0); // comment length
+        final Path jar = this.tempDir.resolve("zip64.jar");
+        Files.write(jar, eocd.array());
+
+        final ZipException ex = Assertions.assertThrows(ZipException.class, () -> IndexedZip.open(jar));
+        Assertions.assertTrue(ex.getMessage().contains("Zip64"), ex.getMessage());
+    }
+
+    @Test
+    void testRejectsTruncatedCentralDirectory() throws IOException {
+        final Path jar = this.tempDir.resolve("truncated.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            IndexedZipTest.deflated(out, "a.txt", "first");
+            IndexedZipTest.deflated(out, "b.txt", "second");
+        }
+        final ByteBuffer zip = IndexedZipTest.contents(jar);
+        final int eocd = zip.limit() - 22;
+        // The end record claims a shorter central directory, cutting off the last entry
+        zip.putInt(eocd + 12, zip.getInt(eocd + 12) - 10);
+        Files.write(jar, zip.array());
+
+        Assertions.assertThrows(ZipException.class, () -> IndexedZip.open(jar));
+    }
+
+    @Test
+    void testRejectsMoreEntriesThanCentralDirectoryHolds() throws IOException {
+        final Path jar = this.tempDir.resolve("overcounted.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            IndexedZipTest.deflated(out, "a.txt", "first");
+        }
+        final ByteBuffer zip = IndexedZipTest.contents(jar);
+        final int eocd = zip.limit() - 22;
+        zip.putShort(eocd + 8, (short) 2);
+        zip.putShort(eocd + 10, (short) 2);
+        Files.write(jar, zip.array());
+
+        Assertions.assertThrows(ZipException.class, () -> IndexedZip.open(jar));
+    }
+
+    @Test
+    void testRejectsOutOfRangeLocalOffset() throws IOException {
+        final Path jar = this.tempDir.resolve("offset.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            IndexedZipTest.deflated(out, "a.txt", "first");
+        }
+        final ByteBuffer zip = IndexedZipTest.contents(jar);
+        final int cen = zip.getInt(zip.limit() - 22 + 16);
+        // Point the only entry's local header past the end of the file
+        zip.putInt(cen + 42, zip.limit() + 100);
+        Files.write(jar, zip.array());
+
+        Assertions.assertThrows(ZipException.class, () -> IndexedZip.open(jar));
+    }
+
+    @Test
+    void testRejectsInvalidLocalHeader() throws IOException {
+        final Path jar = this.tempDir.resolve("header.jar");
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            IndexedZipTest.deflated(out, "a.txt", "first");
+        }
+        final ByteBuffer zip = IndexedZipTest.contents(jar);
+        zip.putInt(0, 0);
+        Files.write(jar, zip.array());
+
+        try (final IndexedZip indexed = IndexedZip.open(jar)) {
+            Assertions.assertThrows(ZipException.class, () -> IndexedZipTest.read(indexed, "a.txt"));
+        }
+    }
+
+    private static void deflated(final ZipOutputStream out, final String name, final String contents) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(contents.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+
+    private static void stored(final ZipOutputStream out, final String name, final String contents) throws IOException {
+        final byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    private static ByteBuffer contents(final Path jar) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(jar)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String read(final IndexedZip zip, final String name) throws IOException {
+        final IndexedZip.Entry entry = zip.entry(name);
+        Assertions.assertNotNull(entry, name);
+        try (final InputStream is = zip.open(entry)) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.spongepowered.gradle.vanilla.internal.util.SyncTaskLoop;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SyncTaskLoopTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void testRunsTasksQueuedBeforeLoop() {
+        final SyncTaskLoop loop = new SyncTaskLoop();
+        final CompletableFuture<Thread> future = new CompletableFuture<>();
+        loop.execute(() -> future.complete(Thread.currentThread()));
+        Assertions.assertTrue(loop.describeState().contains("1 task(s) queued, 0 thread(s)"), loop.describeState());
+
+        Assertions.assertTimeoutPreemptively(SyncTaskLoopTest.TIMEOUT, () -> {
+            // The task runs on the thread that runs the loop
+            Assertions.assertSame(Thread.currentThread(), loop.runUntilComplete(future, null));
+        });
+        Assertions.assertEquals("", loop.describeState());
+    }
+
+    @Test
+    void testWakesOnCompletionWithoutTasks() {
+        final SyncTaskLoop loop = new SyncTaskLoop();
+        final CompletableFuture<String> future = CompletableFuture.supplyAsync(() -> "done", CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+
+        Assertions.assertTimeoutPreemptively(SyncTaskLoopTest.TIMEOUT, () -> {
+            Assertions.assertEquals("done", loop.runUntilComplete(future, null));
+        });
+    }
+
+    @Test
+    void testNestedLoopReturnsOnOwnCompletion() {
+        final SyncTaskLoop loop = new SyncTaskLoop();
+        final CompletableFuture<String> outer = new CompletableFuture<>();
+        final CompletableFuture<String> inner = new CompletableFuture<>();
+        final List<String> events = new ArrayList<>();
+
+        loop.execute(() -> {
+            events.add("outer task");
+            // Queued behind this task, so only the nested loop can run it
+            loop.execute(() -> {
+                events.add("inner task");
+                inner.complete("inner");
+            });
+            try {
+                events.add("nested returned " + loop.runUntilComplete(inner, null));
+            } catch (final ExecutionException | InterruptedException | TimeoutException ex) {
+                throw new AssertionError(ex);
+            }
+            // The outer future is still pending, but the nested loop must not have waited for it
+            Assertions.assertFalse(outer.isDone());
+            loop.execute(() -> outer.complete("outer"));
+        });
+
+        Assertions.assertTimeoutPreemptively(SyncTaskLoopTest.TIMEOUT, () -> {
+            Assertions.assertEquals("outer", loop.runUntilComplete(outer, null));
+        });
+        Assertions.assertEquals(List.of("outer task", "inner task", "nested returned inner"), events);
+    }
+
+    @Test
+    void testTimesOut() {
+        final SyncTaskLoop loop = new SyncTaskLoop();
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        Assertions.assertTimeoutPreemptively(SyncTaskLoopTest.TIMEOUT, () -> {
+            Assertions.assertThrows(TimeoutException.class, () -> loop.runUntilComplete(future, Duration.ofMillis(50)));
+        });
+        Assertions.assertFalse(future.isDone());
+        Assertions.assertEquals("", loop.describeState());
+    }
+
+    @Test
+    void testReportsCancellation() {
+        final SyncTaskLoop loop = new SyncTaskLoop();
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> future.cancel(false));
+
+        Assertions.assertTimeoutPreemptively(SyncTaskLoopTest.TIMEOUT, () -> {
+            final ExecutionException ex = Assertions.assertThrows(ExecutionException.class, () -> loop.runUntilComplete(future, null));
+            Assertions.assertInstanceOf(CancellationException.class, ex.getCause());
+        });
+        Assertions.assertEquals("", loop.describeState());
+    }
+
+    @Test
+    void testReportsFailure() {
+        final SyncTaskLoop loop = new SyncTaskLoop();
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        final IllegalStateException failure = new IllegalStateException("failed");
+        loop.execute(() -> future.completeExceptionally(failure));
+
+        Assertions.assertTimeoutPreemptively(SyncTaskLoopTest.TIMEOUT, () -> {
+            final ExecutionException ex = Assertions.assertThrows(ExecutionException.class, () -> loop.runUntilComplete(future, null));
+            Assertions.assertSame(failure, ex.getCause());
+        });
+    }
+
+}
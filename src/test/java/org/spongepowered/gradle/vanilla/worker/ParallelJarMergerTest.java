@@ -0,0 +1,291 @@
+/*
+ * This file is part of VanillaGradle, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.gradle.vanilla.worker;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.spongepowered.gradle.vanilla.internal.worker.JarMerger;
+import org.spongepowered.gradle.vanilla.internal.worker.ParallelJarMerger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+public class ParallelJarMergerTest {
+
+    private static final String ONLY_IN = "Lnet/minecraftforge/api/distmarker/OnlyIn;";
+    private static final String ONLY_INS = "Lnet/minecraftforge/api/distmarker/OnlyIns;";
+
+    @TempDir
+    Path tempDir;
+
+    private Path client;
+    private Path server;
+
+    @BeforeEach
+    void writeFixtures() throws IOException {
+        this.client = this.tempDir.resolve("client.jar");
+        this.server = this.tempDir.resolve("server.jar");
+
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(this.client))) {
+            ParallelJarMergerTest.resource(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n");
+            ParallelJarMergerTest.resource(out, "assets/lang/en_us.json", "{}");
+            ParallelJarMergerTest.resource(out, "data/shared.txt", "client");
+            ParallelJarMergerTest.clazz(out, ParallelJarMergerTest.sharedClass(
+                List.of("java/lang/Runnable", "java/lang/AutoCloseable"),
+                List.of("a:I", "b:J", "c:Ljava/lang/String;", "e:I"),
+                List.of("<init>:()V", "run:()V", "render:()V", "close:()V", "tick:()V", "tick:(I)V"),
+                List.of("com/example/Shared$Inner", "com/example/Shared$Model")
+            ));
+            ParallelJarMergerTest.clazz(out, ParallelJarMergerTest.simpleClass("com/example/Renderer"));
+            for (int i = 0; i < 40; i++) {
+                ParallelJarMergerTest.clazz(out, ParallelJarMergerTest.simpleClass("com/example/common/Common" + i));
+            }
+        }
+
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(this.server))) {
+            ParallelJarMergerTest.resource(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\nMain-Class: com.example.Main\r\n\r\n");
+            ParallelJarMergerTest.resource(out, "data/shared.txt", "server");
+            ParallelJarMergerTest.resource(out, "data/server.properties", "motd=A Minecraft Server");
+            for (int i = 39; i >= 0; i--) {
+                ParallelJarMergerTest.clazz(out, ParallelJarMergerTest.simpleClass("com/example/common/Common" + i));
+            }
+            ParallelJarMergerTest.clazz(out, ParallelJarMergerTest.simpleClass("com/example/Main"));
+            ParallelJarMergerTest.clazz(out, ParallelJarMergerTest.sharedClass(
+                List.of("java/lang/Runnable", "java/io/Serializable"),
+                List.of("a:I", "c:Ljava/lang/String;", "d:Z", "e:I"),
+                List.of("<init>:()V", "run:()V", "tick:()V", "save:()V", "tick:(I)V", "stop:()V"),
+                List.of("com/example/Shared$Inner", "com/example/Shared$Network")
+            ));
+        }
+    }
+
+    @Test
+    void testMatchesMergetool() throws IOException {
+        this.assertMatchesMergetool(this.client, this.server);
+    }
+
+    /**
+     * Compare both mergers on real Minecraft jars, given by the
+     * {@code vanillagradle.test.client} and {@code vanillagradle.test.server}
+     * system properties.
+     *
+     * <p>Real jars can not be redistributed, so this is skipped when they are
+     * not given.</p>
+     */
+    @Test
+    void testMatchesMergetoolOnMinecraftJars() throws IOException {
+        final String client = System.getProperty("vanillagradle.test.client");
+        final String server = System.getProperty("vanillagradle.test.server");
+        Assumptions.assumeTrue(client != null && server != null, "No Minecraft jars given to compare merges of");
+        this.assertMatchesMergetool(Path.of(client), Path.of(server));
+    }
+
+    private void assertMatchesMergetool(final Path client, final Path server) throws IOException {
+        final Path expected = this.tempDir.resolve("mergetool.jar");
+        final Path actual = this.tempDir.resolve("native.jar");
+        JarMerger.execute(client, server, expected);
+        ParallelJarMerger.execute(client, server, actual);
+
+        final List<Map.Entry<String, byte[]>> expectedEntries = ParallelJarMergerTest.entries(expected);
+        final List<Map.Entry<String, byte[]>> actualEntries = ParallelJarMergerTest.entries(actual);
+        Assertions.assertEquals(
+            expectedEntries.stream().map(Map.Entry::getKey).toList(),
+            actualEntries.stream().map(Map.Entry::getKey).toList(),
+            "entries are not written in the same order"
+        );
+        for (int i = 0; i < expectedEntries.size(); i++) {
+            final String name = expectedEntries.get(i).getKey();
+            Assertions.assertArrayEquals(expectedEntries.get(i).getValue(), actualEntries.get(i).getValue(), () -> "contents of " + name + " differ");
+        }
+    }
+
+    @Test
+    void testMarksSidedMembers() throws IOException {
+        final Path output = this.tempDir.resolve("native.jar");
+        ParallelJarMerger.execute(this.client, this.server, output);
+
+        try (final ZipFile merged = new ZipFile(output.toFile())) {
+            Assertions.assertEquals("client", ParallelJarMergerTest.read(merged, "data/shared.txt"), "the client's copy of a resource should win");
+            Assertions.assertNotNull(merged.getEntry("data/server.properties"));
+            Assertions.assertEquals(List.of("CLIENT"), ParallelJarMergerTest.sides(ParallelJarMergerTest.node(merged, "com/example/Renderer").visibleAnnotations));
+            Assertions.assertEquals(List.of("DEDICATED_SERVER"), ParallelJarMergerTest.sides(ParallelJarMergerTest.node(merged, "com/example/Main").visibleAnnotations));
+            Assertions.assertEquals(List.of(), ParallelJarMergerTest.sides(ParallelJarMergerTest.node(merged, "com/example/common/Common0").visibleAnnotations));
+
+            final ClassNode shared = ParallelJarMergerTest.node(merged, "com/example/Shared");
+            final List<String> fields = new ArrayList<>();
+            for (final FieldNode field : shared.fields) {
+                fields.add(field.name + ParallelJarMergerTest.sides(field.visibleAnnotations));
+            }
+            Assertions.assertEquals(List.of("a[]", "b[CLIENT]", "c[]", "d[DEDICATED_SERVER]", "e[]"), fields);
+
+            final List<String> methods = new ArrayList<>();
+            for (final MethodNode method : shared.methods) {
+                methods.add(method.name + method.desc + ParallelJarMergerTest.sides(method.visibleAnnotations));
+            }
+            Assertions.assertEquals(List.of(
+                "<init>()V[]",
+                "run()V[]",
+                "render()V[CLIENT]",
+                "close()V[CLIENT]",
+                "tick()V[]",
+                "save()V[DEDICATED_SERVER]",
+                "tick(I)V[]",
+                "stop()V[DEDICATED_SERVER]"
+            ), methods);
+
+            Assertions.assertEquals(List.of("java/lang/Runnable", "java/lang/AutoCloseable", "java/io/Serializable"), shared.interfaces);
+            Assertions.assertTrue(
+                shared.visibleAnnotations.stream().anyMatch(ann -> ann.desc.equals(ParallelJarMergerTest.ONLY_INS)),
+                "interfaces implemented on one side should be listed in @OnlyIns"
+            );
+            Assertions.assertEquals(
+                List.of("com/example/Shared$Inner", "com/example/Shared$Model", "com/example/Shared$Network"),
+                shared.innerClasses.stream().map(inner -> inner.name).toList()
+            );
+        }
+    }
+
+    // Fixtures //
+
+    private static ClassNode sharedClass(final List<String> interfaces, final List<String> fields, final List<String> methods, final List<String> inners) {
+        final ClassNode node = new ClassNode();
+        node.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, "com/example/Shared", null, "java/lang/Object", interfaces.toArray(new String[0]));
+        for (final String field : fields) {
+            final String[] parts = field.split(":", 2);
+            node.visitField(Opcodes.ACC_PRIVATE, parts[0], parts[1], null, null).visitEnd();
+        }
+        for (final String method : methods) {
+            final String[] parts = method.split(":", 2);
+            ParallelJarMergerTest.emptyMethod(node, parts[0], parts[1]);
+        }
+        for (final String inner : inners) {
+            node.visitInnerClass(inner, "com/example/Shared", inner.substring(inner.indexOf('$') + 1), Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+        }
+        node.visitEnd();
+        return node;
+    }
+
+    private static ClassNode simpleClass(final String name) {
+        final ClassNode node = new ClassNode();
+        node.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+        ParallelJarMergerTest.emptyMethod(node, "<init>", "()V");
+        node.visitEnd();
+        return node;
+    }
+
+    private static void emptyMethod(final ClassNode node, final String name, final String desc) {
+        final MethodVisitor mv = node.visitMethod(Opcodes.ACC_PUBLIC, name, desc, null, null);
+        mv.visitCode();
+        if (name.equals("<init>")) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        }
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(1, name.equals("tick") && desc.equals("(I)V") ? 2 : 1);
+        mv.visitEnd();
+    }
+
+    private static void clazz(final ZipOutputStream out, final ClassNode node) throws IOException {
+        final ClassWriter writer = new ClassWriter(0);
+        node.accept(writer);
+        out.putNextEntry(new ZipEntry(node.name + ".class"));
+        out.write(writer.toByteArray());
+        out.closeEntry();
+    }
+
+    private static void resource(final ZipOutputStream out, final String name, final String contents) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(contents.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+
+    // Inspecting output //
+
+    private static List<Map.Entry<String, byte[]>> entries(final Path jar) throws IOException {
+        final List<Map.Entry<String, byte[]>> entries = new ArrayList<>();
+        try (final ZipFile zip = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> it = zip.entries();
+            while (it.hasMoreElements()) {
+                final ZipEntry entry = it.nextElement();
+                try (final InputStream is = zip.getInputStream(entry)) {
+                    entries.add(Map.entry(entry.getName() + " @" + entry.getTime(), is.readAllBytes()));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static String read(final ZipFile jar, final String name) throws IOException {
+        final ZipEntry entry = jar.getEntry(name);
+        Assertions.assertNotNull(entry, () -> "No entry " + name + " in merged jar");
+        try (final InputStream is = jar.getInputStream(entry)) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static ClassNode node(final ZipFile jar, final String name) throws IOException {
+        final ZipEntry entry = jar.getEntry(name + ".class");
+        Assertions.assertNotNull(entry, () -> "No class " + name + " in merged jar");
+        try (final InputStream is = jar.getInputStream(entry)) {
+            final ClassNode node = new ClassNode();
+            new ClassReader(is).accept(node, 0);
+            return node;
+        }
+    }
+
+    private static List<String> sides(final List<AnnotationNode> annotations) {
+        final List<String> sides = new ArrayList<>();
+        if (annotations != null) {
+            for (final AnnotationNode annotation : annotations) {
+                if (annotation.desc.equals(ParallelJarMergerTest.ONLY_IN)) {
+                    sides.add(((String[]) annotation.values.get(1))[1]);
+                }
+            }
+        }
+        return sides;
+    }
+
+}